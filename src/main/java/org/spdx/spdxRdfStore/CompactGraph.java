@@ -0,0 +1,566 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+import org.apache.jena.util.iterator.SingletonIterator;
+
+/**
+ * In-memory graph which dictionary encodes nodes to int IDs and indexes the triples as pairs of IDs
+ * <p>
+ * Nodes are held once, encoded as bytes in a <code>NodeDictionary</code>, and decoded when triples are returned.
+ * The SPO, POS and OSP indexes hold, for the ID of the first node, the pairs of the other two IDs packed into longs.
+ * A single pair is stored inline, a few pairs in an unordered array and larger sets in an open addressed hash
+ * table, so there are no objects per triple or per index entry.
+ * <p>
+ * Literals are matched by term rather than by value, the same as the GraphMem2 graphs.  Nodes are not removed from
+ * the dictionary when their last triple is deleted, but the dictionary is emptied when the graph is cleared.  Like the
+ * other in-memory graphs, the graph is not thread safe for concurrent updates and iterators fail on a modification of
+ * the graph other than through the iterator.
+ *
+ * @author Gary O'Neall
+ */
+class CompactGraph extends GraphBase {
+
+	private final NodeDictionary dictionary = new NodeDictionary();
+	private final PairIndex spo = new PairIndex();
+	private final PairIndex pos = new PairIndex();
+	private final PairIndex osp = new PairIndex();
+
+	private int size = 0;
+
+	/**
+	 * Incremented on every change to detect modification during iteration
+	 */
+	private int modCount = 0;
+
+	@Override
+	public Capabilities getCapabilities() {
+		return AllCapabilities.updateAllowed;
+	}
+
+	private static long pair(int first, int second) {
+		return ((long)first << 32) | (second & 0xFFFFFFFFL);
+	}
+
+	private static int first(long pair) {
+		return (int)(pair >>> 32);
+	}
+
+	private static int second(long pair) {
+		return (int)pair;
+	}
+
+	@Override
+	public void performAdd(Triple t) {
+		int s = dictionary.getOrCreateId(t.getSubject());
+		int p = dictionary.getOrCreateId(t.getPredicate());
+		int o = dictionary.getOrCreateId(t.getObject());
+		if (!spo.add(s, pair(p, o))) {
+			return;
+		}
+		pos.add(p, pair(o, s));
+		osp.add(o, pair(s, p));
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public void performDelete(Triple t) {
+		int s = dictionary.getId(t.getSubject());
+		int p = dictionary.getId(t.getPredicate());
+		int o = dictionary.getId(t.getObject());
+		if (s < 0 || p < 0 || o < 0 || !spo.remove(s, pair(p, o))) {
+			return;
+		}
+		pos.remove(p, pair(o, s));
+		osp.remove(o, pair(s, p));
+		size--;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		spo.clear();
+		pos.clear();
+		osp.clear();
+		dictionary.clear();
+		size = 0;
+		modCount++;
+		getEventManager().notifyEvent(this, GraphEvents.removeAll);
+	}
+
+	@Override
+	protected int graphBaseSize() {
+		return size;
+	}
+
+	@Override
+	protected boolean graphBaseContains(Triple t) {
+		if (!t.isConcrete()) {
+			return containsByFind(t);
+		}
+		int s = dictionary.getId(t.getSubject());
+		int p = dictionary.getId(t.getPredicate());
+		int o = dictionary.getId(t.getObject());
+		return s >= 0 && p >= 0 && o >= 0 && spo.contains(s, pair(p, o));
+	}
+
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind(Triple m) {
+		Node sNode = m.getMatchSubject();
+		Node pNode = m.getMatchPredicate();
+		Node oNode = m.getMatchObject();
+		int s = matchId(sNode);
+		int p = matchId(pNode);
+		int o = matchId(oNode);
+		if (s == -1 || p == -1 || o == -1) {
+			return NiceIterator.emptyIterator();
+		}
+		if (s >= 0) {
+			if (p >= 0 && o >= 0) {
+				return spo.contains(s, pair(p, o)) ? new SingletonIterator<>(Triple.create(sNode, pNode, oNode)) :
+					NiceIterator.emptyIterator();
+			}
+			return new PairIterator(spo, s, sNode, Order.SPO, p, o);
+		}
+		if (p >= 0) {
+			if (o >= 0 && osp.size(o) < pos.size(p)) {
+				return new PairIterator(osp, o, oNode, Order.OSP, -2, p);
+			}
+			return new PairIterator(pos, p, pNode, Order.POS, o, -2);
+		}
+		if (o >= 0) {
+			return new PairIterator(osp, o, oNode, Order.OSP, -2, -2);
+		}
+		return new PairIterator(spo, -1, null, Order.SPO, -2, -2);
+	}
+
+	/**
+	 * @param node node from a match triple
+	 * @return -2 for a wildcard, -1 if the node is not in the graph or the ID of the node
+	 */
+	private int matchId(Node node) {
+		if (Objects.isNull(node) || Node.ANY.equals(node) || node.isVariable()) {
+			return -2;
+		}
+		return dictionary.getId(node);
+	}
+
+	/**
+	 * Index order of a pair iterator
+	 */
+	private enum Order { SPO, POS, OSP }
+
+	/**
+	 * Iterates the pairs for one key, or every key, of an index creating triples for the pairs matching the bound IDs
+	 */
+	private class PairIterator extends NiceIterator<Triple> {
+		private final PairIndex index;
+		private final boolean allKeys;
+		private final Order order;
+		private final int firstMatch;
+		private final int secondMatch;
+		private int key;
+		private Node keyNode;
+		private int slot = -1;
+		/**
+		 * Copy of the pairs remaining for the current key once a triple has been removed through the iterator
+		 */
+		private long[] remaining = null;
+		private int remainingIndex = 0;
+		private int expectedModCount = modCount;
+		private Triple next = null;
+		private Triple current = null;
+
+		/**
+		 * @param index index to iterate
+		 * @param key ID of the key or -1 to iterate every key
+		 * @param keyNode node for the key or null to iterate every key
+		 * @param order index order
+		 * @param firstMatch ID to match for the first of the pair or -2 for any
+		 * @param secondMatch ID to match for the second of the pair or -2 for any
+		 */
+		PairIterator(PairIndex index, int key, Node keyNode, Order order, int firstMatch, int secondMatch) {
+			this.index = index;
+			this.allKeys = key < 0;
+			this.key = allKeys ? 0 : key;
+			this.keyNode = keyNode;
+			this.order = order;
+			this.firstMatch = firstMatch;
+			this.secondMatch = secondMatch;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (Objects.nonNull(next)) {
+				return true;
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			while (key < index.capacity()) {
+				while (true) {
+					long pair;
+					if (Objects.nonNull(remaining)) {
+						if (remainingIndex >= remaining.length) {
+							break;
+						}
+						pair = remaining[remainingIndex++];
+					} else {
+						slot = index.nextSlot(key, slot + 1);
+						if (slot < 0) {
+							break;
+						}
+						pair = index.get(key, slot);
+					}
+					int a = first(pair);
+					int b = second(pair);
+					if ((firstMatch == -2 || firstMatch == a) && (secondMatch == -2 || secondMatch == b)) {
+						next = toTriple(a, b);
+						return true;
+					}
+				}
+				if (!allKeys) {
+					// exhausted - a further call must not restart the key
+					key = Integer.MAX_VALUE;
+					break;
+				}
+				key++;
+				keyNode = null;
+				slot = -1;
+				remaining = null;
+			}
+			return false;
+		}
+
+		private Triple toTriple(int a, int b) {
+			if (Objects.isNull(keyNode)) {
+				keyNode = dictionary.getNode(key);
+			}
+			switch (order) {
+				case POS: return Triple.create(dictionary.getNode(b), keyNode, dictionary.getNode(a));
+				case OSP: return Triple.create(dictionary.getNode(a), dictionary.getNode(b), keyNode);
+				case SPO:
+				default: return Triple.create(keyNode, dictionary.getNode(a), dictionary.getNode(b));
+			}
+		}
+
+		@Override
+		public Triple next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			current = next;
+			next = null;
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			if (Objects.isNull(current) || Objects.nonNull(next)) {
+				throw new IllegalStateException("Remove must follow next");
+			}
+			if (Objects.isNull(remaining)) {
+				// removing a pair can move the other pairs for the key so continue from a copy
+				remaining = index.copyFrom(key, slot + 1);
+				remainingIndex = 0;
+			}
+			delete(current);
+			current = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Index from a key ID to a set of pairs of IDs packed into longs
+	 * <p>
+	 * A key with a single pair stores the pair inline.  Up to <code>MAX_LIST_SIZE</code> pairs are stored in an
+	 * unordered array whose first element is the number of pairs.  Larger sets are stored in a linear probing hash table
+	 * whose first element is the number of pairs with the <code>HASHED</code> bit set.
+	 */
+	static class PairIndex {
+		private static final int MAX_LIST_SIZE = 16;
+		private static final long EMPTY = -1L;
+		private static final long HASHED = 1L << 62;
+
+		/**
+		 * The single pair for each key with one pair, otherwise <code>EMPTY</code>
+		 */
+		private long[] singles = new long[0];
+		/**
+		 * The pairs for each key with more than one pair, otherwise null
+		 */
+		private long[][] rows = new long[0][];
+
+		/**
+		 * @return number of keys which can be held without growing the index
+		 */
+		int capacity() {
+			return singles.length;
+		}
+
+		private void ensureCapacity(int key) {
+			if (key >= singles.length) {
+				int capacity = Math.max(16, Math.max(key + 1, singles.length + (singles.length >> 1)));
+				int oldLength = singles.length;
+				singles = Arrays.copyOf(singles, capacity);
+				Arrays.fill(singles, oldLength, capacity, EMPTY);
+				rows = Arrays.copyOf(rows, capacity);
+			}
+		}
+
+		void clear() {
+			Arrays.fill(singles, EMPTY);
+			Arrays.fill(rows, null);
+		}
+
+		/**
+		 * @param key key ID
+		 * @return number of pairs for the key
+		 */
+		int size(int key) {
+			if (key >= singles.length) {
+				return 0;
+			}
+			if (singles[key] != EMPTY) {
+				return 1;
+			}
+			long[] row = rows[key];
+			return Objects.isNull(row) ? 0 : (int)(row[0] & ~HASHED);
+		}
+
+		boolean contains(int key, long value) {
+			if (key >= singles.length) {
+				return false;
+			}
+			if (singles[key] != EMPTY) {
+				return singles[key] == value;
+			}
+			long[] row = rows[key];
+			if (Objects.isNull(row)) {
+				return false;
+			}
+			if ((row[0] & HASHED) == 0) {
+				for (int i = 1; i <= row[0]; i++) {
+					if (row[i] == value) {
+						return true;
+					}
+				}
+				return false;
+			}
+			int mask = row.length - 2;
+			for (int slot = hash(value) & mask; row[slot + 1] != EMPTY; slot = (slot + 1) & mask) {
+				if (row[slot + 1] == value) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @param key key ID
+		 * @param value pair to add - must not be negative
+		 * @return true if the pair was added, false if it was already present
+		 */
+		boolean add(int key, long value) {
+			ensureCapacity(key);
+			if (contains(key, value)) {
+				return false;
+			}
+			long[] row = rows[key];
+			if (Objects.isNull(row)) {
+				if (singles[key] == EMPTY) {
+					singles[key] = value;
+					return true;
+				}
+				row = new long[] {1, singles[key], EMPTY};
+				singles[key] = EMPTY;
+				rows[key] = row;
+			}
+			if ((row[0] & HASHED) == 0) {
+				int count = (int)row[0];
+				if (count < MAX_LIST_SIZE) {
+					if (count + 1 == row.length) {
+						row = Arrays.copyOf(row, Math.min(row.length * 2, MAX_LIST_SIZE + 1));
+						rows[key] = row;
+					}
+					row[count + 1] = value;
+					row[0] = count + 1;
+					return true;
+				}
+				row = rehash(row, MAX_LIST_SIZE * 4);
+			} else if (((row[0] & ~HASHED) + 1) * 4 > (row.length - 1) * 3) {
+				row = rehash(row, (row.length - 1) * 2);
+			}
+			insert(row, value);
+			row[0]++;
+			rows[key] = row;
+			return true;
+		}
+
+		/**
+		 * @param row list or hashed row
+		 * @param capacity number of slots in the new hash table - a power of 2
+		 * @return a hashed row containing the pairs in the row
+		 */
+		private static long[] rehash(long[] row, int capacity) {
+			long[] retval = new long[capacity + 1];
+			Arrays.fill(retval, EMPTY);
+			long count = row[0] & ~HASHED;
+			retval[0] = count | HASHED;
+			int end = (row[0] & HASHED) == 0 ? (int)count + 1 : row.length;
+			for (int i = 1; i < end; i++) {
+				if (row[i] != EMPTY) {
+					insert(retval, row[i]);
+				}
+			}
+			return retval;
+		}
+
+		private static void insert(long[] row, long value) {
+			int mask = row.length - 2;
+			int slot = hash(value) & mask;
+			while (row[slot + 1] != EMPTY) {
+				slot = (slot + 1) & mask;
+			}
+			row[slot + 1] = value;
+		}
+
+		/**
+		 * @param key key ID
+		 * @param value pair to remove
+		 * @return true if the pair was removed
+		 */
+		boolean remove(int key, long value) {
+			if (key >= singles.length) {
+				return false;
+			}
+			if (singles[key] != EMPTY) {
+				if (singles[key] == value) {
+					singles[key] = EMPTY;
+					return true;
+				}
+				return false;
+			}
+			long[] row = rows[key];
+			if (Objects.isNull(row)) {
+				return false;
+			}
+			if ((row[0] & HASHED) == 0) {
+				int count = (int)row[0];
+				for (int i = 1; i <= count; i++) {
+					if (row[i] == value) {
+						row[i] = row[count];
+						row[count] = EMPTY;
+						row[0] = count - 1;
+						if (count - 1 == 0) {
+							rows[key] = null;
+						}
+						return true;
+					}
+				}
+				return false;
+			}
+			int mask = row.length - 2;
+			int slot = hash(value) & mask;
+			while (row[slot + 1] != value) {
+				if (row[slot + 1] == EMPTY) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			// shift back any following pairs which would no longer be reachable
+			int gap = slot;
+			int next = (gap + 1) & mask;
+			while (row[next + 1] != EMPTY) {
+				int home = hash(row[next + 1]) & mask;
+				if (((next - home) & mask) >= ((next - gap) & mask)) {
+					row[gap + 1] = row[next + 1];
+					gap = next;
+				}
+				next = (next + 1) & mask;
+			}
+			row[gap + 1] = EMPTY;
+			row[0]--;
+			return true;
+		}
+
+		/**
+		 * @param key key ID
+		 * @param from first slot to check
+		 * @return the first occupied slot for the key at or after from or -1 if there are no more occupied slots
+		 */
+		int nextSlot(int key, int from) {
+			if (key >= singles.length) {
+				return -1;
+			}
+			if (singles[key] != EMPTY) {
+				return from == 0 ? 0 : -1;
+			}
+			long[] row = rows[key];
+			if (Objects.isNull(row)) {
+				return -1;
+			}
+			if ((row[0] & HASHED) == 0) {
+				return from < row[0] ? from : -1;
+			}
+			for (int slot = from; slot < row.length - 1; slot++) {
+				if (row[slot + 1] != EMPTY) {
+					return slot;
+				}
+			}
+			return -1;
+		}
+
+		long get(int key, int slot) {
+			return singles[key] != EMPTY ? singles[key] : rows[key][slot + 1];
+		}
+
+		/**
+		 * @param key key ID
+		 * @param from first slot to copy
+		 * @return the pairs in the occupied slots for the key at or after from
+		 */
+		long[] copyFrom(int key, int from) {
+			long[] retval = new long[size(key)];
+			int count = 0;
+			for (int slot = nextSlot(key, from); slot >= 0; slot = nextSlot(key, slot + 1)) {
+				retval[count++] = get(key, slot);
+			}
+			return Arrays.copyOf(retval, count);
+		}
+
+		private static int hash(long value) {
+			long h = value * 0x9E3779B97F4A7C15L;
+			return (int)(h ^ (h >>> 32));
+		}
+	}
+}
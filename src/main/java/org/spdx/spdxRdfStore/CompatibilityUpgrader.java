@@ -18,6 +18,8 @@
 package org.spdx.spdxRdfStore;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,16 +27,13 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.Map.Entry;
 
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.NodeIterator;
 import org.apache.jena.rdf.model.Property;
 import org.apache.jena.rdf.model.RDFNode;
 import org.apache.jena.rdf.model.ResIterator;
 import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
 import org.slf4j.Logger;
@@ -54,6 +53,19 @@ public class CompatibilityUpgrader {
 	static final Map<String, Map<String, String>> TYPE_PROPERTY_MAP;
 	static final Logger logger = LoggerFactory.getLogger(CompatibilityUpgrader.class);
 	
+	static final Property HAS_FILE_PROPERTY = ResourceFactory.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + "hasFile");
+	static final Property ARTIFACT_OF_PROPERTY = ResourceFactory.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + "artifactOf");
+	static final Property REVIEWER_PROPERTY = ResourceFactory.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + "reviewer");
+	static final Property REVIEWED_BY_PROPERTY = ResourceFactory.createProperty(
+			SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_SPDX_REVIEWED_BY.getName());
+	static final Property EXTERNAL_DOCUMENT_ID_PROPERTY = ResourceFactory.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + "externalDocumentId");
+	
+	/**
+	 * Properties which are no longer used in the current version of the spec or which require conversion
+	 */
+	static final List<Property> LEGACY_PROPERTIES = List.of(HAS_FILE_PROPERTY, ARTIFACT_OF_PROPERTY, REVIEWER_PROPERTY,
+			REVIEWED_BY_PROPERTY, EXTERNAL_DOCUMENT_ID_PROPERTY);
+	
 	static {
         TYPE_PROPERTY_MAP = Map.of(SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, Map.of(
 				// TODO: In 3.0, uncomment those below to change the spec versions
@@ -64,138 +76,189 @@ public class CompatibilityUpgrader {
 
 	/**
 	 * Upgrade the properties in the model to the current version of the spec
+	 * <p>
+	 * The legacy properties are found with a single lookup per property.  If no renamed property needs to be copied
+	 * and none of the legacy properties are present, the model is left unchanged without any further scans.
 	 * @param model RDF model
 	 * @param documentNamespace Namespace or URI for the SPDX document
 	 */
 	public static void upgrade(Model model, String documentNamespace) throws InvalidSPDXAnalysisException {
 		model.enterCriticalSection(false);
 		try {
-			// update type property names
-			for (Entry<String, Map<String, String>> entry:TYPE_PROPERTY_MAP.entrySet()) {
-				String query = "SELECT ?s  WHERE { ?s  <" + 
-						RdfSpdxModelManager.RDF_TYPE + "> <" +
-						SpdxConstantsCompatV2.SPDX_NAMESPACE + entry.getKey() + "> }";
-				try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
-				    ResultSet result = qe.execSelect();
-	                while (result.hasNext()) {
-	                    Resource subject = result.next().get("s").asResource();
-	                    for (Entry<String, String> propEntry:entry.getValue().entrySet()) {
-	                        Property incompatibleProperty = model.createProperty(propEntry.getKey());
-	                        if (subject.hasProperty(incompatibleProperty)) {
-	                            Property compatibleProperty = model.createProperty(propEntry.getValue());
-	                            NodeIterator iter = model.listObjectsOfProperty(subject, incompatibleProperty);
-	                            while (iter.hasNext()) {
-	                                RDFNode object = iter.next();
-	                                subject.addProperty(compatibleProperty, object);
-	                            }
-								// We'll leave the old property for compatibility
-								//  subject.removeAll(incompatibleProperty);
-	                        }
-	                    }
-	                }
-				}
+			List<Statement> typePropertyUpgrades = findTypePropertyUpgrades(model);
+			Map<Property, List<Statement>> legacyStatements = findLegacyStatements(model);
+			if (typePropertyUpgrades.isEmpty() && legacyStatements.isEmpty()) {
+				logger.debug("No compatibility upgrade needed for {}", documentNamespace);
+				return;
+			}
+			logger.debug("Upgrading {} for compatibility", documentNamespace);
+			// We'll leave the old properties for compatibility
+			model.add(typePropertyUpgrades);
+			if (legacyStatements.containsKey(ARTIFACT_OF_PROPERTY)) {
+				upgradeArtifactOf(model, documentNamespace, legacyStatements.get(ARTIFACT_OF_PROPERTY));
+			}
+			if (legacyStatements.containsKey(REVIEWER_PROPERTY) || legacyStatements.containsKey(REVIEWED_BY_PROPERTY)) {
+				upgradeReviewers(model, documentNamespace, 
+						legacyStatements.getOrDefault(REVIEWER_PROPERTY, Collections.emptyList()));
+			}
+			if (legacyStatements.containsKey(EXTERNAL_DOCUMENT_ID_PROPERTY)) {
+				upgradeExternalDocumentRefs(model, documentNamespace, legacyStatements.get(EXTERNAL_DOCUMENT_ID_PROPERTY));
+			}
+			if (legacyStatements.containsKey(HAS_FILE_PROPERTY)) {
+				upgradeHasFiles(model, legacyStatements.get(HAS_FILE_PROPERTY));
 			}
-			upgradeArtifactOf(model, documentNamespace);
-			upgradeReviewers(model, documentNamespace);
-			upgradeExternalDocumentRefs(model, documentNamespace);
-			upgradeHasFiles(model);
 		} finally {
 			model.leaveCriticalSection();
 		}
 	}
+	
+	/**
+	 * @param model RDF model
+	 * @return statements to add for any properties which have been renamed for the type of the subject
+	 */
+	private static List<Statement> findTypePropertyUpgrades(Model model) {
+		List<Statement> retval = new ArrayList<>();
+		Property typeProperty = model.createProperty(RdfSpdxModelManager.RDF_TYPE);
+		for (Entry<String, Map<String, String>> entry:TYPE_PROPERTY_MAP.entrySet()) {
+			ResIterator subjects = model.listSubjectsWithProperty(typeProperty, 
+					model.createResource(SpdxConstantsCompatV2.SPDX_NAMESPACE + entry.getKey()));
+			while (subjects.hasNext()) {
+				Resource subject = subjects.next();
+				for (Entry<String, String> propEntry:entry.getValue().entrySet()) {
+					Property incompatibleProperty = model.createProperty(propEntry.getKey());
+					Property compatibleProperty = model.createProperty(propEntry.getValue());
+					NodeIterator iter = model.listObjectsOfProperty(subject, incompatibleProperty);
+					while (iter.hasNext()) {
+						RDFNode object = iter.next();
+						if (!subject.hasProperty(compatibleProperty, object)) {
+							retval.add(model.createStatement(subject, compatibleProperty, object));
+						}
+					}
+				}
+			}
+		}
+		return retval;
+	}
+	
+	/**
+	 * @param model RDF model
+	 * @return statements using each of the legacy properties which are present in the model
+	 */
+	private static Map<Property, List<Statement>> findLegacyStatements(Model model) {
+		Map<Property, List<Statement>> retval = new HashMap<>();
+		for (Property legacyProperty:LEGACY_PROPERTIES) {
+			List<Statement> statements = model.listStatements(null, legacyProperty, (RDFNode)null).toList();
+			if (!statements.isEmpty()) {
+				retval.put(legacyProperty, statements);
+			}
+		}
+		return retval;
+	}
 
 	/**
 	 * Changes all hasFile properties to CONTAINS relationships
+	 * <p>
+	 * The existing CONTAINS targets are collected once per package so the upgrade is linear in the number of hasFile statements.
 	 * @param model RDF model
+	 * @param hasFileStatements statements using the hasFile property
 	 */
-	private static void upgradeHasFiles(Model model) {
-		List<Statement> statementsToRemove = new ArrayList<>();
-		Property hasFileProperty = model.createProperty("http://spdx.org/rdf/terms#hasFile");
+	private static void upgradeHasFiles(Model model, List<Statement> hasFileStatements) {
 		Property relationshipProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP.getName());
-		String query = "SELECT ?s ?o  WHERE { ?s  <http://spdx.org/rdf/terms#hasFile> ?o }";
-		try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
-		    ResultSet result = qe.execSelect();
-	        while (result.hasNext()) {
-	            QuerySolution qs = result.next();
-	            Resource pkg = qs.get("s").asResource();
-	            Resource file = qs.get("o").asResource();
-	            statementsToRemove.add(model.createStatement(pkg, hasFileProperty, file));
-	            // check for existing contains relationships - avoids duplication
-	            List<Statement> foundContainsRelationships = new ArrayList<>();
-	            pkg.listProperties(relationshipProperty).forEach((stmt) -> {
-	            	Resource existingRelationship = stmt.getObject().asResource();
-	            	Resource relatedElement = existingRelationship.getPropertyResourceValue(model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATED_SPDX_ELEMENT.getName()));
-	            	Resource relationshipType = existingRelationship.getPropertyResourceValue(model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP_TYPE.getName()));
-	            	if (relatedElement.isURIResource() && file.isURIResource() && relationshipType.isURIResource() &&
-	            			relatedElement.getURI().equals(file.getURI()) &&
-	            			relationshipType.getURI().equals(RelationshipType.CONTAINS.getIndividualURI())) {
-	            		foundContainsRelationships.add(stmt);
-            		}
-	            });
-	            if (foundContainsRelationships.isEmpty()) {
-	            	Resource relationship = createRelationship(model, file, RelationshipType.CONTAINS);
-	            	pkg.addProperty(relationshipProperty, relationship);
-	            }
-	        }
-	        model.remove(statementsToRemove);
+		Map<Resource, Set<String>> containsTargetsByPackage = new HashMap<>();
+		for (Statement hasFileStatement:hasFileStatements) {
+			Resource pkg = hasFileStatement.getSubject();
+			Resource file = hasFileStatement.getObject().asResource();
+			// check for existing contains relationships - avoids duplication
+			Set<String> containsTargets = containsTargetsByPackage.computeIfAbsent(pkg, 
+					(p) -> getContainsTargets(model, p, relationshipProperty));
+			if (!file.isURIResource() || containsTargets.add(file.getURI())) {
+				Resource relationship = createRelationship(model, file, RelationshipType.CONTAINS);
+				pkg.addProperty(relationshipProperty, relationship);
+			}
+		}
+		model.remove(hasFileStatements);
+	}
+	
+	/**
+	 * @param model RDF model
+	 * @param pkg package resource
+	 * @param relationshipProperty relationship property
+	 * @return the URIs of all elements the package has a CONTAINS relationship to
+	 */
+	private static Set<String> getContainsTargets(Model model, Resource pkg, Property relationshipProperty) {
+		Property relatedElementProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATED_SPDX_ELEMENT.getName());
+		Property relationshipTypeProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP_TYPE.getName());
+		Set<String> retval = new HashSet<>();
+		StmtIterator iter = pkg.listProperties(relationshipProperty);
+		while (iter.hasNext()) {
+			RDFNode existingRelationship = iter.next().getObject();
+			if (!existingRelationship.isResource()) {
+				continue;
+			}
+			Resource relatedElement = existingRelationship.asResource().getPropertyResourceValue(relatedElementProperty);
+			Resource relationshipType = existingRelationship.asResource().getPropertyResourceValue(relationshipTypeProperty);
+			if (Objects.nonNull(relatedElement) && Objects.nonNull(relationshipType) &&
+					relatedElement.isURIResource() && relationshipType.isURIResource() &&
+					relationshipType.getURI().equals(RelationshipType.CONTAINS.getIndividualURI())) {
+				retval.add(relatedElement.getURI());
+			}
 		}
+		return retval;
 	}
 
 	/**
 	 * Make sure all external document Ref's have a URI with proper ID rather than using the externalDocumentId property
 	 * @param model RDF model
 	 * @param documentNamespace Namespace or URI for the SPDX document
+	 * @param externalDocumentIdStatements statements using the externalDocumentId property
 	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
 	 */
-	private static void upgradeExternalDocumentRefs(Model model, String documentNamespace) throws InvalidSPDXAnalysisException {
-		String query = "SELECT ?s ?o  WHERE { ?s  <http://spdx.org/rdf/terms#externalDocumentId> ?o }";
-		try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
-		    ResultSet result = qe.execSelect();
-	        List<Statement> statementsToRemove = new ArrayList<>();
-	        List<Statement> statementsToAdd = new ArrayList<>();
-	        while (result.hasNext()) {
-	            QuerySolution qs = result.next();
-	            try {
-	                Resource currentExternalRef = qs.get("s").asResource();
-	                String id = qs.get("o").asLiteral().getString();
-	                if (!SpdxVerificationHelper.isValidExternalDocRef(id)) {
-	                    throw new InvalidSPDXAnalysisException("Invalid external document ref "+id);
-	                }
-	                String uri = documentNamespace + "#" + id;
-	                if (!currentExternalRef.isURIResource() || uri.equals(currentExternalRef.getURI())) {
-	                    // need to replace this external ref with one with a valid document ID
-	                    Resource newExternalRef = model.createResource(uri);
-	                    // get all the properties and copy them over
-	                    StmtIterator currentPropIter = currentExternalRef.listProperties();
-	                    while (currentPropIter.hasNext()) {
-	                        Statement stmt = currentPropIter.next();
-	                        statementsToAdd.add(model.createStatement(newExternalRef, stmt.getPredicate(), stmt.getObject()));
-	                        statementsToRemove.add(stmt);
-	                    }
-	                    // change all references from the old value to this one
-	                    StmtIterator currentExternalRefRefs = model.listStatements(null, null, currentExternalRef);
-	                    while (currentExternalRefRefs.hasNext()) {
-	                        Statement stmt = currentExternalRefRefs.next();
-	                        statementsToAdd.add(model.createStatement(stmt.getSubject(), stmt.getPredicate(), newExternalRef));
-	                        statementsToRemove.add(stmt);
-	                    }
-	                }
-	            } catch(Exception ex) {
-	                throw new InvalidSPDXAnalysisException("Error upgrading external document refs",ex);
-	            }
-	        }
-	        model.remove(statementsToRemove);
-	        model.add(statementsToAdd);
+	private static void upgradeExternalDocumentRefs(Model model, String documentNamespace, 
+			List<Statement> externalDocumentIdStatements) throws InvalidSPDXAnalysisException {
+		List<Statement> statementsToRemove = new ArrayList<>();
+		List<Statement> statementsToAdd = new ArrayList<>();
+		for (Statement externalDocumentIdStatement:externalDocumentIdStatements) {
+			try {
+				Resource currentExternalRef = externalDocumentIdStatement.getSubject();
+				String id = externalDocumentIdStatement.getObject().asLiteral().getString();
+				if (!SpdxVerificationHelper.isValidExternalDocRef(id)) {
+					throw new InvalidSPDXAnalysisException("Invalid external document ref "+id);
+				}
+				String uri = documentNamespace + "#" + id;
+				if (!currentExternalRef.isURIResource() || uri.equals(currentExternalRef.getURI())) {
+					// need to replace this external ref with one with a valid document ID
+					Resource newExternalRef = model.createResource(uri);
+					// get all the properties and copy them over
+					StmtIterator currentPropIter = currentExternalRef.listProperties();
+					while (currentPropIter.hasNext()) {
+						Statement stmt = currentPropIter.next();
+						statementsToAdd.add(model.createStatement(newExternalRef, stmt.getPredicate(), stmt.getObject()));
+						statementsToRemove.add(stmt);
+					}
+					// change all references from the old value to this one
+					StmtIterator currentExternalRefRefs = model.listStatements(null, null, currentExternalRef);
+					while (currentExternalRefRefs.hasNext()) {
+						Statement stmt = currentExternalRefRefs.next();
+						statementsToAdd.add(model.createStatement(stmt.getSubject(), stmt.getPredicate(), newExternalRef));
+						statementsToRemove.add(stmt);
+					}
+				}
+			} catch(Exception ex) {
+				throw new InvalidSPDXAnalysisException("Error upgrading external document refs",ex);
+			}
 		}
+		model.remove(statementsToRemove);
+		model.add(statementsToAdd);
 	}
 
 	/**
 	 * Upgrade the reviewers field to Annotations with a type reviewer
 	 * @param model RDF model
 	 * @param documentNamespace Namespace or URI for the SPDX document
+	 * @param reviewerStatements statements using the reviewer property
 	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
 	 */
-	private static void upgradeReviewers(Model model, String documentNamespace) throws InvalidSPDXAnalysisException {
+	private static void upgradeReviewers(Model model, String documentNamespace, List<Statement> reviewerStatements) throws InvalidSPDXAnalysisException {
 		Resource document = model.createResource(documentNamespace  + "#" + SpdxConstantsCompatV2.SPDX_DOCUMENT_ID);
 		Property annotationProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_ANNOTATION.getName());
 		Resource reviewerType = model.createResource(AnnotationType.REVIEW.getIndividualURI());
@@ -207,94 +270,83 @@ public class CompatibilityUpgrader {
 		Property annotationTypeProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_ANNOTATION_TYPE.getName());
 		List<Statement> statementsToRemove = new ArrayList<>();
 		Set<Integer> addedAnnotations = new HashSet<>(); // to prevent duplicates
-		String query = "SELECT ?s ?o  WHERE { ?s  <http://spdx.org/rdf/terms#reviewer> ?o }";
-		try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
-		    ResultSet result = qe.execSelect();
-	        while (result.hasNext()) {
-	            QuerySolution qs = result.next();
-	            Resource review = qs.get("s").asResource();
-	            String reviewer = qs.get("o").asLiteral().toString();
-	            Resource annotation = model.createResource();
-	            annotation.addProperty(typeProperty, annotationClass);
-	            String reviewDate;
-	            try {
-	                reviewDate = review.getRequiredProperty(model.createProperty(
-	                        SpdxConstantsCompatV2.SPDX_NAMESPACE + "reviewDate"))
-	                        .getString();
-	                if (Objects.isNull(reviewDate)) {
-	                    throw new InvalidSPDXAnalysisException("Missing or invalid review date for review");
-	                }
-	            } catch (Exception ex) {
-	                throw new InvalidSPDXAnalysisException("Missing or invalid review date for review");
-	            }
-	            String comment;
-	            try {
-	                comment = review.getRequiredProperty(commentProperty).getString();
-	                if (Objects.isNull(comment)) {
-	                    throw new InvalidSPDXAnalysisException("Missing or invalid review comment for review");
-	                }
-	            } catch (Exception ex) {
-	                throw new InvalidSPDXAnalysisException("Missing or invalid review comment for review");
-	            }
-	            StmtIterator iter = review.listProperties();
-	            while (iter.hasNext()) {
-	                statementsToRemove.add(iter.next());
-	            }
-	            int hashOfAnnotation = reviewer.hashCode() ^ reviewDate.hashCode() ^ comment.hashCode();
-	            if (addedAnnotations.contains(hashOfAnnotation)) {
-	                continue;
-	            }
-	            addedAnnotations.add(hashOfAnnotation);
-	            annotation.addProperty(annotatorProperty, reviewer);
-	            annotation.addProperty(annotationDateProperty, reviewDate);
-	            annotation.addProperty(commentProperty, comment);
-	            annotation.addProperty(annotationTypeProperty, reviewerType);
-	            document.addProperty(annotationProperty, annotation);
-	        }
-	        StmtIterator iter = document.listProperties(model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_SPDX_REVIEWED_BY.getName()));
-	        while (iter.hasNext()) {
-	            statementsToRemove.add(iter.next());
-	        }
-	        model.remove(statementsToRemove);
+		for (Statement reviewerStatement:reviewerStatements) {
+			Resource review = reviewerStatement.getSubject();
+			String reviewer = reviewerStatement.getObject().asLiteral().toString();
+			Resource annotation = model.createResource();
+			annotation.addProperty(typeProperty, annotationClass);
+			String reviewDate;
+			try {
+				reviewDate = review.getRequiredProperty(model.createProperty(
+						SpdxConstantsCompatV2.SPDX_NAMESPACE + "reviewDate"))
+						.getString();
+				if (Objects.isNull(reviewDate)) {
+					throw new InvalidSPDXAnalysisException("Missing or invalid review date for review");
+				}
+			} catch (Exception ex) {
+				throw new InvalidSPDXAnalysisException("Missing or invalid review date for review");
+			}
+			String comment;
+			try {
+				comment = review.getRequiredProperty(commentProperty).getString();
+				if (Objects.isNull(comment)) {
+					throw new InvalidSPDXAnalysisException("Missing or invalid review comment for review");
+				}
+			} catch (Exception ex) {
+				throw new InvalidSPDXAnalysisException("Missing or invalid review comment for review");
+			}
+			StmtIterator iter = review.listProperties();
+			while (iter.hasNext()) {
+				statementsToRemove.add(iter.next());
+			}
+			int hashOfAnnotation = reviewer.hashCode() ^ reviewDate.hashCode() ^ comment.hashCode();
+			if (addedAnnotations.contains(hashOfAnnotation)) {
+				continue;
+			}
+			addedAnnotations.add(hashOfAnnotation);
+			annotation.addProperty(annotatorProperty, reviewer);
+			annotation.addProperty(annotationDateProperty, reviewDate);
+			annotation.addProperty(commentProperty, comment);
+			annotation.addProperty(annotationTypeProperty, reviewerType);
+			document.addProperty(annotationProperty, annotation);
+		}
+		StmtIterator iter = document.listProperties(REVIEWED_BY_PROPERTY);
+		while (iter.hasNext()) {
+			statementsToRemove.add(iter.next());
 		}
+		model.remove(statementsToRemove);
 	}
 
 	/**
 	 * Convert all artifactOf properties to relationships and remove the old properties and DOAP classes
 	 * @param model RDF model
 	 * @param documentNamespace the document Namespace
+	 * @param artifactOfStatements statements using the artifactOf property
 	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
 	 */
-	private static void upgradeArtifactOf(Model model, String documentNamespace) throws InvalidSPDXAnalysisException {
+	private static void upgradeArtifactOf(Model model, String documentNamespace, List<Statement> artifactOfStatements) throws InvalidSPDXAnalysisException {
 		String docNamespace = documentNamespace + "#";
 		Set<String> addedDoapProjects = new HashSet<>();	// prevent duplicates
-		List<Statement> statementsToRemove = new ArrayList<>();
-		Property artifactOfProperty = model.createProperty("http://spdx.org/rdf/terms#artifactOf");
+		List<Statement> statementsToRemove = new ArrayList<>(artifactOfStatements);
 		Property relationshipProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP.getName());
-		String query = "SELECT ?s ?o  WHERE { ?s  <http://spdx.org/rdf/terms#artifactOf> ?o }";
-		try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
-		    ResultSet result = qe.execSelect();
-	        String idPrefix = "SPDXRef-fromDoap-";
-	        int nextSpdxIdNum = getNexId(model, docNamespace, idPrefix, 0);
-	        while (result.hasNext()) {
-	            QuerySolution qs = result.next();
-	            Resource subject = qs.get("s").asResource();
-	            Resource doapProject = qs.get("o").asResource();
-	            statementsToRemove.add(model.createStatement(subject, artifactOfProperty, doapProject));
-	            StmtIterator iter = doapProject.listProperties();
-	            while (iter.hasNext()) {
-	                statementsToRemove.add(iter.next());
-	            }
-	            Resource pkg = convertDoapProjectToSpdxPackage(model, doapProject, docNamespace + idPrefix + nextSpdxIdNum);
-	            if (pkg.isURIResource() && !addedDoapProjects.contains(pkg.getURI())) {
-	                addedDoapProjects.add(pkg.getURI());
-	                nextSpdxIdNum = getNexId(model, docNamespace, idPrefix, nextSpdxIdNum);
-	                Resource relationship = createRelationship(model, pkg, RelationshipType.GENERATED_FROM);
-	                subject.addProperty(relationshipProperty, relationship);
-	            }
-	        }
-	        model.remove(statementsToRemove);
+		String idPrefix = "SPDXRef-fromDoap-";
+		int nextSpdxIdNum = getNexId(model, docNamespace, idPrefix, 0);
+		for (Statement artifactOfStatement:artifactOfStatements) {
+			Resource subject = artifactOfStatement.getSubject();
+			Resource doapProject = artifactOfStatement.getObject().asResource();
+			StmtIterator iter = doapProject.listProperties();
+			while (iter.hasNext()) {
+				statementsToRemove.add(iter.next());
+			}
+			Resource pkg = convertDoapProjectToSpdxPackage(model, doapProject, docNamespace + idPrefix + nextSpdxIdNum);
+			if (pkg.isURIResource() && !addedDoapProjects.contains(pkg.getURI())) {
+				addedDoapProjects.add(pkg.getURI());
+				nextSpdxIdNum = getNexId(model, docNamespace, idPrefix, nextSpdxIdNum);
+				Resource relationship = createRelationship(model, pkg, RelationshipType.GENERATED_FROM);
+				subject.addProperty(relationshipProperty, relationship);
+			}
 		}
+		model.remove(statementsToRemove);
 	}
 
 	/**
@@ -0,0 +1,191 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.BufferedInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorOutputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.luben.zstd.Zstd;
+
+/**
+ * Compression codecs which can be applied to any <code>OutputFormat</code>
+ * <p>
+ * Compressed input is detected by the magic bytes at the start of the stream.
+ * Zstandard compression requires the optional <code>com.github.luben:zstd-jni</code> dependency.
+ *
+ * @author Gary O'Neall
+ */
+public enum Compression {
+	NONE,
+	GZIP,
+	BZIP2,
+	ZSTD;
+
+	static final Logger logger = LoggerFactory.getLogger(Compression.class.getName());
+
+	/**
+	 * Level used to select the default compression level for the codec
+	 */
+	public static final int DEFAULT_LEVEL = -1;
+
+	private static final int DEFAULT_ZSTD_LEVEL = 3;
+	private static final int MAX_MAGIC_LENGTH = 4;
+
+	/**
+	 * @param stream stream to write the compressed output to - the stream is flushed but not closed when the returned stream is closed
+	 * @param level compression level for the codec or <code>DEFAULT_LEVEL</code>.  For GZIP the level is 0 to 9, for BZIP2 the block size
+	 * 1 to 9 and for ZSTD the level is in the range supported by the zstd-jni library, up to 22
+	 * @return output stream which compresses to the stream - must be closed to complete the compression
+	 * @throws IOException on errors writing to the stream
+	 * @throws SpdxRdfException if the codec is not available or the level is not valid for the codec
+	 */
+	OutputStream compress(OutputStream stream, int level) throws IOException, SpdxRdfException {
+		checkLevel(level);
+		OutputStream nonClosingStream = new NonClosingOutputStream(stream);
+		switch (this) {
+			case NONE: return nonClosingStream;
+			case GZIP: return new GZIPOutputStream(nonClosingStream) {
+				{
+					def.setLevel(level == DEFAULT_LEVEL ? Deflater.DEFAULT_COMPRESSION : level);
+				}
+			};
+			case BZIP2: return new BZip2CompressorOutputStream(nonClosingStream,
+					level == DEFAULT_LEVEL ? BZip2CompressorOutputStream.MAX_BLOCKSIZE : level);
+			case ZSTD:
+				checkZstdAvailable();
+				return new ZstdCompressorOutputStream(nonClosingStream, level == DEFAULT_LEVEL ? DEFAULT_ZSTD_LEVEL : level);
+			default: throw new SpdxRdfException("Unsupported compression "+this);
+		}
+	}
+
+	/**
+	 * @param level compression level for the codec or <code>DEFAULT_LEVEL</code>
+	 * @throws SpdxRdfException if the level is not valid for the codec or the codec is not available
+	 */
+	void checkLevel(int level) throws SpdxRdfException {
+		if (level == DEFAULT_LEVEL) {
+			return;
+		}
+		int minLevel;
+		int maxLevel;
+		switch (this) {
+			case NONE: return;
+			case GZIP:
+				minLevel = Deflater.NO_COMPRESSION;
+				maxLevel = Deflater.BEST_COMPRESSION;
+				break;
+			case BZIP2:
+				minLevel = BZip2CompressorOutputStream.MIN_BLOCKSIZE;
+				maxLevel = BZip2CompressorOutputStream.MAX_BLOCKSIZE;
+				break;
+			case ZSTD:
+				checkZstdAvailable();
+				minLevel = Zstd.minCompressionLevel();
+				maxLevel = Zstd.maxCompressionLevel();
+				break;
+			default: throw new SpdxRdfException("Unsupported compression "+this);
+		}
+		if (level < minLevel || level > maxLevel) {
+			logger.error("Invalid {} compression level {} - must be {} to {}", this, level, minLevel, maxLevel);
+			throw new SpdxRdfException("Invalid "+this+" compression level "+level+" - must be "+minLevel+" to "+maxLevel);
+		}
+	}
+
+	/**
+	 * @param stream input stream which may be compressed
+	 * @return a stream of the decompressed input if the stream starts with the magic bytes of a supported codec, otherwise a stream
+	 * of the original input
+	 * @throws IOException on errors reading the stream
+	 * @throws SpdxRdfException if the stream is compressed with a codec which is not available
+	 */
+	static InputStream decompress(InputStream stream) throws IOException, SpdxRdfException {
+		InputStream markableStream = stream.markSupported() ? stream : new BufferedInputStream(stream);
+		byte[] magic = new byte[MAX_MAGIC_LENGTH];
+		markableStream.mark(MAX_MAGIC_LENGTH);
+		int length = markableStream.readNBytes(magic, 0, MAX_MAGIC_LENGTH);
+		markableStream.reset();
+		switch (detect(magic, length)) {
+			case GZIP: return new GZIPInputStream(markableStream);
+			case BZIP2: return new BZip2CompressorInputStream(markableStream, true);
+			case ZSTD:
+				checkZstdAvailable();
+				return new ZstdCompressorInputStream(markableStream);
+			default: return markableStream;
+		}
+	}
+
+	/**
+	 * @param magic bytes from the start of the stream
+	 * @param length number of bytes read into magic
+	 * @return the compression codec based on the magic bytes
+	 */
+	static Compression detect(byte[] magic, int length) {
+		if (length >= 3 && (magic[0] & 0xFF) == 0x1F && (magic[1] & 0xFF) == 0x8B && magic[2] == Deflater.DEFLATED) {
+			return GZIP;
+		} else if (length >= 4 && magic[0] == 'B' && magic[1] == 'Z' && magic[2] == 'h' && magic[3] >= '1' && magic[3] <= '9') {
+			return BZIP2;
+		} else if (length >= 4 && (magic[0] & 0xFF) == 0x28 && (magic[1] & 0xFF) == 0xB5 &&
+				(magic[2] & 0xFF) == 0x2F && (magic[3] & 0xFF) == 0xFD) {
+			return ZSTD;
+		} else {
+			return NONE;
+		}
+	}
+
+	private static void checkZstdAvailable() throws SpdxRdfException {
+		if (!ZstdUtils.isZstdCompressionAvailable()) {
+			logger.error("Zstandard compression requires the zstd-jni library");
+			throw new SpdxRdfException("Zstandard compression requires the zstd-jni library");
+		}
+	}
+
+	/**
+	 * Output stream which flushes rather than closes the underlying stream so that the compressed
+	 * output can be completed without closing the stream passed to <code>serialize</code>
+	 */
+	private static class NonClosingOutputStream extends FilterOutputStream {
+
+		NonClosingOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+	}
+}
@@ -0,0 +1,255 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.util.iterator.WrappedIterator;
+import org.spdx.storage.IModelStore.IdType;
+
+/**
+ * ID index for a graph in a transactional dataset stored in the metadata graph of the dataset
+ * <p>
+ * Each ID is stored as a quad from a node for the lower case ID to the case-sensitive ID and each counter as a quad
+ * from the graph name to the next ID number, so the index is read from the dataset indexes rather than held in memory
+ * and is available as soon as the dataset is reopened.  Changes are made in the enclosing transaction, promoting a
+ * read transaction if needed, so they are discarded if the transaction is aborted.
+ *
+ * @author Gary O'Neall
+ */
+class DatasetIdIndex extends IdIndex {
+
+	static final Node CASE_SENSITIVE_ID = NodeFactory.createURI("urn:spdx:rdfstore:caseSensitiveId");
+	static final Node NEXT_SPDX_ID = NodeFactory.createURI("urn:spdx:rdfstore:nextSpdxId");
+	static final Node NEXT_DOCUMENT_ID = NodeFactory.createURI("urn:spdx:rdfstore:nextDocumentId");
+	static final Node NEXT_LICENSE_ID = NodeFactory.createURI("urn:spdx:rdfstore:nextLicenseId");
+	/**
+	 * Present if the index holds all IDs in the graph
+	 */
+	static final Node INDEXED = NodeFactory.createURI("urn:spdx:rdfstore:idsIndexed");
+
+	private final DatasetGraph datasetGraph;
+
+	private final Node graphName;
+
+	/**
+	 * Prefix for the nodes of the IDs in the graph
+	 */
+	private final String idNodePrefix;
+
+	/**
+	 * @param datasetGraph transactional dataset containing the graph
+	 * @param graphName name of the graph whose IDs are indexed
+	 */
+	DatasetIdIndex(DatasetGraph datasetGraph, Node graphName) {
+		Objects.requireNonNull(datasetGraph, "Missing required dataset");
+		Objects.requireNonNull(graphName, "Missing required graph name");
+		this.datasetGraph = datasetGraph;
+		this.graphName = graphName;
+		this.idNodePrefix = graphName.getURI() + "#";
+	}
+
+	/**
+	 * @param lowerCaseId lower case ID
+	 * @return the node for the ID in the metadata graph
+	 */
+	private Node idNode(String lowerCaseId) {
+		return NodeFactory.createURI(idNodePrefix + URLEncoder.encode(lowerCaseId, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @return the property for the counter of the ID type
+	 */
+	private static Node counterProperty(IdType idType) {
+		switch (idType) {
+			case LicenseRef: return NEXT_LICENSE_ID;
+			case DocumentRef: return NEXT_DOCUMENT_ID;
+			case SpdxId: return NEXT_SPDX_ID;
+			default: throw new IllegalArgumentException("No generated IDs for ID type " + idType);
+		}
+	}
+
+	/**
+	 * @param action action to run in the current transaction or, if there is none, a read transaction
+	 * @return the result of the action
+	 */
+	private <T> T read(Supplier<T> action) {
+		return datasetGraph.isInTransaction() ? action.get() : Txn.calculateRead(datasetGraph, action);
+	}
+
+	/**
+	 * @param action action to run in the current transaction, promoting a read transaction, or in a new write transaction
+	 * @return the result of the action
+	 */
+	private <T> T write(Supplier<T> action) {
+		if (!datasetGraph.isInTransaction()) {
+			return Txn.calculateWrite(datasetGraph, action);
+		}
+		if (ReadWrite.READ.equals(datasetGraph.transactionMode()) && !datasetGraph.promote()) {
+			throw new JenaException("Unable to promote a read transaction to a write transaction");
+		}
+		return action.get();
+	}
+
+	/**
+	 * @param subject subject in the metadata graph
+	 * @param property property in the metadata graph
+	 * @return the object of the first matching quad or null if there is none
+	 */
+	private @Nullable Node getObject(Node subject, Node property) {
+		Iterator<Quad> iter = datasetGraph.find(RdfStore.METADATA_GRAPH, subject, property, Node.ANY);
+		return iter.hasNext() ? iter.next().getObject() : null;
+	}
+
+	/**
+	 * @param subject subject in the metadata graph
+	 * @param property property in the metadata graph
+	 * @param value new value replacing any existing values
+	 */
+	private void setObject(Node subject, Node property, Node value) {
+		datasetGraph.deleteAny(RdfStore.METADATA_GRAPH, subject, property, Node.ANY);
+		datasetGraph.add(RdfStore.METADATA_GRAPH, subject, property, value);
+	}
+
+	/**
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @return the next ID number - must be called in a transaction
+	 */
+	private int getCounter(IdType idType) {
+		Node value = getObject(graphName, counterProperty(idType));
+		return Objects.isNull(value) ? 1 : Integer.parseInt(value.getLiteralLexicalForm());
+	}
+
+	/**
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @param next the next ID number - must be called in a write transaction
+	 */
+	private void setCounter(IdType idType, int next) {
+		setObject(graphName, counterProperty(idType), NodeFactory.createLiteralDT(Integer.toString(next), XSDDatatype.XSDint));
+	}
+
+	@Override
+	protected @Nullable String putCaseSensitiveId(String lowerCaseId, String id) {
+		Node idNode = idNode(lowerCaseId);
+		Node previous = read(() -> getObject(idNode, CASE_SENSITIVE_ID));
+		if (Objects.nonNull(previous) && previous.getLiteralLexicalForm().equals(id)) {
+			return id;
+		}
+		write(() -> {
+			setObject(idNode, CASE_SENSITIVE_ID, NodeFactory.createLiteralString(id));
+			return null;
+		});
+		return Objects.isNull(previous) ? null : previous.getLiteralLexicalForm();
+	}
+
+	@Override
+	protected void removeCaseSensitiveId(String lowerCaseId, String id) {
+		Node idNode = idNode(lowerCaseId);
+		Node idLiteral = NodeFactory.createLiteralString(id);
+		if (read(() -> datasetGraph.contains(RdfStore.METADATA_GRAPH, idNode, CASE_SENSITIVE_ID, idLiteral))) {
+			write(() -> {
+				datasetGraph.delete(RdfStore.METADATA_GRAPH, idNode, CASE_SENSITIVE_ID, idLiteral);
+				return null;
+			});
+		}
+	}
+
+	@Override
+	protected @Nullable String getCaseSensitiveIdForLowerCase(String lowerCaseId) {
+		Node idNode = idNode(lowerCaseId);
+		Node id = read(() -> getObject(idNode, CASE_SENSITIVE_ID));
+		return Objects.isNull(id) ? null : id.getLiteralLexicalForm();
+	}
+
+	@Override
+	protected void updateCounter(IdType idType, int minimumNext) {
+		if (read(() -> getCounter(idType)) < minimumNext) {
+			write(() -> {
+				if (getCounter(idType) < minimumNext) {
+					setCounter(idType, minimumNext);
+				}
+				return null;
+			});
+		}
+	}
+
+	@Override
+	int reserve(IdType idType, int count) throws SpdxRdfException {
+		try {
+			return write(() -> {
+				int first = getCounter(idType);
+				setCounter(idType, Math.addExact(first, count));
+				return first;
+			});
+		} catch (ArithmeticException ex) {
+			throw new SpdxRdfException("Unable to reserve " + count + " IDs - maximum ID number exceeded", ex);
+		}
+	}
+
+	/**
+	 * Remove all IDs for the graph and record that the index holds all IDs in the graph - the graph must be empty
+	 * or its IDs added before the transaction ends
+	 */
+	@Override
+	void clearIds() {
+		write(() -> {
+			List<Quad> idQuads = WrappedIterator.create(datasetGraph.find(RdfStore.METADATA_GRAPH, Node.ANY, CASE_SENSITIVE_ID, Node.ANY))
+					.filterKeep(quad -> quad.getSubject().isURI() && quad.getSubject().getURI().startsWith(idNodePrefix) &&
+							quad.getSubject().getURI().indexOf('#', idNodePrefix.length()) < 0)
+					.toList();
+			idQuads.forEach(datasetGraph::delete);
+			setObject(graphName, INDEXED, NodeFactory.createLiteralDT("true", XSDDatatype.XSDboolean));
+			return null;
+		});
+	}
+
+	/**
+	 * @return true if the index holds all IDs in the graph
+	 */
+	@Override
+	boolean isComplete() {
+		return read(() -> datasetGraph.contains(RdfStore.METADATA_GRAPH, graphName, INDEXED, Node.ANY));
+	}
+
+	/**
+	 * Remove the IDs and counters for the graph
+	 */
+	void remove() {
+		clearIds();
+		write(() -> {
+			datasetGraph.deleteAny(RdfStore.METADATA_GRAPH, graphName, Node.ANY, Node.ANY);
+			return null;
+		});
+	}
+}
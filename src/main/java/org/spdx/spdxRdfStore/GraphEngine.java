@@ -0,0 +1,82 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphMemFactory;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+
+/**
+ * In-memory graph implementations which can be used for the RDF model of an <code>RdfStore</code>
+ * <p>
+ * The GraphMem2, compact and predicate table graphs compare literals by term rather than by value, so <code>"01"^^xsd:int</code> and
+ * <code>"1"^^xsd:int</code> are different objects.
+ *
+ * @author Gary O'Neall
+ */
+public enum GraphEngine {
+	/**
+	 * Jena's original in-memory graph with value based literal matching - the same graph used by
+	 * <code>ModelFactory.createDefaultModel()</code>
+	 */
+	GRAPH_MEM,
+	/**
+	 * GraphMem2 with hashed indexes - fastest lookups with the highest memory use
+	 */
+	GRAPH_MEM2_FAST,
+	/**
+	 * GraphMem2 with the same index structure as the original in-memory graph - lowest memory use
+	 */
+	GRAPH_MEM2_LEGACY,
+	/**
+	 * GraphMem2 indexed with roaring bitmaps - fastest for pattern matches with more than one bound node
+	 */
+	GRAPH_MEM2_ROARING,
+	/**
+	 * Dictionary encoded graph indexing triples as pairs of int IDs - about half the memory of the other graphs
+	 */
+	COMPACT,
+	/**
+	 * Graph with a flat table of objects per predicate indexed by subject - direct lookup of the values of a property for
+	 * a subject with less memory than the Jena graphs
+	 */
+	PREDICATE_TABLES;
+
+	/**
+	 * @return a new empty graph for this engine
+	 */
+	Graph createGraph() {
+		switch (this) {
+			case GRAPH_MEM2_FAST: return GraphMemFactory.createGraphMem2();
+			case GRAPH_MEM2_LEGACY: return GraphMemFactory.createGraphMem2Basic();
+			case GRAPH_MEM2_ROARING: return GraphMemFactory.createGraphMem2Roaring();
+			case COMPACT: return new CompactGraph();
+			case PREDICATE_TABLES: return new PredicateTableGraph();
+			case GRAPH_MEM:
+			default: return GraphMemFactory.createGraphMem();
+		}
+	}
+
+	/**
+	 * @return a new empty model backed by a graph for this engine
+	 */
+	Model createModel() {
+		return ModelFactory.createModelForGraph(createGraph());
+	}
+}
@@ -0,0 +1,151 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.regex.Matcher;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.graph.Node;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+import org.spdx.storage.IModelStore.IdType;
+
+/**
+ * Case-insensitive map of the SPDX IDs in a document and the counters for the generated IDs
+ * <p>
+ * Only the IDs of URI subjects with an SPDX element, license or document reference prefix are recorded.  The counters
+ * are kept greater than the number of any generated ID recorded so a generated ID is never reused.
+ *
+ * @author Gary O'Neall
+ */
+abstract class IdIndex {
+
+	static final Logger logger = LoggerFactory.getLogger(IdIndex.class.getName());
+
+	/**
+	 * @param node subject of a statement
+	 * @return the ID for the node if the node is a URI with an SPDX ID prefix, otherwise null
+	 */
+	static @Nullable String trackedId(@Nullable Node node) {
+		if (Objects.isNull(node) || !node.isURI()) {
+			return null;
+		}
+		String id = node.getLocalName();
+		if (id.startsWith(SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM) || id.startsWith(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM) ||
+				id.startsWith(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM)) {
+			return id;
+		}
+		return null;
+	}
+
+	/**
+	 * Record an ID added to the document updating the counter if the ID is a generated ID
+	 * @param id ID with an SPDX ID prefix
+	 */
+	void addId(String id) {
+		String previous = putCaseSensitiveId(id.toLowerCase(), id);
+		if (Objects.nonNull(previous) && !previous.equals(id)) {
+			logger.warn("Possibly ambiguous ID being introduced.  {} is being replaced by {}", previous, id);
+		}
+		if (!id.contains(RdfStore.GENERATED)) {
+			return;
+		}
+		Matcher licenseRefMatcher = RdfStore.LICENSE_ID_PATTERN_GENERATED.matcher(id);
+		if (licenseRefMatcher.matches()) {
+			updateCounter(IdType.LicenseRef, Integer.parseInt(licenseRefMatcher.group(1)) + 1);
+			return;
+		}
+		Matcher documentIdMatcher = RdfStore.DOCUMENT_ID_PATTERN_GENERATED.matcher(id);
+		if (documentIdMatcher.matches()) {
+			updateCounter(IdType.DocumentRef, Integer.parseInt(documentIdMatcher.group(1)) + 1);
+			return;
+		}
+		Matcher spdxIdMatcher = RdfStore.SPDX_ID_PATTERN_GENERATED.matcher(id);
+		if (spdxIdMatcher.matches()) {
+			updateCounter(IdType.SpdxId, Integer.parseInt(spdxIdMatcher.group(1)) + 1);
+		}
+	}
+
+	/**
+	 * Remove an ID which no longer has any statements from the case-insensitive map
+	 * @param id ID with an SPDX ID prefix
+	 */
+	void removeId(String id) {
+		removeCaseSensitiveId(id.toLowerCase(), id);
+	}
+
+	/**
+	 * @param caseInsensitiveId ID with case ignored
+	 * @return the case-sensitive ID
+	 */
+	Optional<String> getCaseSensitiveId(String caseInsensitiveId) {
+		return Optional.ofNullable(getCaseSensitiveIdForLowerCase(caseInsensitiveId.toLowerCase()));
+	}
+
+	/**
+	 * @param lowerCaseId lower case ID
+	 * @param id case-sensitive ID
+	 * @return the case-sensitive ID previously mapped from the lower case ID or null if there was none
+	 */
+	protected abstract @Nullable String putCaseSensitiveId(String lowerCaseId, String id);
+
+	/**
+	 * Remove the mapping from the lower case ID if it maps to the case-sensitive ID
+	 * @param lowerCaseId lower case ID
+	 * @param id case-sensitive ID
+	 */
+	protected abstract void removeCaseSensitiveId(String lowerCaseId, String id);
+
+	/**
+	 * @param lowerCaseId lower case ID
+	 * @return the case-sensitive ID or null if the ID is not in the document
+	 */
+	protected abstract @Nullable String getCaseSensitiveIdForLowerCase(String lowerCaseId);
+
+	/**
+	 * Update the counter so the next ID number is at least the minimum
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @param minimumNext minimum for the next ID number
+	 */
+	protected abstract void updateCounter(IdType idType, int minimumNext);
+
+	/**
+	 * Reserve a contiguous range of generated ID numbers
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @param count number of ID numbers to reserve
+	 * @return the first ID number in the range
+	 * @throws SpdxRdfException if the range exceeds the maximum ID number
+	 */
+	abstract int reserve(IdType idType, int count) throws SpdxRdfException;
+
+	/**
+	 * Remove all IDs from the case-insensitive map - the counters are unchanged so generated IDs are never reused
+	 */
+	abstract void clearIds();
+
+	/**
+	 * @return true if the index holds all IDs in the model, false if the model must be scanned to build the index
+	 */
+	boolean isComplete() {
+		return true;
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.spdx.storage.IModelStore.IdType;
+
+/**
+ * ID index held in memory for a document in an in-memory model
+ *
+ * @author Gary O'Neall
+ */
+class MemoryIdIndex extends IdIndex {
+
+	/**
+	 * Map of a lower case ID to the case-sensitive ID
+	 */
+	private final Map<String, String> idCaseSensitiveMap = new ConcurrentHashMap<>();
+
+	private final AtomicInteger nextNextSpdxId = new AtomicInteger(1);
+
+	private final AtomicInteger nextNextDocumentId = new AtomicInteger(1);
+
+	private final AtomicInteger nextNextLicenseId = new AtomicInteger(1);
+
+	/**
+	 * @param idType <code>SpdxId</code>, <code>LicenseRef</code> or <code>DocumentRef</code>
+	 * @return the counter for the ID type
+	 */
+	private AtomicInteger counter(IdType idType) {
+		switch (idType) {
+			case LicenseRef: return nextNextLicenseId;
+			case DocumentRef: return nextNextDocumentId;
+			case SpdxId: return nextNextSpdxId;
+			default: throw new IllegalArgumentException("No generated IDs for ID type " + idType);
+		}
+	}
+
+	@Override
+	protected @Nullable String putCaseSensitiveId(String lowerCaseId, String id) {
+		return idCaseSensitiveMap.put(lowerCaseId, id);
+	}
+
+	@Override
+	protected void removeCaseSensitiveId(String lowerCaseId, String id) {
+		idCaseSensitiveMap.remove(lowerCaseId, id);
+	}
+
+	@Override
+	protected @Nullable String getCaseSensitiveIdForLowerCase(String lowerCaseId) {
+		return idCaseSensitiveMap.get(lowerCaseId);
+	}
+
+	@Override
+	protected void updateCounter(IdType idType, int minimumNext) {
+		counter(idType).accumulateAndGet(minimumNext, Math::max);
+	}
+
+	@Override
+	int reserve(IdType idType, int count) throws SpdxRdfException {
+		try {
+			return counter(idType).getAndUpdate(current -> Math.addExact(current, count));
+		} catch (ArithmeticException ex) {
+			throw new SpdxRdfException("Unable to reserve " + count + " IDs - maximum ID number exceeded", ex);
+		}
+	}
+
+	@Override
+	void clearIds() {
+		idCaseSensitiveMap.clear();
+	}
+}
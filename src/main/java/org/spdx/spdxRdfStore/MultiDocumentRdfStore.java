@@ -0,0 +1,672 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.stream.Stream;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.rdf.model.AnonId;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spdx.core.CoreModelObject;
+import org.spdx.core.InvalidSPDXAnalysisException;
+import org.spdx.core.TypedValue;
+import org.spdx.library.model.v2.SpdxDocument;
+import org.spdx.storage.ISerializableModelStore;
+import org.spdx.storage.PropertyDescriptor;
+
+/**
+ * Model store holding many SPDX documents as named graphs in a single dataset
+ * <p>
+ * Each document is stored in a named graph whose name is the document namespace.  All documents share the
+ * dataset indexes - and for a persistent store, the TDB2 node table - so a document adds no storage beyond its own
+ * triples.  The store for a single document is available from <code>getDocumentStore</code> and is opened without
+ * scanning the document since its IDs and items are read from the dataset.  Since a document store holds no state
+ * outside of the dataset, only the most recently used document stores are kept open.
+ * <p>
+ * Operations are routed to a document by the namespace in the object URI.  Anonymous objects and objects outside of
+ * any document namespace, such as listed licenses, are read from the first document containing them.  Objects outside
+ * of any document namespace can only be updated through the store for the document.  Since <code>getNextId</code>
+ * and <code>create</code> for anonymous objects have no document context, new objects should be created through the
+ * store for the document.
+ * <p>
+ * Critical sections are mapped onto transactions on the dataset and cover all documents.  The ID index for each document
+ * is kept in a metadata graph of the dataset which is not part of any document.
+ * <p>
+ * With the <code>N_QUADS</code> output format, all documents are serialized and deserialized together with each
+ * document in the named graph for its namespace.  Other formats hold a single document.
+ *
+ * @author Gary O'Neall
+ */
+public class MultiDocumentRdfStore implements ISerializableModelStore {
+
+	static final Logger logger = LoggerFactory.getLogger(MultiDocumentRdfStore.class.getName());
+
+	private @Nullable Dataset dataset;
+
+	private final TransactionLock lock;
+
+	/**
+	 * Maximum number of document stores kept open
+	 */
+	private static final int DOCUMENT_STORE_CACHE_SIZE = 64;
+
+	/**
+	 * Stores for the most recently used documents keyed by document namespace - an evicted store remains usable
+	 * since all of its state is in the dataset
+	 */
+	private final Cache<String, RdfStore> documentStores = CacheFactory.createCache(DOCUMENT_STORE_CACHE_SIZE);
+
+	private OutputFormat outputFormat = OutputFormat.XML;
+
+	private boolean skipCompatibilityUpgrade = false;
+
+	/**
+	 * Create an empty in-memory multi-document store
+	 */
+	public MultiDocumentRdfStore() {
+		this(DatasetFactory.createTxnMem());
+	}
+
+	/**
+	 * Create or reopen a persistent multi-document store backed by a TDB2 dataset in a local directory.
+	 * <p>
+	 * The store must be closed to release the dataset.
+	 * @param directory directory for the TDB2 dataset - created if it does not exist
+	 */
+	public MultiDocumentRdfStore(Path directory) {
+		this(TDB2Factory.connectDataset(Objects.requireNonNull(directory, "Missing required directory").toString()));
+	}
+
+	/**
+	 * @param dataset transactional dataset holding the documents
+	 */
+	private MultiDocumentRdfStore(Dataset dataset) {
+		this.dataset = dataset;
+		this.lock = new TransactionLock(dataset);
+	}
+
+	/**
+	 * @return the format used to serialize and deserialize documents
+	 */
+	public OutputFormat getOutputFormat() {
+		return outputFormat;
+	}
+
+	/**
+	 * @param outputFormat the format used to serialize and deserialize documents - <code>N_QUADS</code> holds all
+	 * documents in the store
+	 */
+	public void setOutputFormat(OutputFormat outputFormat) {
+		Objects.requireNonNull(outputFormat, "Missing required output format");
+		this.outputFormat = outputFormat;
+	}
+
+	/**
+	 * @return if true, documents are not upgraded for compatibility when deserialized
+	 */
+	public boolean isSkipCompatibilityUpgrade() {
+		return skipCompatibilityUpgrade;
+	}
+
+	/**
+	 * @param skipCompatibilityUpgrade if true, documents are not upgraded for compatibility when deserialized
+	 */
+	public void setSkipCompatibilityUpgrade(boolean skipCompatibilityUpgrade) {
+		this.skipCompatibilityUpgrade = skipCompatibilityUpgrade;
+	}
+
+	/**
+	 * @return true if the store is backed by a persistent TDB2 dataset
+	 */
+	public boolean isPersistent() {
+		return Objects.nonNull(dataset) && TDBInternal.isTDB2(dataset.asDatasetGraph());
+	}
+
+	/**
+	 * @return the namespaces of all documents in the store in sorted order
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	public List<String> getDocumentUris() throws InvalidSPDXAnalysisException {
+		checkClosed();
+		TreeSet<String> retval = new TreeSet<>();
+		documentStores.keys().forEachRemaining(retval::add);
+		Txn.executeRead(dataset, () -> dataset.asDatasetGraph().listGraphNodes().forEachRemaining(graphNode -> {
+			if (!RdfStore.METADATA_GRAPH.equals(graphNode)) {
+				retval.add(graphNode.getURI());
+			}
+		}));
+		return new ArrayList<>(retval);
+	}
+
+	/**
+	 * Get the store for a document, creating an empty document if the store does not contain the document
+	 * @param documentUri namespace of the document
+	 * @return the store for the document
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	public RdfStore getDocumentStore(String documentUri) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(documentUri, "Missing required document URI");
+		checkClosed();
+		return documentStores.get(documentUri, uri -> new RdfStore(dataset, uri));
+	}
+
+	/**
+	 * Remove a document and all of its triples from the store
+	 * @param documentUri namespace of the document
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	public void removeDocument(String documentUri) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(documentUri, "Missing required document URI");
+		checkClosed();
+		closeDocumentStore(documentUri);
+		Node graphNode = NodeFactory.createURI(documentUri);
+		Txn.executeWrite(dataset, () -> {
+			dataset.asDatasetGraph().removeGraph(graphNode);
+			new DatasetIdIndex(dataset.asDatasetGraph(), graphNode).remove();
+		});
+	}
+
+	/**
+	 * Close the store for a document if it is open - must be called before the triples for the document are replaced
+	 * @param documentUri namespace of the document
+	 */
+	private void closeDocumentStore(String documentUri) {
+		RdfStore documentStore = documentStores.getIfPresent(documentUri);
+		if (Objects.nonNull(documentStore)) {
+			documentStores.remove(documentUri);
+			documentStore.close();
+		}
+	}
+
+	/**
+	 * @param objectUri object URI
+	 * @return the store for the document containing the object, if any
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	private Optional<RdfStore> findDocumentStore(String objectUri) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(objectUri, "Missing required object URI");
+		checkClosed();
+		Node subject;
+		Matcher anonMatcher = RdfStore.ANON_ID_PATTERN.matcher(objectUri);
+		if (anonMatcher.matches()) {
+			subject = NodeFactory.createBlankNode(anonMatcher.group(1));
+		} else {
+			int hashIndex = objectUri.indexOf('#');
+			if (hashIndex > 0) {
+				String namespace = objectUri.substring(0, hashIndex);
+				RdfStore documentStore = documentStores.getIfPresent(namespace);
+				if (Objects.nonNull(documentStore)) {
+					return Optional.of(documentStore);
+				}
+				if (containsDocument(namespace)) {
+					return Optional.of(getDocumentStore(namespace));
+				}
+			}
+			subject = NodeFactory.createURI(objectUri);
+		}
+		Optional<Node> graphNode = Txn.calculateRead(dataset, () -> {
+			Iterator<Quad> iter = dataset.asDatasetGraph().findNG(Node.ANY, subject, Node.ANY, Node.ANY);
+			while (iter.hasNext()) {
+				Node graph = iter.next().getGraph();
+				if (!RdfStore.METADATA_GRAPH.equals(graph)) {
+					return Optional.of(graph);
+				}
+			}
+			return Optional.empty();
+		});
+		if (graphNode.isPresent()) {
+			return Optional.of(getDocumentStore(graphNode.get().getURI()));
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * @param objectUri object URI to be updated
+	 * @return the store for the document containing the object
+	 * @throws InvalidSPDXAnalysisException if the object is not anonymous and not in the namespace of a document in the store
+	 */
+	private RdfStore getDocumentStoreForUpdate(String objectUri) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(objectUri, "Missing required object URI");
+		checkClosed();
+		if (!isAnon(objectUri)) {
+			int hashIndex = objectUri.indexOf('#');
+			String namespace = hashIndex > 0 ? objectUri.substring(0, hashIndex) : null;
+			if (Objects.isNull(namespace) || (!documentStores.containsKey(namespace) && !containsDocument(namespace))) {
+				logger.error("{} is not in the namespace of a document in the store - update it through the document store", objectUri);
+				throw new SpdxRdfException(objectUri+" is not in the namespace of a document in the store - update it through the document store");
+			}
+		}
+		return getDocumentStoreForObject(objectUri);
+	}
+
+	/**
+	 * @param objectUri object URI
+	 * @return the store for the document containing the object
+	 * @throws InvalidSPDXAnalysisException if no document contains the object
+	 */
+	private RdfStore getDocumentStoreForObject(String objectUri) throws InvalidSPDXAnalysisException {
+		Optional<RdfStore> documentStore = findDocumentStore(objectUri);
+		if (documentStore.isEmpty()) {
+			logger.error("No document in the store contains {}", objectUri);
+			throw new SpdxRdfException("No document in the store contains "+objectUri);
+		}
+		return documentStore.get();
+	}
+
+	/**
+	 * @param documentUri namespace of the document
+	 * @return true if the dataset contains triples for the document
+	 */
+	private boolean containsDocument(String documentUri) {
+		Node graphNode = NodeFactory.createURI(documentUri);
+		return Txn.calculateRead(dataset, () -> dataset.asDatasetGraph().containsGraph(graphNode) &&
+				!dataset.asDatasetGraph().getGraph(graphNode).isEmpty());
+	}
+
+	private void checkClosed() throws InvalidSPDXAnalysisException {
+		if (Objects.isNull(dataset)) {
+			throw new InvalidSPDXAnalysisException("Multi-document RDF Store has been closed");
+		}
+	}
+
+	@Override
+	public boolean exists(String objectUri) {
+		try {
+			Optional<RdfStore> documentStore = findDocumentStore(objectUri);
+			return documentStore.isPresent() && documentStore.get().exists(objectUri);
+		} catch (InvalidSPDXAnalysisException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void create(TypedValue typedValue) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(typedValue, "Missing required typed value");
+		String objectUri = typedValue.getObjectUri();
+		int hashIndex = objectUri.indexOf('#');
+		if (isAnon(objectUri) || hashIndex < 1) {
+			logger.error("Unable to determine the document for {} - create it through the document store", objectUri);
+			throw new SpdxRdfException("Unable to determine the document for "+objectUri+" - create it through the document store");
+		}
+		getDocumentStore(objectUri.substring(0, hashIndex)).create(typedValue);
+	}
+
+	@Override
+	public List<PropertyDescriptor> getPropertyValueDescriptors(String objectUri) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).getPropertyValueDescriptors(objectUri);
+	}
+
+	@Override
+	public void setValue(String objectUri, PropertyDescriptor prop, Object value) throws InvalidSPDXAnalysisException {
+		getDocumentStoreForUpdate(objectUri).setValue(objectUri, prop, value);
+	}
+
+	@Override
+	public Optional<Object> getValue(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).getValue(objectUri, prop);
+	}
+
+	/**
+	 * Only anonymous IDs can be generated without a document - use the document store for other ID types
+	 */
+	@Override
+	public String getNextId(IdType idType) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(idType, "Missing required ID type");
+		checkClosed();
+		if (!IdType.Anonymous.equals(idType)) {
+			logger.error("Unable to generate a {} ID without a document - use the document store", idType);
+			throw new SpdxRdfException("Unable to generate a "+idType+" ID without a document - use the document store");
+		}
+		return RdfStore.ANON_PREFIX + AnonId.create();
+	}
+
+	@Override
+	public void removeProperty(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		getDocumentStoreForUpdate(objectUri).removeProperty(objectUri, prop);
+	}
+
+	/**
+	 * @param nameSpace document namespace or null for the items in all documents
+	 */
+	@Override
+	public Stream<TypedValue> getAllItems(@Nullable String nameSpace, @Nullable String typeFilter)
+			throws InvalidSPDXAnalysisException {
+		if (Objects.nonNull(nameSpace)) {
+			return getDocumentStore(nameSpace).getAllItems(nameSpace, typeFilter);
+		}
+		List<Stream<TypedValue>> streams = new ArrayList<>();
+		for (String documentUri:getDocumentUris()) {
+			streams.add(getDocumentStore(documentUri).getAllItems(documentUri, typeFilter));
+		}
+		return streams.stream().flatMap(stream -> stream);
+	}
+
+	@Override
+	public IModelStoreLock enterCriticalSection(boolean readLockRequested) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		lock.enterCriticalSection(readLockRequested);
+		return lock::leaveCriticalSection;
+	}
+
+	@Override
+	public void leaveCriticalSection(IModelStoreLock lock) {
+		lock.unlock();
+	}
+
+	@Override
+	public boolean removeValueFromCollection(String objectUri, PropertyDescriptor prop, Object value)
+			throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForUpdate(objectUri).removeValueFromCollection(objectUri, prop, value);
+	}
+
+	@Override
+	public int collectionSize(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).collectionSize(objectUri, prop);
+	}
+
+	@Override
+	public boolean collectionContains(String objectUri, PropertyDescriptor prop, Object value)
+			throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).collectionContains(objectUri, prop, value);
+	}
+
+	@Override
+	public void clearValueCollection(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		getDocumentStoreForUpdate(objectUri).clearValueCollection(objectUri, prop);
+	}
+
+	@Override
+	public boolean addValueToCollection(String objectUri, PropertyDescriptor prop, Object value)
+			throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForUpdate(objectUri).addValueToCollection(objectUri, prop, value);
+	}
+
+	@Override
+	public Iterator<Object> listValues(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).listValues(objectUri, prop);
+	}
+
+	@Override
+	public boolean isCollectionMembersAssignableTo(String objectUri, PropertyDescriptor prop, Class<?> clazz)
+			throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).isCollectionMembersAssignableTo(objectUri, prop, clazz);
+	}
+
+	@Override
+	public boolean isPropertyValueAssignableTo(String objectUri, PropertyDescriptor prop, Class<?> clazz,
+			String specVersion) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).isPropertyValueAssignableTo(objectUri, prop, clazz, specVersion);
+	}
+
+	@Override
+	public boolean isCollectionProperty(String objectUri, PropertyDescriptor prop) throws InvalidSPDXAnalysisException {
+		return getDocumentStoreForObject(objectUri).isCollectionProperty(objectUri, prop);
+	}
+
+	@Override
+	public IdType getIdType(String objectUri) {
+		try {
+			Optional<RdfStore> documentStore = findDocumentStore(objectUri);
+			return documentStore.isPresent() ? documentStore.get().getIdType(objectUri) : IdType.Unknown;
+		} catch (InvalidSPDXAnalysisException e) {
+			logger.warn("Error determining the ID type for {}", objectUri, e);
+			return IdType.Unknown;
+		}
+	}
+
+	@Override
+	public Optional<String> getCaseSensitiveId(String documentUri, String caseInsensisitiveId) {
+		if (Objects.isNull(dataset)) {
+			return Optional.empty();
+		}
+		DatasetIdIndex ids = new DatasetIdIndex(dataset.asDatasetGraph(), NodeFactory.createURI(documentUri));
+		if (!ids.isComplete()) {
+			if (!containsDocument(documentUri)) {
+				return Optional.empty();
+			}
+			// opening the document indexes its IDs
+			documentStores.get(documentUri, uri -> new RdfStore(dataset, uri));
+		}
+		return ids.getCaseSensitiveId(caseInsensisitiveId);
+	}
+
+	@Override
+	public Optional<TypedValue> getTypedValue(String objectUri) throws InvalidSPDXAnalysisException {
+		Optional<RdfStore> documentStore = findDocumentStore(objectUri);
+		return documentStore.isPresent() ? documentStore.get().getTypedValue(objectUri) : Optional.empty();
+	}
+
+	@Override
+	public void delete(String objectUri) throws InvalidSPDXAnalysisException {
+		getDocumentStoreForUpdate(objectUri).delete(objectUri);
+	}
+
+	@Override
+	public boolean isAnon(String objectUri) {
+		Objects.requireNonNull(objectUri, "Missing required objectUri");
+		return RdfStore.ANON_ID_PATTERN.matcher(objectUri).matches();
+	}
+
+	/**
+	 * Serialize the store in the output format - <code>N_QUADS</code> writes all documents with each document in its
+	 * own named graph while other formats can only be used if the store holds a single document
+	 */
+	@Override
+	public void serialize(OutputStream stream) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		if (OutputFormat.N_QUADS.equals(outputFormat)) {
+			writeQuads(stream, graphNode -> !RdfStore.METADATA_GRAPH.equals(graphNode));
+			return;
+		}
+		List<String> documentUris = getDocumentUris();
+		if (documentUris.size() != 1) {
+			logger.error("Unable to serialize {} documents in {} - use the N_QUADS output format", documentUris.size(), outputFormat);
+			throw new SpdxRdfException("Unable to serialize "+documentUris.size()+" documents in "+outputFormat+" - use the N_QUADS output format");
+		}
+		RdfStore documentStore = getDocumentStore(documentUris.get(0));
+		documentStore.setOutputFormat(outputFormat);
+		documentStore.serialize(stream);
+	}
+
+	/**
+	 * Write the quads in the named graphs accepted by the filter as N-Quads
+	 * @param stream stream to write the quads to
+	 * @param graphFilter graphs to be written
+	 */
+	private void writeQuads(OutputStream stream, Predicate<Node> graphFilter) {
+		Txn.executeRead(dataset, () -> {
+			StreamRDF writer = StreamRDFWriter.getWriterStream(stream, RDFFormat.NQUADS);
+			writer.start();
+			dataset.asDatasetGraph().find().forEachRemaining(quad -> {
+				if (graphFilter.test(quad.getGraph())) {
+					writer.quad(quad);
+				}
+			});
+			writer.finish();
+		});
+	}
+
+	/**
+	 * Serialize a single document in the output format, or the whole store if the document is null
+	 */
+	@Override
+	public void serialize(OutputStream stream, @Nullable CoreModelObject spdxDocument) throws InvalidSPDXAnalysisException {
+		if (Objects.isNull(spdxDocument)) {
+			serialize(stream);
+			return;
+		}
+		if (!(spdxDocument instanceof SpdxDocument)) {
+            logger.error("Attempting to serialize {} which is not an SpdxDocument", spdxDocument.getClass().getName());
+			throw new InvalidSPDXAnalysisException("Attempting to serialize "+spdxDocument.getClass().getName()+" which is not an SpdxDocument");
+		}
+		String documentUri = ((SpdxDocument)spdxDocument).getDocumentUri();
+		if (!documentStores.containsKey(documentUri) && !containsDocument(documentUri)) {
+            logger.error("{} not found in model store", documentUri);
+			throw new InvalidSPDXAnalysisException(documentUri + " not found in model store");
+		}
+		if (OutputFormat.N_QUADS.equals(outputFormat)) {
+			writeQuads(stream, NodeFactory.createURI(documentUri)::equals);
+			return;
+		}
+		RdfStore documentStore = getDocumentStore(documentUri);
+		documentStore.setOutputFormat(outputFormat);
+		documentStore.serialize(stream, spdxDocument);
+	}
+
+	/**
+	 * Destination which replaces the named graph for each document namespace found in the stream
+	 * - must be used in a write transaction
+	 */
+	private class DocumentGraphTarget implements SpdxStreamLoader.DocumentTarget {
+		/**
+		 * Namespaces of the documents which contained triples in the dataset before they were replaced
+		 */
+		private final List<String> replaced = new ArrayList<>();
+
+		@Override
+		public Model documentModel(String documentNamespace) {
+			Node graphNode = NodeFactory.createURI(documentNamespace);
+			DatasetGraph datasetGraph = dataset.asDatasetGraph();
+			if (datasetGraph.containsGraph(graphNode) && !datasetGraph.getGraph(graphNode).isEmpty()) {
+				replaced.add(documentNamespace);
+			}
+			datasetGraph.removeGraph(graphNode);
+			Model model = new TransactionalModel(datasetGraph.getGraph(graphNode), dataset);
+			RdfStore.setPrefixes(model);
+			return model;
+		}
+
+		@Override
+		public IdIndex documentIds(String documentNamespace) {
+			DatasetIdIndex ids = new DatasetIdIndex(dataset.asDatasetGraph(), NodeFactory.createURI(documentNamespace));
+			ids.clearIds();
+			return ids;
+		}
+	}
+
+	/**
+	 * Add SPDX documents to the store each in its own named graph
+	 * <p>
+	 * Each document is parsed directly into the named graph for its namespace, recording its IDs in the dataset, and
+	 * upgraded in a single write transaction which is aborted if any document can not be loaded.  With the
+	 * <code>N_QUADS</code> output format, the stream may contain many documents each in the named graph for its
+	 * namespace, such as the output of <code>serialize</code>.  Other formats contain a single document.
+	 * @param stream stream containing SPDX documents in the output format
+	 * @param overwrite if true, replace documents with the same namespace already in the store
+	 * @return the first SPDX document in the stream from the store for the document
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors or if a document exists and overwrite is false
+	 */
+	@Override
+	public SpdxDocument deSerialize(InputStream stream, boolean overwrite) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		DocumentGraphTarget target = new DocumentGraphTarget();
+		Map<String, SpdxStreamLoader> loaders;
+		boolean committed = false;
+		dataset.begin(TxnType.WRITE);
+		try {
+			InputStream decompressedStream = Compression.decompress(stream);
+			if (OutputFormat.N_QUADS.equals(outputFormat)) {
+				loaders = SpdxStreamLoader.loadDocuments(decompressedStream, target);
+				for (Map.Entry<String, SpdxStreamLoader> entry:loaders.entrySet()) {
+					if (!List.of(entry.getKey()).equals(entry.getValue().getDocumentNamespaces())) {
+						logger.error("Graph {} does not contain the SPDX document for its namespace", entry.getKey());
+						throw new SpdxRdfException("Graph "+entry.getKey()+" does not contain the SPDX document for its namespace");
+					}
+				}
+			} else {
+				SpdxStreamLoader loader = SpdxStreamLoader.loadDocument(decompressedStream, outputFormat, target);
+				List<String> documentNamespaces = loader.getDocumentNamespaces();
+				if (documentNamespaces.size() > 1) {
+					throw new InvalidSPDXAnalysisException("Can only deserialize SPDX version 2 RDF documents with a single SPDX document");
+				}
+				loaders = Map.of(documentNamespaces.get(0), loader);
+			}
+			if (!target.replaced.isEmpty() && !overwrite) {
+				logger.error("Documents {} are already in the multi-document store", target.replaced);
+				throw new SpdxRdfException("Documents "+target.replaced+" are already in the multi-document store");
+			}
+			if (!skipCompatibilityUpgrade) {
+				for (Map.Entry<String, SpdxStreamLoader> entry:loaders.entrySet()) {
+					entry.getValue().upgrade(entry.getKey());
+				}
+			}
+			dataset.commit();
+			committed = true;
+		} catch (IOException e) {
+			logger.error("I/O error reading serialized model", e);
+			throw new SpdxRdfException("I/O error reading serialized model", e);
+		} finally {
+			if (!committed) {
+				dataset.abort();
+			}
+			dataset.end();
+		}
+		loaders.keySet().forEach(this::closeDocumentStore);
+		String documentUri = loaders.keySet().iterator().next();
+		return getDocumentStore(documentUri).getSpdxDocument(documentUri);
+	}
+
+	@Override
+	public void close() {
+		documentStores.keys().forEachRemaining(documentUri -> {
+			RdfStore documentStore = documentStores.getIfPresent(documentUri);
+			if (Objects.nonNull(documentStore)) {
+				documentStore.close();
+			}
+		});
+		documentStores.clear();
+		if (Objects.nonNull(dataset)) {
+			dataset.close();
+			if (TDBInternal.isTDB2(dataset.asDatasetGraph())) {
+				TDBInternal.expel(dataset.asDatasetGraph());
+			}
+			dataset = null;
+		}
+	}
+}
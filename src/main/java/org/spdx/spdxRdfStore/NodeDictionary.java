@@ -0,0 +1,475 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.apache.jena.datatypes.RDFDatatype;
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+
+/**
+ * Dictionary assigning int IDs to nodes which holds the nodes encoded as bytes
+ * <p>
+ * URIs are encoded as the ID of their namespace followed by the UTF-8 local name, blank nodes as their label and
+ * literals as their lexical form with the language or the ID of the datatype.  Other nodes, and strings which do
+ * not round trip through UTF-8, are held as node objects.  The encoded nodes are appended to segments of a byte
+ * arena so there is no object per node.  Recently decoded nodes are cached.  Lookups compare the node with the
+ * encoded bytes in the arena without encoding the node, so finding a node does not allocate.
+ * <p>
+ * IDs are not reused until the dictionary is cleared.  Concurrent reads are supported but not concurrent updates.
+ *
+ * @author Gary O'Neall
+ */
+class NodeDictionary {
+
+	private static final byte TAG_URI = 0;
+	private static final byte TAG_BLANK = 1;
+	private static final byte TAG_LANG_LITERAL = 2;
+	private static final byte TAG_STRING_LITERAL = 3;
+	private static final byte TAG_TYPED_LITERAL = 4;
+	private static final byte TAG_OBJECT = 5;
+
+	private static final int SEGMENT_SIZE = 1 << 16;
+	private static final int CACHE_SIZE = 1 << 12;
+
+	/**
+	 * Segments of the byte arena holding the encoded nodes - each encoding is preceded by its length
+	 */
+	private byte[][] segments;
+	private int segmentCount = 0;
+	/**
+	 * Next free position in the last segment
+	 */
+	private int segmentPosition;
+
+	/**
+	 * Segment in the upper and position in the lower 32 bits for each node ID
+	 */
+	private long[] locations;
+	private int[] hashes;
+	private int count;
+
+	/**
+	 * Open addressed table of node ID + 1 for each node - 0 is an empty slot
+	 */
+	private int[] table;
+
+	private final List<String> namespaces = new ArrayList<>();
+	private final Map<String, Integer> namespaceIds = new HashMap<>();
+	private final List<RDFDatatype> datatypes = new ArrayList<>();
+	private final Map<String, Integer> datatypeIds = new HashMap<>();
+	private final List<Node> objects = new ArrayList<>();
+	private final Map<Node, Integer> objectIds = new HashMap<>();
+
+	/**
+	 * Node decoded for an ID - replaced as a whole so concurrent readers always see a matching ID and node
+	 */
+	private static class CachedNode {
+		final int id;
+		final Node node;
+
+		CachedNode(int id, Node node) {
+			this.id = id;
+			this.node = node;
+		}
+	}
+
+	private final CachedNode[] cache = new CachedNode[CACHE_SIZE];
+
+	NodeDictionary() {
+		clear();
+	}
+
+	/**
+	 * Remove all nodes from the dictionary releasing the arena
+	 */
+	void clear() {
+		segments = new byte[0][];
+		segmentCount = 0;
+		segmentPosition = SEGMENT_SIZE;
+		locations = new long[16];
+		hashes = new int[16];
+		count = 0;
+		table = new int[32];
+		namespaces.clear();
+		namespaceIds.clear();
+		datatypes.clear();
+		datatypeIds.clear();
+		objects.clear();
+		objectIds.clear();
+		Arrays.fill(cache, null);
+	}
+
+	/**
+	 * @return number of nodes in the dictionary
+	 */
+	int size() {
+		return count;
+	}
+
+	/**
+	 * @param node concrete node
+	 * @return the ID for the node or -1 if the node is not in the dictionary
+	 */
+	int getId(Node node) {
+		int hash = node.hashCode();
+		int mask = table.length - 1;
+		for (int slot = spread(hash) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+			if (hashes[id] == hash && matches(id, node)) {
+				return id;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param node concrete node
+	 * @return the ID for the node adding the node to the dictionary if it is not already present
+	 */
+	int getOrCreateId(Node node) {
+		Objects.requireNonNull(node, "Missing required node");
+		int hash = node.hashCode();
+		int mask = table.length - 1;
+		int slot = spread(hash) & mask;
+		for (; table[slot] != 0; slot = (slot + 1) & mask) {
+			int id = table[slot] - 1;
+			if (hashes[id] == hash && matches(id, node)) {
+				return id;
+			}
+		}
+		byte[] encoded = encode(node);
+		int id = count;
+		if (id == locations.length) {
+			int capacity = id + (id >> 1);
+			locations = Arrays.copyOf(locations, capacity);
+			hashes = Arrays.copyOf(hashes, capacity);
+		}
+		locations[id] = append(encoded);
+		hashes[id] = hash;
+		count++;
+		table[slot] = id + 1;
+		if (count * 4 > table.length * 3) {
+			rehash(table.length * 2);
+		}
+		return id;
+	}
+
+	/**
+	 * @param id ID of a node in the dictionary
+	 * @return the node for the ID
+	 */
+	Node getNode(int id) {
+		int cacheSlot = spread(id) & (CACHE_SIZE - 1);
+		CachedNode cached = cache[cacheSlot];
+		if (Objects.nonNull(cached) && cached.id == id) {
+			return cached.node;
+		}
+		Node retval = decode(id);
+		cache[cacheSlot] = new CachedNode(id, retval);
+		return retval;
+	}
+
+	private void rehash(int capacity) {
+		int[] newTable = new int[capacity];
+		int mask = capacity - 1;
+		for (int id = 0; id < count; id++) {
+			int slot = spread(hashes[id]) & mask;
+			while (newTable[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			newTable[slot] = id + 1;
+		}
+		table = newTable;
+	}
+
+	private static int spread(int hash) {
+		int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * @param encoded encoded node
+	 * @return location of the encoded node appended to the arena
+	 */
+	private long append(byte[] encoded) {
+		int length = varIntSize(encoded.length) + encoded.length;
+		if (segmentPosition + length > SEGMENT_SIZE || segmentCount == 0) {
+			if (segmentCount == segments.length) {
+				segments = Arrays.copyOf(segments, Math.max(16, segmentCount * 2));
+			}
+			segments[segmentCount++] = new byte[Math.max(SEGMENT_SIZE, length)];
+			segmentPosition = 0;
+		}
+		byte[] segment = segments[segmentCount - 1];
+		long retval = ((long)(segmentCount - 1) << 32) | segmentPosition;
+		int position = writeVarInt(segment, segmentPosition, encoded.length);
+		System.arraycopy(encoded, 0, segment, position, encoded.length);
+		segmentPosition = position + encoded.length;
+		if (segment.length > SEGMENT_SIZE) {
+			// an oversized encoding fills its own segment
+			segmentPosition = SEGMENT_SIZE;
+		}
+		return retval;
+	}
+
+	/**
+	 * Compare a node with the encoded node for an ID without decoding or encoding a node
+	 * @param id ID of a node in the dictionary
+	 * @param node node to compare
+	 * @return true if the node for the ID is the same term as the node
+	 */
+	private boolean matches(int id, Node node) {
+		byte[] segment = segments[(int)(locations[id] >>> 32)];
+		int position = (int)locations[id];
+		int length = readVarInt(segment, position);
+		position += varIntSize(length);
+		int end = position + length;
+		byte tag = segment[position++];
+		switch (tag) {
+			case TAG_URI: {
+				if (!node.isURI()) {
+					return false;
+				}
+				int namespaceId = readVarInt(segment, position);
+				position += varIntSize(namespaceId);
+				String namespace = namespaces.get(namespaceId);
+				String uri = node.getURI();
+				return uri.startsWith(namespace) && utf8Equals(segment, position, end, uri, namespace.length());
+			}
+			case TAG_BLANK: return node.isBlank() && utf8Equals(segment, position, end, node.getBlankNodeLabel(), 0);
+			case TAG_LANG_LITERAL: {
+				if (!node.isLiteral() || Objects.nonNull(node.getLiteralTextDirection()) || 
+						Objects.isNull(node.getLiteralLanguage())) {
+					return false;
+				}
+				int languageLength = readVarInt(segment, position);
+				position += varIntSize(languageLength);
+				return utf8Equals(segment, position, position + languageLength, node.getLiteralLanguage(), 0) &&
+						utf8Equals(segment, position + languageLength, end, node.getLiteralLexicalForm(), 0);
+			}
+			case TAG_STRING_LITERAL: return isLiteralWithoutLanguage(node) && 
+					XSDDatatype.XSDstring.getURI().equals(node.getLiteralDatatypeURI()) &&
+					utf8Equals(segment, position, end, node.getLiteralLexicalForm(), 0);
+			case TAG_TYPED_LITERAL: {
+				if (!isLiteralWithoutLanguage(node)) {
+					return false;
+				}
+				int datatypeId = readVarInt(segment, position);
+				position += varIntSize(datatypeId);
+				return datatypes.get(datatypeId).getURI().equals(node.getLiteralDatatypeURI()) &&
+						utf8Equals(segment, position, end, node.getLiteralLexicalForm(), 0);
+			}
+			case TAG_OBJECT: return objects.get(readVarInt(segment, position)).equals(node);
+			default: throw new IllegalStateException("Unknown node encoding " + tag);
+		}
+	}
+
+	/**
+	 * @param node node
+	 * @return true if the node is a literal without a language or text direction
+	 */
+	private static boolean isLiteralWithoutLanguage(Node node) {
+		if (!node.isLiteral() || Objects.nonNull(node.getLiteralTextDirection())) {
+			return false;
+		}
+		String language = node.getLiteralLanguage();
+		return Objects.isNull(language) || language.isEmpty();
+	}
+
+	/**
+	 * @param bytes UTF-8 encoded characters without surrogates
+	 * @param start start of the encoded characters
+	 * @param end end of the encoded characters
+	 * @param s string to compare
+	 * @param offset start of the characters to compare in the string
+	 * @return true if the encoded characters are the same as the characters in the string from the offset to the end
+	 */
+	private static boolean utf8Equals(byte[] bytes, int start, int end, String s, int offset) {
+		int index = offset;
+		int position = start;
+		while (position < end) {
+			if (index == s.length()) {
+				return false;
+			}
+			int b = bytes[position++];
+			char c;
+			if (b >= 0) {
+				c = (char)b;
+			} else if ((b & 0xE0) == 0xC0) {
+				c = (char)(((b & 0x1F) << 6) | (bytes[position++] & 0x3F));
+			} else {
+				c = (char)(((b & 0x0F) << 12) | ((bytes[position++] & 0x3F) << 6) | (bytes[position++] & 0x3F));
+			}
+			if (c != s.charAt(index++)) {
+				return false;
+			}
+		}
+		return index == s.length();
+	}
+
+	/**
+	 * @param node node to encode adding any namespace, datatype or object not already in the dictionary
+	 * @return the encoded node
+	 */
+	private byte[] encode(Node node) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		if (node.isURI() && isUtf8Safe(node.getURI())) {
+			String uri = node.getURI();
+			int split = Math.max(uri.lastIndexOf('#'), uri.lastIndexOf('/')) + 1;
+			int namespaceId = lookup(uri.substring(0, split), namespaces, namespaceIds, uri.substring(0, split));
+			out.write(TAG_URI);
+			writeVarInt(out, namespaceId);
+			out.writeBytes(uri.substring(split).getBytes(StandardCharsets.UTF_8));
+		} else if (node.isBlank() && isUtf8Safe(node.getBlankNodeLabel())) {
+			out.write(TAG_BLANK);
+			out.writeBytes(node.getBlankNodeLabel().getBytes(StandardCharsets.UTF_8));
+		} else if (node.isLiteral() && Objects.isNull(node.getLiteralTextDirection()) &&
+				isUtf8Safe(node.getLiteralLexicalForm())) {
+			String language = node.getLiteralLanguage();
+			if (Objects.nonNull(language) && !language.isEmpty()) {
+				byte[] languageBytes = language.getBytes(StandardCharsets.UTF_8);
+				out.write(TAG_LANG_LITERAL);
+				writeVarInt(out, languageBytes.length);
+				out.writeBytes(languageBytes);
+			} else if (XSDDatatype.XSDstring.getURI().equals(node.getLiteralDatatypeURI())) {
+				out.write(TAG_STRING_LITERAL);
+			} else {
+				int datatypeId = lookup(node.getLiteralDatatypeURI(), datatypes, datatypeIds, node.getLiteralDatatype());
+				out.write(TAG_TYPED_LITERAL);
+				writeVarInt(out, datatypeId);
+			}
+			out.writeBytes(node.getLiteralLexicalForm().getBytes(StandardCharsets.UTF_8));
+		} else {
+			int objectId = lookup(node, objects, objectIds, node);
+			out.write(TAG_OBJECT);
+			writeVarInt(out, objectId);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * @return the ID of the key, adding the value if it is not present
+	 */
+	private static <K, V> int lookup(K key, List<V> values, Map<K, Integer> ids, V value) {
+		Integer retval = ids.get(key);
+		if (Objects.nonNull(retval)) {
+			return retval;
+		}
+		values.add(value);
+		ids.put(key, values.size() - 1);
+		return values.size() - 1;
+	}
+
+	/**
+	 * @param s string
+	 * @return true if the string does not contain surrogates which may not round trip through UTF-8
+	 */
+	private static boolean isUtf8Safe(String s) {
+		for (int i = 0; i < s.length(); i++) {
+			if (Character.isSurrogate(s.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Node decode(int id) {
+		byte[] segment = segments[(int)(locations[id] >>> 32)];
+		int position = (int)locations[id];
+		int length = readVarInt(segment, position);
+		position += varIntSize(length);
+		int end = position + length;
+		byte tag = segment[position++];
+		switch (tag) {
+			case TAG_URI: {
+				int namespaceId = readVarInt(segment, position);
+				position += varIntSize(namespaceId);
+				return NodeFactory.createURI(namespaces.get(namespaceId) + utf8(segment, position, end));
+			}
+			case TAG_BLANK: return NodeFactory.createBlankNode(utf8(segment, position, end));
+			case TAG_LANG_LITERAL: {
+				int languageLength = readVarInt(segment, position);
+				position += varIntSize(languageLength);
+				String language = utf8(segment, position, position + languageLength);
+				return NodeFactory.createLiteralLang(utf8(segment, position + languageLength, end), language);
+			}
+			case TAG_STRING_LITERAL: return NodeFactory.createLiteralString(utf8(segment, position, end));
+			case TAG_TYPED_LITERAL: {
+				int datatypeId = readVarInt(segment, position);
+				position += varIntSize(datatypeId);
+				return NodeFactory.createLiteralDT(utf8(segment, position, end), datatypes.get(datatypeId));
+			}
+			case TAG_OBJECT: return objects.get(readVarInt(segment, position));
+			default: throw new IllegalStateException("Unknown node encoding " + tag);
+		}
+	}
+
+	private static String utf8(byte[] bytes, int start, int end) {
+		return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+	}
+
+	private static int varIntSize(int value) {
+		int retval = 1;
+		while ((value >>>= 7) != 0) {
+			retval++;
+		}
+		return retval;
+	}
+
+	private static void writeVarInt(ByteArrayOutputStream out, int value) {
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * @return the position following the written value
+	 */
+	private static int writeVarInt(byte[] bytes, int position, int value) {
+		while ((value & ~0x7F) != 0) {
+			bytes[position++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[position++] = (byte)value;
+		return position;
+	}
+
+	private static int readVarInt(byte[] bytes, int position) {
+		int retval = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = bytes[position++];
+			retval |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return retval;
+	}
+}
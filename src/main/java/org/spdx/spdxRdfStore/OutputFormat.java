@@ -17,23 +17,59 @@
  */
 package org.spdx.spdxRdfStore;
 
+import javax.annotation.Nullable;
+
+import org.apache.jena.riot.RDFFormat;
+
 /**
  * Formats supported for serializing RDF
+ * <p>
+ * The streaming formats write triples as the graph is iterated without first analysing the whole graph
+ * so output starts immediately and memory use is bounded.
  *
  * @author Gary O'Neall
  */
 public enum OutputFormat {
-	// outputFormat must be one of RDF/XML-ABBREV (default), RDF/XML, N-TRIPLET, TURTLE, JSON-LD
+	// outputFormat must be one of RDF/XML-ABBREV (default), RDF/XML, N-TRIPLET, TURTLE, JSON-LD, RDF-THRIFT, RDF-PROTO
 	XML_ABBREV("RDF/XML-ABBREV"),
 	XML("RDF/XML"),
 	N_TRIPLET("NTRIPLE"),
 	TURTLE("TURTLE"),
-	JSON_LD("JSON-LD");
+	JSON_LD("JSON-LD"),
+	// RDF/XML-ABBREV written in a single pass by the SPDX aware writer
+	XML_ABBREV_FAST("RDF/XML-ABBREV"),
+	// streaming formats
+	N_TRIPLET_STREAMING("NTRIPLE", RDFFormat.NTRIPLES, false),
+	TURTLE_STREAMING("TURTLE", RDFFormat.TURTLE_FLAT, false),
+	TURTLE_STREAMING_BY_SUBJECT("TURTLE", RDFFormat.TURTLE_BLOCKS, true),
+	// N-Quads - the format used by the multi-document store to hold each document in its own named graph
+	N_QUADS("N-Quads", RDFFormat.NQUADS, false),
+	// binary formats - streamed
+	RDF_THRIFT("RDF-THRIFT", RDFFormat.RDF_THRIFT, false),
+	RDF_PROTO("RDF-PROTO", RDFFormat.RDF_PROTO, false);
 	
 	private final String type;
+	private final RDFFormat streamingFormat;
+	private final boolean groupBySubject;
+	
 	OutputFormat(String type) {
+		this(type, null, false);
+	}
+	
+	OutputFormat(String type, @Nullable RDFFormat streamingFormat, boolean groupBySubject) {
 		this.type = type;
+		this.streamingFormat = streamingFormat;
+		this.groupBySubject = groupBySubject;
 	}
 	String getType() { return type; }
+	
+	/**
+	 * @return the RIOT format used to stream the output or null if the format is not streamed
+	 */
+	@Nullable RDFFormat getStreamingFormat() { return streamingFormat; }
+	
+	/**
+	 * @return true if all triples for a subject are written together when streaming
+	 */
+	boolean isGroupBySubject() { return groupBySubject; }
 }
-
@@ -0,0 +1,858 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Capabilities;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.AllCapabilities;
+import org.apache.jena.graph.impl.GraphBase;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.NiceIterator;
+
+/**
+ * In-memory graph which partitions the triples into one subject to object table per predicate
+ * <p>
+ * Subjects are numbered as they are added and the number of a subject is reused once the subject has no triples.  Each
+ * predicate table is a paged flat array indexed by the subject number holding the object of a subject with one value
+ * or a list of the objects of a subject with more values.  Triples are not stored but created from the subject, the
+ * predicate of the table and the object when read.  The objects are held in a form chosen from the range of the
+ * property in the SPDX OWL ontology - the lexical form of a string, an <code>Integer</code> or a <code>Boolean</code>
+ * for a literal with the datatype written for the range and the node for any other object.
+ * <p>
+ * A lookup of the values of a property for a subject, as made for <code>getValue</code>, <code>listValues</code> and
+ * <code>collectionSize</code>, reads the array element for the subject in the table for the property.  Lookups by a
+ * URI or blank node object use an index from the object to the subject and predicate numbers of its triples while
+ * lookups by a literal object scan the tables.
+ * <p>
+ * Literals are matched by term rather than by value.  Like the other in-memory graphs, the graph is not thread safe
+ * for concurrent updates and iterators fail on a modification of the graph other than through the iterator.
+ *
+ * @author Gary O'Neall
+ */
+class PredicateTableGraph extends GraphBase {
+
+	private static final int MAX_LIST_SIZE = 16;
+
+	/**
+	 * Form in which the objects of a property are held
+	 */
+	private enum ValueType {
+		NODE, STRING, INTEGER, BOOLEAN
+	}
+
+	private SubjectIndex subjects = new SubjectIndex();
+	private final Map<Node, PredicateTable> tables = new HashMap<>();
+	/**
+	 * Tables indexed by the predicate number
+	 */
+	private final List<PredicateTable> tableList = new ArrayList<>();
+	/**
+	 * References, the subject number and predicate number packed into a long, to the triples for each URI or blank
+	 * node object
+	 */
+	private Map<Node, Object> objectIndex = new HashMap<>();
+
+	private int size = 0;
+
+	/**
+	 * Incremented on every change to detect modification during iteration
+	 */
+	private int modCount = 0;
+
+	/**
+	 * @param predicate predicate
+	 * @return the form in which the objects of the predicate are held
+	 */
+	private static ValueType getValueType(Node predicate) {
+		if (!predicate.isURI()) {
+			return ValueType.NODE;
+		}
+		Optional<Class<?>> propertyClass = SpdxOwlOntology.getSpdxOwlOntology().getPropertyClass(
+				ResourceFactory.createProperty(predicate.getURI()));
+		if (propertyClass.isEmpty()) {
+			return ValueType.NODE;
+		} else if (String.class.equals(propertyClass.get())) {
+			return ValueType.STRING;
+		} else if (Integer.class.equals(propertyClass.get())) {
+			return ValueType.INTEGER;
+		} else if (Boolean.class.equals(propertyClass.get())) {
+			return ValueType.BOOLEAN;
+		} else {
+			return ValueType.NODE;
+		}
+	}
+
+	/**
+	 * @param value object held in a table
+	 * @return the object node
+	 */
+	private static Node decode(Object value) {
+		if (value instanceof Node) {
+			return (Node)value;
+		} else if (value instanceof String) {
+			return NodeFactory.createLiteralString((String)value);
+		} else if (value instanceof Integer) {
+			return NodeFactory.createLiteralDT(value.toString(), XSDDatatype.XSDint);
+		} else {
+			return NodeFactory.createLiteralDT(value.toString(), XSDDatatype.XSDboolean);
+		}
+	}
+
+	/**
+	 * @param object object node
+	 * @return true if the triples for the object are held in the object index
+	 */
+	private static boolean isIndexed(Node object) {
+		return !object.isLiteral();
+	}
+
+	/**
+	 * @param subject subject number
+	 * @param table table for the predicate
+	 * @return the reference to the triple held in the object index
+	 */
+	private static Long reference(int subject, PredicateTable table) {
+		return ((long)subject << 32) | table.number;
+	}
+
+	@Override
+	public Capabilities getCapabilities() {
+		return AllCapabilities.updateAllowed;
+	}
+
+	@Override
+	public void performAdd(Triple t) {
+		PredicateTable table = tables.get(t.getPredicate());
+		if (Objects.isNull(table)) {
+			table = new PredicateTable(t.getPredicate(), tableList.size(), getValueType(t.getPredicate()));
+			tables.put(t.getPredicate(), table);
+			tableList.add(table);
+		}
+		int subject = subjects.getOrCreateId(t.getSubject());
+		if (!table.add(subject, table.encode(t.getObject()))) {
+			return;
+		}
+		subjects.retain(subject);
+		if (isIndexed(t.getObject())) {
+			objectIndex.put(t.getObject(), addValue(objectIndex.get(t.getObject()), reference(subject, table)));
+		}
+		size++;
+		modCount++;
+	}
+
+	@Override
+	public void performDelete(Triple t) {
+		PredicateTable table = tables.get(t.getPredicate());
+		int subject = subjects.getId(t.getSubject());
+		if (Objects.isNull(table) || subject < 0 || !table.remove(subject, table.encode(t.getObject()))) {
+			return;
+		}
+		if (isIndexed(t.getObject())) {
+			Object references = removeValue(objectIndex.get(t.getObject()), reference(subject, table));
+			if (Objects.isNull(references)) {
+				objectIndex.remove(t.getObject());
+			} else {
+				objectIndex.put(t.getObject(), references);
+			}
+		}
+		subjects.release(subject);
+		size--;
+		modCount++;
+	}
+
+	@Override
+	public void clear() {
+		tables.clear();
+		tableList.clear();
+		subjects = new SubjectIndex();
+		objectIndex = new HashMap<>();
+		size = 0;
+		modCount++;
+		getEventManager().notifyEvent(this, GraphEvents.removeAll);
+	}
+
+	@Override
+	protected int graphBaseSize() {
+		return size;
+	}
+
+	@Override
+	protected boolean graphBaseContains(Triple t) {
+		if (!t.isConcrete()) {
+			return containsByFind(t);
+		}
+		PredicateTable table = tables.get(t.getPredicate());
+		if (Objects.isNull(table)) {
+			return false;
+		}
+		int subject = subjects.getId(t.getSubject());
+		return subject >= 0 && containsValue(table.get(subject), table.encode(t.getObject()));
+	}
+
+	@Override
+	protected ExtendedIterator<Triple> graphBaseFind(Triple m) {
+		Node s = concreteOrNull(m.getMatchSubject());
+		Node p = concreteOrNull(m.getMatchPredicate());
+		Node o = concreteOrNull(m.getMatchObject());
+		int subject = -1;
+		if (Objects.nonNull(s)) {
+			subject = subjects.getId(s);
+			if (subject < 0) {
+				return NiceIterator.emptyIterator();
+			}
+		}
+		PredicateTable table = null;
+		if (Objects.nonNull(p)) {
+			table = tables.get(p);
+			if (Objects.isNull(table)) {
+				return NiceIterator.emptyIterator();
+			}
+		}
+		if (Objects.nonNull(o) && subject < 0 && isIndexed(o)) {
+			return new ReferenceIterator(objectIndex.get(o), o, table);
+		}
+		// the values of a property for a subject are read directly from the table for the property
+		return new SlotIterator(table, subject, o);
+	}
+
+	/**
+	 * @param node node from a match triple
+	 * @return the node or null if the node is a wildcard
+	 */
+	private static @Nullable Node concreteOrNull(@Nullable Node node) {
+		return Objects.isNull(node) || Node.ANY.equals(node) || node.isVariable() ? null : node;
+	}
+
+	/**
+	 * @param value an element, list or set of elements
+	 * @param element element
+	 * @return true if the value contains the element
+	 */
+	@SuppressWarnings("unchecked")
+	private static boolean containsValue(@Nullable Object value, Object element) {
+		if (Objects.isNull(value)) {
+			return false;
+		} else if (value instanceof ValueList) {
+			ValueList list = (ValueList)value;
+			for (int i = 0; i < list.size; i++) {
+				if (list.elements[i].equals(element)) {
+					return true;
+				}
+			}
+			return false;
+		} else if (value instanceof Set) {
+			return ((Set<Object>)value).contains(element);
+		} else {
+			return value.equals(element);
+		}
+	}
+
+	/**
+	 * @param value null, an element, list or set of elements which does not contain the element
+	 * @param element element to add
+	 * @return the value containing the element
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object addValue(@Nullable Object value, Object element) {
+		if (Objects.isNull(value)) {
+			return element;
+		} else if (value instanceof ValueList) {
+			ValueList list = (ValueList)value;
+			if (list.size == MAX_LIST_SIZE) {
+				Set<Object> set = new HashSet<>(Arrays.asList(list.elements));
+				set.add(element);
+				return set;
+			}
+			if (list.size == list.elements.length) {
+				list.elements = Arrays.copyOf(list.elements, Math.min(list.size * 2, MAX_LIST_SIZE));
+			}
+			list.elements[list.size++] = element;
+			return list;
+		} else if (value instanceof Set) {
+			((Set<Object>)value).add(element);
+			return value;
+		} else {
+			ValueList list = new ValueList();
+			list.elements[0] = value;
+			list.elements[1] = element;
+			list.size = 2;
+			return list;
+		}
+	}
+
+	/**
+	 * @param value an element, list or set of elements which contains the element
+	 * @param element element to remove
+	 * @return the value without the element or null if the value is empty
+	 */
+	@SuppressWarnings("unchecked")
+	private static @Nullable Object removeValue(Object value, Object element) {
+		if (value instanceof ValueList) {
+			ValueList list = (ValueList)value;
+			for (int i = 0; i < list.size; i++) {
+				if (list.elements[i].equals(element)) {
+					list.elements[i] = list.elements[--list.size];
+					list.elements[list.size] = null;
+					break;
+				}
+			}
+			return list.size == 1 ? list.elements[0] : list;
+		} else if (value instanceof Set) {
+			Set<Object> set = (Set<Object>)value;
+			set.remove(element);
+			return set.size() == 1 ? set.iterator().next() : set;
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * List of the objects for a subject or references for an object - replaced by a hash set once it holds more than
+	 * <code>MAX_LIST_SIZE</code> elements
+	 */
+	private static class ValueList {
+		private Object[] elements = new Object[2];
+		private int size = 0;
+	}
+
+	/**
+	 * Iterates triples created from the elements of a sequence of values
+	 * <p>
+	 * Once a triple has been removed through the iterator, the iterator continues from a copy of the remaining
+	 * triples since removing a triple can move the elements in the tables.
+	 */
+	private abstract class TripleIterator extends NiceIterator<Triple> {
+		/**
+		 * Elements of the current value
+		 */
+		private Object[] elements = new Object[0];
+		/**
+		 * Holds a value with a single element
+		 */
+		private final Object[] single = new Object[1];
+		private int elementIndex = 0;
+		private int elementCount = 0;
+		/**
+		 * Elements of the current set of elements
+		 */
+		private Iterator<Object> elementSet = Collections.emptyIterator();
+		private Iterator<Triple> remaining = null;
+		private int expectedModCount = modCount;
+		private Triple next = null;
+		private Triple current = null;
+
+		/**
+		 * @return the next matching triple or null if there are no more matching triples
+		 */
+		protected abstract @Nullable Triple advance();
+
+		/**
+		 * Start iterating the elements of a value
+		 * @param value null, an element, list or set of elements
+		 */
+		@SuppressWarnings("unchecked")
+		protected void startValue(@Nullable Object value) {
+			elementIndex = 0;
+			elementCount = 0;
+			elementSet = Collections.emptyIterator();
+			if (value instanceof ValueList) {
+				elements = ((ValueList)value).elements;
+				elementCount = ((ValueList)value).size;
+			} else if (value instanceof Set) {
+				elementSet = ((Set<Object>)value).iterator();
+			} else if (Objects.nonNull(value)) {
+				single[0] = value;
+				elements = single;
+				elementCount = 1;
+			}
+		}
+
+		/**
+		 * @return the next element of the current value or null if there are no more elements
+		 */
+		protected @Nullable Object nextElement() {
+			if (elementIndex < elementCount) {
+				return elements[elementIndex++];
+			}
+			return elementSet.hasNext() ? elementSet.next() : null;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (Objects.nonNull(next)) {
+				return true;
+			}
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (Objects.nonNull(remaining)) {
+				next = remaining.hasNext() ? remaining.next() : null;
+			} else {
+				next = advance();
+			}
+			return Objects.nonNull(next);
+		}
+
+		@Override
+		public Triple next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			current = next;
+			next = null;
+			return current;
+		}
+
+		@Override
+		public void remove() {
+			if (Objects.isNull(current) || Objects.nonNull(next)) {
+				throw new IllegalStateException("Remove must follow next");
+			}
+			if (Objects.isNull(remaining)) {
+				List<Triple> rest = new ArrayList<>();
+				for (Triple triple = advance(); Objects.nonNull(triple); triple = advance()) {
+					rest.add(triple);
+				}
+				remaining = rest.iterator();
+			}
+			delete(current);
+			current = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Iterates the triples in the tables for one subject or for all subjects
+	 */
+	private class SlotIterator extends TripleIterator {
+		/**
+		 * Table for the predicate of the returned triples or null for any predicate
+		 */
+		private final @Nullable PredicateTable predicateTable;
+		/**
+		 * Number of the next table to iterate when iterating all tables
+		 */
+		private int nextTable = 0;
+		/**
+		 * Subject number of the returned triples or -1 for any subject
+		 */
+		private final int subject;
+		private final @Nullable Node object;
+		private @Nullable PredicateTable table = null;
+		/**
+		 * Object in the form held in the current table or null for any object
+		 */
+		private @Nullable Object element = null;
+		private int currentSubject = -1;
+		private @Nullable Node subjectNode = null;
+
+		/**
+		 * @param predicateTable table for the predicate of the returned triples or null for any predicate
+		 * @param subject subject number of the returned triples or -1 for any subject
+		 * @param object object of the returned triples or null for any object
+		 */
+		SlotIterator(@Nullable PredicateTable predicateTable, int subject, @Nullable Node object) {
+			this.predicateTable = predicateTable;
+			this.subject = subject;
+			this.object = object;
+			if (subject >= 0) {
+				subjectNode = subjects.getNode(subject);
+			}
+		}
+
+		@Override
+		protected @Nullable Triple advance() {
+			while (true) {
+				if (Objects.nonNull(table)) {
+					for (Object value = nextElement(); Objects.nonNull(value); value = nextElement()) {
+						if (Objects.isNull(element) || element.equals(value)) {
+							return Triple.create(subjectNode, table.predicate, decode(value));
+						}
+					}
+					if (subject < 0) {
+						currentSubject = table.nextSubject(currentSubject + 1);
+						if (currentSubject >= 0) {
+							subjectNode = subjects.getNode(currentSubject);
+							startValue(table.get(currentSubject));
+							continue;
+						}
+					}
+				}
+				if (Objects.nonNull(predicateTable)) {
+					if (Objects.nonNull(table)) {
+						return null;
+					}
+					table = predicateTable;
+				} else if (nextTable < tableList.size()) {
+					table = tableList.get(nextTable++);
+				} else {
+					return null;
+				}
+				element = Objects.isNull(object) ? null : table.encode(object);
+				currentSubject = -1;
+				startValue(subject >= 0 ? table.get(subject) : null);
+			}
+		}
+	}
+
+	/**
+	 * Iterates the triples for a URI or blank node object from the references in the object index
+	 */
+	private class ReferenceIterator extends TripleIterator {
+		private final Node object;
+		/**
+		 * Table for the predicate of the returned triples or null for any predicate
+		 */
+		private final @Nullable PredicateTable table;
+
+		/**
+		 * @param references references to the triples for the object or null if there are no triples
+		 * @param object object of the returned triples
+		 * @param table table for the predicate of the returned triples or null for any predicate
+		 */
+		ReferenceIterator(@Nullable Object references, Node object, @Nullable PredicateTable table) {
+			this.object = object;
+			this.table = table;
+			startValue(references);
+		}
+
+		@Override
+		protected @Nullable Triple advance() {
+			for (Object value = nextElement(); Objects.nonNull(value); value = nextElement()) {
+				long reference = (Long)value;
+				PredicateTable referenceTable = tableList.get((int)reference);
+				if (Objects.isNull(table) || table == referenceTable) {
+					return Triple.create(subjects.getNode((int)(reference >>> 32)), referenceTable.predicate, object);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Paged flat array from the subject number to the objects for one predicate
+	 */
+	static class PredicateTable {
+		private static final int PAGE_BITS = 5;
+		private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+		private final Node predicate;
+		/**
+		 * Predicate number used in the references of the object index
+		 */
+		private final int number;
+		private final ValueType valueType;
+		/**
+		 * Pages of the object, <code>ValueList</code> or set of objects for each subject - pages are allocated when a
+		 * subject in the page has a value and released when no subject in the page has a value
+		 */
+		private Object[][] pages = new Object[0][];
+		/**
+		 * Number of subjects with values in each page
+		 */
+		private int[] pageCounts = new int[0];
+
+		/**
+		 * @param predicate predicate of the triples in the table
+		 * @param number predicate number
+		 * @param valueType form in which the objects are held
+		 */
+		PredicateTable(Node predicate, int number, ValueType valueType) {
+			this.predicate = predicate;
+			this.number = number;
+			this.valueType = valueType;
+		}
+
+		/**
+		 * @param object object node
+		 * @return the object in the form held in the table
+		 */
+		Object encode(Node object) {
+			if (!object.isLiteral() || !object.getLiteral().isWellFormed()) {
+				return object;
+			}
+			String lexicalForm = object.getLiteralLexicalForm();
+			switch (valueType) {
+				case STRING:
+					return XSDDatatype.XSDstring.equals(object.getLiteralDatatype()) ? lexicalForm : object;
+				case INTEGER:
+					Object value = object.getLiteralValue();
+					if (XSDDatatype.XSDint.equals(object.getLiteralDatatype()) && value instanceof Integer && 
+							value.toString().equals(lexicalForm)) {
+						return value;
+					}
+					return object;
+				case BOOLEAN:
+					if (XSDDatatype.XSDboolean.equals(object.getLiteralDatatype()) && 
+							("true".equals(lexicalForm) || "false".equals(lexicalForm))) {
+						return Boolean.valueOf(lexicalForm);
+					}
+					return object;
+				case NODE:
+				default:
+					return object;
+			}
+		}
+
+		/**
+		 * @param subject subject number
+		 * @return the object, list or set of objects for the subject or null if the subject has no values
+		 */
+		@Nullable Object get(int subject) {
+			int page = subject >>> PAGE_BITS;
+			return page < pages.length && Objects.nonNull(pages[page]) ? pages[page][subject & (PAGE_SIZE - 1)] : null;
+		}
+
+		private void set(int subject, @Nullable Object value) {
+			int page = subject >>> PAGE_BITS;
+			if (page >= pages.length) {
+				int length = Math.max(page + 1, pages.length * 2);
+				pages = Arrays.copyOf(pages, length);
+				pageCounts = Arrays.copyOf(pageCounts, length);
+			}
+			Object[] values = pages[page];
+			if (Objects.isNull(values)) {
+				values = new Object[PAGE_SIZE];
+				pages[page] = values;
+			}
+			int slot = subject & (PAGE_SIZE - 1);
+			Object previous = values[slot];
+			values[slot] = value;
+			if (Objects.isNull(previous) && Objects.nonNull(value)) {
+				pageCounts[page]++;
+			} else if (Objects.nonNull(previous) && Objects.isNull(value) && --pageCounts[page] == 0) {
+				pages[page] = null;
+			}
+		}
+
+		/**
+		 * @param subject subject number
+		 * @param element object in the form held in the table
+		 * @return true if the object was added, false if it was already present
+		 */
+		boolean add(int subject, Object element) {
+			Object value = get(subject);
+			if (containsValue(value, element)) {
+				return false;
+			}
+			set(subject, addValue(value, element));
+			return true;
+		}
+
+		/**
+		 * @param subject subject number
+		 * @param element object in the form held in the table
+		 * @return true if the object was removed
+		 */
+		boolean remove(int subject, Object element) {
+			Object value = get(subject);
+			if (!containsValue(value, element)) {
+				return false;
+			}
+			set(subject, removeValue(value, element));
+			return true;
+		}
+
+		/**
+		 * @param from first subject number to check
+		 * @return the first subject number from <code>from</code> which has values or -1 if there is none
+		 */
+		int nextSubject(int from) {
+			int slot = from & (PAGE_SIZE - 1);
+			for (int page = from >>> PAGE_BITS; page < pages.length; page++, slot = 0) {
+				Object[] values = pages[page];
+				if (Objects.isNull(values)) {
+					continue;
+				}
+				for (; slot < PAGE_SIZE; slot++) {
+					if (Objects.nonNull(values[slot])) {
+						return (page << PAGE_BITS) | slot;
+					}
+				}
+			}
+			return -1;
+		}
+	}
+
+	/**
+	 * Numbers the subjects using an open addressed table from the subject to its number
+	 * <p>
+	 * The number of a subject is released when the subject has no triples and reused for the next new subject.
+	 */
+	static class SubjectIndex {
+		/**
+		 * Subject for each number - null for a released number
+		 */
+		private Node[] nodes = new Node[16];
+		/**
+		 * Hash of each subject indexed by the subject number
+		 */
+		private int[] hashes = new int[16];
+		/**
+		 * Number of triples for each subject indexed by the subject number
+		 */
+		private int[] counts = new int[16];
+		/**
+		 * Numbers assigned so far including released numbers
+		 */
+		private int limit = 0;
+		/**
+		 * Released numbers available for reuse
+		 */
+		private int[] released = new int[16];
+		private int releasedCount = 0;
+		/**
+		 * Subject number + 1 for each slot - 0 is an empty slot
+		 */
+		private int[] table = new int[32];
+
+		private static int hash(Node node) {
+			int h = node.hashCode();
+			return h ^ (h >>> 16);
+		}
+
+		/**
+		 * @param node subject node
+		 * @return the number for the subject or -1 if the node is not a subject
+		 */
+		int getId(Node node) {
+			int hash = hash(node);
+			int mask = table.length - 1;
+			for (int slot = hash & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+				int id = table[slot] - 1;
+				if (hashes[id] == hash && nodes[id].equals(node)) {
+					return id;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * @param id subject number
+		 * @return the subject
+		 */
+		Node getNode(int id) {
+			return nodes[id];
+		}
+
+		/**
+		 * @param node subject node
+		 * @return the number for the subject assigning a released or the next number if the node is not a subject
+		 */
+		int getOrCreateId(Node node) {
+			int retval = getId(node);
+			if (retval >= 0) {
+				return retval;
+			}
+			if (releasedCount > 0) {
+				retval = released[--releasedCount];
+			} else {
+				if (limit == nodes.length) {
+					nodes = Arrays.copyOf(nodes, limit * 2);
+					hashes = Arrays.copyOf(hashes, limit * 2);
+					counts = Arrays.copyOf(counts, limit * 2);
+				}
+				retval = limit++;
+			}
+			nodes[retval] = node;
+			hashes[retval] = hash(node);
+			if ((limit - releasedCount) * 4 > table.length * 3) {
+				table = new int[table.length * 2];
+				for (int id = 0; id < limit; id++) {
+					if (Objects.nonNull(nodes[id])) {
+						insert(id);
+					}
+				}
+			} else {
+				insert(retval);
+			}
+			return retval;
+		}
+
+		/**
+		 * Count a triple added for the subject
+		 * @param id subject number
+		 */
+		void retain(int id) {
+			counts[id]++;
+		}
+
+		/**
+		 * Count a triple removed for the subject releasing the number once the subject has no triples
+		 * @param id subject number
+		 */
+		void release(int id) {
+			if (--counts[id] > 0) {
+				return;
+			}
+			remove(id);
+			nodes[id] = null;
+			if (releasedCount == released.length) {
+				released = Arrays.copyOf(released, releasedCount * 2);
+			}
+			released[releasedCount++] = id;
+		}
+
+		private void insert(int id) {
+			int mask = table.length - 1;
+			int slot = hashes[id] & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id + 1;
+		}
+
+		private void remove(int id) {
+			int mask = table.length - 1;
+			int slot = hashes[id] & mask;
+			while (table[slot] != id + 1) {
+				slot = (slot + 1) & mask;
+			}
+			// move back the following entries which can no longer be reached past the emptied slot
+			for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+				int home = hashes[table[next] - 1] & mask;
+				if (((next - home) & mask) >= ((next - slot) & mask)) {
+					table[slot] = table[next];
+					slot = next;
+				}
+			}
+			table[slot] = 0;
+		}
+	}
+}
@@ -17,35 +17,41 @@
  */
 package org.spdx.spdxRdfStore;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.Spliterator;
-import java.util.Spliterators;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 
+import org.apache.jena.atlas.lib.Cache;
+import org.apache.jena.atlas.lib.CacheFactory;
 import org.apache.jena.datatypes.RDFDatatype;
 import org.apache.jena.datatypes.TypeMapper;
-import org.apache.jena.query.QueryExecution;
-import org.apache.jena.query.QueryExecutionFactory;
-import org.apache.jena.query.QuerySolution;
-import org.apache.jena.query.ResultSet;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphEvents;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
 import org.apache.jena.rdf.listeners.StatementListener;
 import org.apache.jena.rdf.model.AnonId;
 import org.apache.jena.rdf.model.Model;
@@ -57,6 +63,11 @@ import org.apache.jena.rdf.model.Resource;
 import org.apache.jena.rdf.model.ResourceFactory;
 import org.apache.jena.rdf.model.Statement;
 import org.apache.jena.rdf.model.StmtIterator;
+import org.apache.jena.riot.RDFFormat;
+import org.apache.jena.riot.system.StreamRDF;
+import org.apache.jena.riot.system.StreamRDFOps;
+import org.apache.jena.riot.system.StreamRDFWriter;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.apache.jena.vocabulary.RDF;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -109,6 +120,10 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 
 		final NodeIterator listIterator;
 		private final Property property;
+		/**
+		 * Values read within a single transaction for a transactional model, otherwise null
+		 */
+		private final Iterator<Object> values;
 
 		/**
 		 * Constructs an RdfListIterator for a given resource and property
@@ -120,17 +135,38 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		public RdfListIterator(Resource idResource, Property property) {
 			Objects.requireNonNull(idResource, "ID resource can not be null");
 			Objects.requireNonNull(property, "Property resource can not be null");
-			listIterator = model.listObjectsOfProperty(idResource, property);
 			this.property = property;
+			if (transactional) {
+				// a transactional graph can only be read within a transaction - the values are converted in one
+				model.enterCriticalSection(true);
+				try {
+					List<Object> valueList = new ArrayList<>();
+					for (RDFNode node:model.listObjectsOfProperty(idResource, property).toList()) {
+						valueList.add(valueNodeToObject(node, property).orElse(null));
+					}
+					values = valueList.iterator();
+					listIterator = null;
+				} catch (InvalidSPDXAnalysisException e) {
+					throw new RuntimeException(e);
+				} finally {
+					model.leaveCriticalSection();
+				}
+			} else {
+				listIterator = model.listObjectsOfProperty(idResource, property);
+				values = null;
+			}
 		}
 
 		@Override
 		public boolean hasNext() {
-			return listIterator.hasNext();
+			return Objects.nonNull(values) ? values.hasNext() : listIterator.hasNext();
 		}
 
 		@Override
 		public Object next() {
+			if (Objects.nonNull(values)) {
+				return values.next();
+			}
 			RDFNode node = listIterator.next();
 			if (Objects.isNull(node)) {
 				return null;
@@ -144,53 +180,200 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		}	
 	}
 	
+	/**
+	 * Cached resolution of a non-anonymous ID to a resource in the model
+	 */
+	private static final class ResolvedId {
+		/**
+		 * Node for the resolved resource
+		 */
+		final Node node;
+		/**
+		 * True if the resource is local to the document and present in the model
+		 */
+		final boolean inDocument;
+		/**
+		 * True if the resource is present in the model
+		 */
+		final boolean inModel;
+		/**
+		 * Object of the rdf:type statement for the resource or null if there is no type
+		 */
+		final RDFNode type;
+		/**
+		 * SPDX type for the resource
+		 */
+		final Optional<String> spdxType;
+		/**
+		 * True if the ID is a listed license, listed exception or listed reference type - lazily computed
+		 */
+		private volatile Boolean listedId = null;
+		
+		ResolvedId(Node node, boolean inDocument, boolean inModel, @Nullable RDFNode type) {
+			this.node = node;
+			this.inDocument = inDocument;
+			this.inModel = inModel;
+			this.type = type;
+			this.spdxType = Objects.nonNull(type) && type.isResource() ? 
+					SpdxResourceFactory.resourceToSpdxType(type.asResource()) : Optional.empty();
+		}
+		
+		/**
+		 * @param id ID which was resolved
+		 * @return true if the ID is a listed license, listed exception or listed reference type
+		 */
+		boolean isListedId(String id) {
+			Boolean result = listedId;
+			if (Objects.isNull(result)) {
+				if (ListedLicenses.getListedLicenses().isSpdxListedExceptionId(id) || 
+						ListedLicenses.getListedLicenses().isSpdxListedLicenseId(id)) {
+					result = true;
+				} else {
+					try {
+						result = ListedReferenceTypes.getListedReferenceTypes().isListedReferenceType(
+								new URI(SpdxConstantsCompatV2.SPDX_LISTED_REFERENCE_TYPES_PREFIX + id));
+					} catch (URISyntaxException e) {
+						result = false;
+					}
+				}
+				listedId = result;
+			}
+			return result;
+		}
+	}
+	
 	 /**
      * Listen for any new resources being created to make sure we update the next ID numbers
-     *
+     * <p>
+     * For a model in memory, the listener also maintains the index of SPDX types to subjects used by
+     * <code>getAllItems</code> and invalidates the cached ID resolutions
      */
 	class NextIdListener extends StatementListener {
 	    
+	    /**
+	     * Last ID added to the index of a model in memory - the statements for a subject usually arrive together
+	     */
+	    private volatile String lastAddedId = null;
+	    
 	    @Override
 	    public void addedStatement(Statement s) {
-	        if (Objects.nonNull(s.getSubject())) {
-                StmtIterator iter = s.getModel().listStatements(s.getSubject(), null, (RDFNode)null);
-                if (iter.hasNext()) {
-                    iter.next();    // we have at least one statement with this subject
-                    if (!iter.hasNext()) {
-                        // First added statement with this subject
-                        checkAddNewId(s.getSubject());
-                    }
-                }
-            }
+	        Resource subject = s.getSubject();
+	        String id = Objects.isNull(subject) ? null : IdIndex.trackedId(subject.asNode());
+	        if (Objects.nonNull(id) && isFirstStatement(subject.asNode(), id)) {
+	            ids.addId(id);
+	        }
+	        if (transactional) {
+	            return;
+	        }
+	        invalidateResolvedId(subject);
+	        invalidateResolvedId(s.getObject());
+	        if (typeProperty.equals(s.getPredicate())) {
+	            addToTypeIndex(subject, s.getObject());
+	        }
 	    }
 	    
 	    @Override
 	    public void removedStatement(Statement s) {
-            if (Objects.nonNull(s.getSubject())) {
-                StmtIterator iter = s.getModel().listStatements(s.getSubject(), null, (RDFNode)null);
-                if (!iter.hasNext()) {
-                    checkRemoveId(s.getSubject());
-                }
-            }
+	        Resource subject = s.getSubject();
+	        if (!transactional) {
+	            invalidateResolvedId(subject);
+	            invalidateResolvedId(s.getObject());
+	            if (typeProperty.equals(s.getPredicate())) {
+	                removeFromTypeIndex(subject, s.getObject());
+	            }
+	        }
+	        String id = Objects.isNull(subject) ? null : IdIndex.trackedId(subject.asNode());
+	        if (Objects.nonNull(id) && !model.getGraph().contains(subject.asNode(), Node.ANY, Node.ANY)) {
+	            // Last statement with this ID was removed
+	            ids.removeId(id);
+	            if (id.equals(lastAddedId)) {
+	                lastAddedId = null;
+	            }
+	        }
+	    }
+	    
+	    /**
+	     * @param subject subject of the added statement
+	     * @param id ID of the subject
+	     * @return true if the statement may be the first statement with the subject and the ID must be added to the index
+	     */
+	    private boolean isFirstStatement(Node subject, String id) {
+	        if (transactional) {
+	            // the graph may be shared with other stores and the transaction may be aborted, so the graph is checked
+	            model.enterCriticalSection(true);
+	            try {
+	                ExtendedIterator<Triple> iter = model.getGraph().find(subject, Node.ANY, Node.ANY);
+	                try {
+	                    if (iter.hasNext()) {
+	                        iter.next();
+	                    }
+	                    return !iter.hasNext();
+	                } finally {
+	                    iter.close();
+	                }
+	            } finally {
+	                model.leaveCriticalSection();
+	            }
+	        }
+	        if (id.equals(lastAddedId)) {
+	            return false;
+	        }
+	        lastAddedId = id;
+	        return true;
+	    }
+	    
+	    @Override
+	    public void notifyEvent(Model m, Object event) {
+	        if (GraphEvents.removeAll.equals(event)) {
+	            // the graph was cleared without notifying the individual statements
+	            lastAddedId = null;
+	            if (transactional) {
+	                ids.clearIds();
+	            } else {
+	                updateCounters();
+	            }
+	        }
 	    }
 	}
 	
 	
-	private final ReadWriteLock counterLock = new ReentrantReadWriteLock();
 	private final NextIdListener nextIdListener = new NextIdListener();
 	
+	/**
+	 * True if ID tracking has been suspended for a bulk load
+	 */
+	private volatile boolean idTrackingSuspended = false;
+	
+	/**
+	 * Maximum number of ID resolutions to cache
+	 */
+	private static final int RESOLVED_ID_CACHE_SIZE = 10000;
+	
+	/**
+	 * Cache of ID to the resolved resource including IDs which do not exist in the model
+	 * - invalidated by the <code>nextIdListener</code> and not used for a transactional model
+	 */
+	private final Cache<String, ResolvedId> resolvedIds = CacheFactory.createCache(RESOLVED_ID_CACHE_SIZE);
+	
+	/**
+	 * Map of SPDX type to the subjects of that type which are anonymous or within the document namespace
+	 * - maintained by the <code>nextIdListener</code> and not used for a transactional model
+	 */
+	private final Map<String, Set<Node>> typeIndex = new ConcurrentHashMap<>();
+	
 	private final String documentUri;
 	final protected Model model;
 	/**
-	 * Map of a lower case ID to the case-sensitive ID
+	 * Case-insensitive map of the IDs and the generated ID counters - maintained by the <code>nextIdListener</code>
 	 */
-	private final Map<String, String> idCaseSensitiveMap = new HashMap<>();
-
-	private int nextNextSpdxId = 1;
-
-	private int nextNextDocumentId = 1;
-
-	private int nextNextLicenseId = 1;
+	private final IdIndex ids;
+	
+	/**
+	 * True if the model is in a transactional dataset.  Readers of a transactional model see a snapshot and the
+	 * listener is notified of changes before they are committed, so IDs are resolved and items found by reading the
+	 * dataset indexes rather than from a cache or a type index held in memory.
+	 */
+	private final boolean transactional;
 
 	private final Property typeProperty;
 
@@ -203,14 +386,42 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	 * @param model Model used to store this document
 	 */
 	public RdfSpdxModelManager(String documentUri, Model model) {
+		this(documentUri, model, null);
+	}
+	
+	/**
+	 * Create a model manager for a model whose IDs have already been recorded, avoiding a scan of all subjects
+	 * in the model to build the ID counters and the case-insensitive ID map
+	 * <p>
+	 * A transactional model should use an index stored in its dataset so that changes to the index are committed
+	 * or aborted with the changes to the model.
+	 * @param documentUri Unique URI for this document
+	 * @param model Model used to store this document
+	 * @param ids index of the IDs in the model or null to scan the model
+	 */
+	RdfSpdxModelManager(String documentUri, Model model, @Nullable IdIndex ids) {
 		Objects.requireNonNull(documentUri, "Missing required document URI");
 		Objects.requireNonNull(model, "Missing required model");
 		this.documentUri = documentUri;
 		this.documentNamespace = documentUri + "#";
 		this.model = model;
+		this.transactional = model instanceof TransactionalModel;
 		typeProperty = model.createProperty(RDF_TYPE);
 		model.register(nextIdListener);
-		updateCounters();
+		if (Objects.isNull(ids) || !ids.isComplete()) {
+			this.ids = Objects.isNull(ids) ? new MemoryIdIndex() : ids;
+			updateCounters();
+		} else if (!transactional) {
+			this.ids = ids;
+			model.enterCriticalSection(true);
+			try {
+				rebuildTypeIndex();
+			} finally {
+				model.leaveCriticalSection();
+			}
+		} else {
+			this.ids = ids;
+		}
 		if (this.exists(SpdxConstantsCompatV2.SPDX_DOCUMENT_ID)) {
 			try {
 				this.specVersion = (String)getPropertyValue(SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, 
@@ -225,159 +436,122 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	}
 	
 	/**
-	 * Compare the next ID to the ID in the matcher.  Update if the matcher ID is greater than the current ID
-	 * @param spdxRefMatcher Matcher containing the match to the SPDX ID
+	 * Read all ID's within this model and update all the counters to be greater than the highest counter values found.
+	 * The case-insensitive ID map and the type index are rebuilt and the ID resolution cache cleared at the same time.
 	 */
-	private synchronized void checkUpdateNextSpdxId(Matcher spdxRefMatcher) {
-		counterLock.writeLock().lock();
+	private void updateCounters() {
+		// the ID index of a transactional model is written in the same transaction
+		model.enterCriticalSection(!transactional);
 		try {
-			String strNum = spdxRefMatcher.group(1);
-			int num = Integer.parseInt(strNum);
-			if (num >= this.nextNextSpdxId) {
-				this.nextNextSpdxId = num + 1;
-			}
+			rebuildIndexes(model.listSubjects(), model.listStatements(null, typeProperty, (RDFNode)null));
 		} finally {
-			counterLock.writeLock().unlock();
+			model.leaveCriticalSection();
 		}
 	}
 	
 	/**
-	 * @return current SPDX ID and increments the ID
+	 * Rebuild the case-insensitive ID map, the ID counters and, for a model in memory, the type index and clear
+	 * the ID resolution cache
+	 * @param subjects all subjects in the model
+	 * @param typeStatements all rdf:type statements in the model
 	 */
-	private int getNextSpdxId() {
-		counterLock.writeLock().lock();
-		try {
-			return this.nextNextSpdxId++;
-		} finally {
-			counterLock.writeLock().unlock();
+	private void rebuildIndexes(Iterator<? extends Resource> subjects, Iterator<Statement> typeStatements) {
+		ids.clearIds();
+		while (subjects.hasNext()) {
+			String id = IdIndex.trackedId(subjects.next().asNode());
+			if (Objects.nonNull(id)) {
+				ids.addId(id);
+			}
+		}
+		if (!transactional) {
+			rebuildTypeIndex(typeStatements);
 		}
 	}
-
+	
 	/**
-	 * Compare the next ID to the ID in the matcher.  Update if the matcher ID is greater than the current ID
-	 * @param documentRefMatcher matcher for matching document references
+	 * Rebuild the type index from the rdf:type statements in the model and clear the ID resolution cache
 	 */
-	private synchronized void checkUpdateNextDocumentId(Matcher documentRefMatcher) {
-		counterLock.writeLock().lock();
-		try {
-			String strNum = documentRefMatcher.group(1);
-			int num = Integer.parseInt(strNum);
-			if (num >= this.nextNextDocumentId) {
-				this.nextNextDocumentId = num + 1;
-			}
-		} finally {
-			counterLock.writeLock().unlock();
-		}
+	private void rebuildTypeIndex() {
+		rebuildTypeIndex(model.listStatements(null, typeProperty, (RDFNode)null));
 	}
 	
 	/**
-	 * @return the current document ID and update the counter
+	 * Rebuild the type index and clear the ID resolution cache
+	 * @param typeStatements all rdf:type statements in the model
 	 */
-	private int getNextDocumentId() {
-		counterLock.writeLock().lock();
-		try {
-			return this.nextNextDocumentId++;
-		} finally {
-			counterLock.writeLock().unlock();
-		}
+	private void rebuildTypeIndex(Iterator<Statement> typeStatements) {
+		resolvedIds.clear();
+		typeIndex.clear();
+		typeStatements.forEachRemaining(
+				(Statement stmt) -> addToTypeIndex(stmt.getSubject(), stmt.getObject()));
 	}
-
+	
 	/**
-	 * Compare the next ID to the ID in the matcher.  Update if the matcher ID is greater than the current ID
-	 * @param licenseRefMatcher  matcher for matching license references
+	 * @param subject subject of an rdf:type statement
+	 * @param type object of an rdf:type statement
+	 * @return the SPDX type if the subject belongs in the type index, otherwise empty
 	 */
-	private synchronized void checkUpdateLicenseId(Matcher licenseRefMatcher) {
-		counterLock.writeLock().lock();
-		try {
-			String strNum = licenseRefMatcher.group(1);
-			int num = Integer.parseInt(strNum);
-			if (num >= this.nextNextLicenseId) {
-				this.nextNextLicenseId = num + 1;
-			}
-		} finally {
-			counterLock.writeLock().unlock();
+	private Optional<String> typeIndexKey(Resource subject, RDFNode type) {
+		if (Objects.isNull(subject) || Objects.isNull(type) || !type.isURIResource() ||
+				(subject.isURIResource() && !subject.getURI().startsWith(documentNamespace))) {
+			return Optional.empty();
 		}
+		String typeUri = type.asResource().getURI();
+		if (!typeUri.startsWith(SpdxConstantsCompatV2.SPDX_NAMESPACE) && 
+				!typeUri.startsWith(SpdxConstantsCompatV2.DOAP_NAMESPACE) &&
+				!typeUri.startsWith(SpdxConstantsCompatV2.RDF_POINTER_NAMESPACE)) {
+			return Optional.empty();
+		}
+		return SpdxResourceFactory.resourceToSpdxType(type.asResource());
 	}
 	
 	/**
-	 * @return the current license ID and update the counter
+	 * Add the subject of an rdf:type statement to the type index
+	 * @param subject subject of the rdf:type statement
+	 * @param type object of the rdf:type statement
 	 */
-	private int getNextLicenseId() {
-		counterLock.writeLock().lock();
-		try {
-			return this.nextNextLicenseId++;
-		} finally {
-			counterLock.writeLock().unlock();
-		}
+	private void addToTypeIndex(Resource subject, RDFNode type) {
+		typeIndexKey(subject, type).ifPresent(spdxType -> 
+			typeIndex.computeIfAbsent(spdxType, k -> ConcurrentHashMap.newKeySet()).add(subject.asNode()));
 	}
 	
 	/**
-	 * Checks to see if all instances of an ID has been removed and removes the entry
-	 * from the case-insensitive map if there are no more instances
-	 * @param node RDF node
-	 */
-	private synchronized void checkRemoveId(RDFNode node) {
-		Objects.requireNonNull(node);
-		if (node.isResource() && !model.containsResource(node) && !node.isAnon()) {
-			String id = node.asResource().getLocalName();
-			if (id.startsWith(SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM) || id.startsWith(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM) ||
-					id.startsWith(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM)) {
-				this.idCaseSensitiveMap.remove(id.toLowerCase());
+	 * Remove the subject of an rdf:type statement from the type index
+	 * @param subject subject of the rdf:type statement
+	 * @param type object of the rdf:type statement
+	 */
+	private void removeFromTypeIndex(Resource subject, RDFNode type) {
+		typeIndexKey(subject, type).ifPresent(spdxType -> {
+			Set<Node> subjects = typeIndex.get(spdxType);
+			if (Objects.nonNull(subjects)) {
+				subjects.remove(subject.asNode());
 			}
-		}
+		});
 	}
 	
-	
 	/**
-	 * Checks for a new ID updating the next ID and map of case-insensitive to case-sensitive ID's
-	 * @param node RDF node
+	 * Suspend the tracking of IDs while statements are added to or removed from the model.  Useful for bulk loads
+	 * where the ID counters and the case-insensitive ID map can be rebuilt in a single pass once the load is complete.
+	 * <p>
+	 * <code>resumeIdTracking()</code> must be called before any new IDs are generated or looked up.
 	 */
-	private void checkAddNewId(RDFNode node) {
-		Objects.requireNonNull(node);
-		if (node.isResource()) {
-			if (node.isAnon()) {
-				return;
-			}
-			String id = node.asResource().getLocalName();
-			if (Objects.isNull(id)) {
-				return;
-			}
-			if (id.startsWith(SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM) || id.startsWith(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM) ||
-					id.startsWith(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM)) {
-				String previous = idCaseSensitiveMap.put(id.toLowerCase(), id);
-				if (Objects.nonNull(previous)) {
-                    logger.warn("Possibly ambiguous ID being introduced.  {} is being replaced by {}", previous, id);
-				}
-			}
-			Matcher licenseRefMatcher = RdfStore.LICENSE_ID_PATTERN_GENERATED.matcher(id);
-			if (licenseRefMatcher.matches()) {
-				checkUpdateLicenseId(licenseRefMatcher);
-				return;
-			}
-			Matcher documentIdMatcher = RdfStore.DOCUMENT_ID_PATTERN_GENERATED.matcher(id);
-			if (documentIdMatcher.matches()) {
-				checkUpdateNextDocumentId(documentIdMatcher);
-				return;
-			}
-			Matcher spdxIdMatcher = RdfStore.SPDX_ID_PATTERN_GENERATED.matcher(id);
-			if (spdxIdMatcher.matches()) {
-				checkUpdateNextSpdxId(spdxIdMatcher);
-			}
+	public synchronized void suspendIdTracking() {
+		if (!idTrackingSuspended) {
+			model.unregister(nextIdListener);
+			idTrackingSuspended = true;
 		}
 	}
-
+	
 	/**
-	 * Read all ID's within this model and update all the counters to be greater than the highest counter values found
+	 * Resume the tracking of IDs suspended by <code>suspendIdTracking()</code> rebuilding the ID counters
+	 * and the case-insensitive ID map in one pass over the model
 	 */
-	private void updateCounters() {
-		model.enterCriticalSection(true);
-		try {
-			ResIterator iter = model.listSubjects();
-			while (iter.hasNext()) {
-				checkAddNewId(iter.next());
-			}
-		} finally {
-			model.leaveCriticalSection();
+	public synchronized void resumeIdTracking() {
+		if (idTrackingSuspended) {
+			nextIdListener.lastAddedId = null;
+			model.register(nextIdListener);
+			idTrackingSuspended = false;
+			updateCounters();
 		}
 	}
 
@@ -398,16 +572,7 @@ public class RdfSpdxModelManager implements IModelStoreLock {
                     throw new RuntimeException(e);
                 }
             } else {
-                // first try local to the document
-                resource = ResourceFactory.createResource(idToUriInDocument(id));
-                if (!model.containsResource(resource)) {
-                    // Try listed license URL
-                    resource = ResourceFactory.createResource(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX + id);
-                }
-                if (!model.containsResource(resource)) {
-                    // Try listed license URL with HTTPS prefix - not correct, but we'll go ahead and match as a listed license
-                    resource = ResourceFactory.createResource(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX + id);
-                }
+                return Objects.nonNull(resolveId(id).type);
             }
             Statement statement = model.getProperty(resource.asResource(), typeProperty);
             return Objects.nonNull(statement) && Objects.nonNull(statement.getObject());
@@ -424,52 +589,97 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	*/
 	private Resource idToResource(String id) throws SpdxInvalidIdException {
 		Objects.requireNonNull(id, "Missing required ID");
-		Resource resource;
-		Optional<String> existingType;
 		if (isAnonId(id)) {
-			resource = model.createResource(idToAnonId(id));
-		} else {
+			return model.createResource(idToAnonId(id));
+		}
+		ResolvedId resolved = resolveId(id);
+		if (resolved.inDocument) {
+			// Confirm that there is a type
+			if (Objects.isNull(resolved.type) || !resolved.type.isResource() || resolved.spdxType.isEmpty()) {
+                logger.error("ID {} does not have a type.", id);
+				throw new SpdxInvalidIdException("ID "+id+" does not have a type.");
+			}
+		} else if (!resolved.inModel && !resolved.isListedId(id)) {
+			// Listed license ID's may not be defined in the local model but are still valid
+            logger.error("ID {} does not exist in the model.", id);
+			throw new SpdxInvalidIdException("ID "+id+" does not exist in the model.");
+		}
+		return model.wrapAsResource(resolved.node);
+	}
+	
+	/**
+	 * Resolve a non-anonymous ID to the resource in the model, using the cached resolution if available.
+	 * <p>
+	 * The resource local to the document is used if present in the model, otherwise the listed license URL
+	 * if present, otherwise the listed license URL with an "https" prefix.
+	 * @param id SPDX ID
+	 * @return the resolution of the ID
+	 */
+	private ResolvedId resolveId(String id) {
+		if (idTrackingSuspended || transactional) {
+			// the cache is not invalidated while the listener is unregistered and can not be kept consistent with
+			// the snapshots seen by transactions
+			return doResolveId(id);
+		}
+		ResolvedId resolved = resolvedIds.getIfPresent(id);
+		if (Objects.isNull(resolved)) {
+			resolved = doResolveId(id);
+			resolvedIds.put(id, resolved);
+		}
+		return resolved;
+	}
+	
+	/**
+	 * @param id SPDX ID
+	 * @return the resolution of the ID read from the model
+	 */
+	private ResolvedId doResolveId(String id) {
+		model.enterCriticalSection(true);
+		try {
 			// first try local to the document
-			resource = model.createResource(idToUriInDocument(id));
-			if (model.containsResource(resource)) {
-				// Confirm that there is a type
-				Statement statement = model.getProperty(resource, typeProperty);
-				if (statement == null || !statement.getObject().isResource()) {
-                    logger.error("ID {} does not have a type.", id);
-					throw new SpdxInvalidIdException("ID "+id+" does not have a type.");
-				}
-				existingType = SpdxResourceFactory.resourceToSpdxType(statement.getObject().asResource());
-				if (existingType.isEmpty()) {
-                    logger.error("ID {} does not have a type.", id);
-					throw new SpdxInvalidIdException("ID "+id+" does not have a type.");
-				}
-			} else {
+			Resource resource = model.createResource(idToUriInDocument(id));
+			boolean inDocument = model.containsResource(resource);
+			boolean inModel = inDocument;
+			if (!inModel) {
 				// Try listed license URL
 				resource = model.createResource(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX + id);
-				if (!model.containsResource(resource)) {
-				    // Check to see if it is defined with "https" instead of "http" - technically incorrect
-				    // but, we'll allow it for compatibility
-				    resource = model.createResource(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX + id);
-				}
-				if (!model.containsResource(resource)) {
-					// Check for listed license ID's - these URI's may not be defined in the local model but are still valid
-					if (!ListedLicenses.getListedLicenses().isSpdxListedExceptionId(id) && 
-							!ListedLicenses.getListedLicenses().isSpdxListedLicenseId(id)) {
-						// Try listed reference types
-						try {
-							if (!ListedReferenceTypes.getListedReferenceTypes().isListedReferenceType(new URI(SpdxConstantsCompatV2.SPDX_LISTED_REFERENCE_TYPES_PREFIX + id))) {
-                                logger.error("ID {} does not exist in the model.", id);
-								throw new SpdxInvalidIdException("ID "+id+" does not exist in the model.");
-							}
-						} catch (URISyntaxException e) {
-                            logger.error("ID {} does not exist in the model.", id);
-							throw new SpdxInvalidIdException("ID "+id+" does not exist in the model.");
-						}
-					}
-				}
+				inModel = model.containsResource(resource);
+			}
+			if (!inModel) {
+			    // Check to see if it is defined with "https" instead of "http" - technically incorrect
+			    // but, we'll allow it for compatibility
+				resource = model.createResource(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX + id);
+				inModel = model.containsResource(resource);
 			}
+			Statement statement = model.getProperty(resource, typeProperty);
+			return new ResolvedId(resource.asNode(), inDocument, inModel, Objects.isNull(statement) ? null : statement.getObject());
+		} finally {
+			model.leaveCriticalSection();
+		}
+	}
+	
+	/**
+	 * Remove any cached resolution which may be affected by a change to statements referencing the node
+	 * @param node subject or object of an added or removed statement
+	 */
+	private void invalidateResolvedId(RDFNode node) {
+		if (Objects.isNull(node) || !node.isURIResource()) {
+			return;
+		}
+		String uri = node.asResource().getURI();
+		if (uri.startsWith(documentNamespace)) {
+			try {
+				resolvedIds.remove(URLDecoder.decode(uri.substring(documentNamespace.length()), StandardCharsets.UTF_8));
+			} catch (IllegalArgumentException e) {
+				// not an encoded ID - no ID would resolve to this URI
+			}
+		}
+		if (uri.startsWith(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX)) {
+			resolvedIds.remove(uri.substring(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX.length()));
+		}
+		if (uri.startsWith(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX)) {
+			resolvedIds.remove(uri.substring(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX.length()));
 		}
-		return resource;
 	}
 	
 	/**
@@ -564,6 +774,47 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		}
 	}
 	
+	/**
+	 * Get all locally stored property values for an ID in a single pass over the statements for the resource
+	 * @param id SPDX ID
+	 * @return map of property names to the values of the property - single valued properties have a list of one value
+	 * @throws InvalidSPDXAnalysisException On SPDX parsing errors
+	 */
+	public Map<String, List<Object>> getAllPropertyValues(String id) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(id, "Missing required ID");
+		Map<String, List<Object>> retval = new LinkedHashMap<>();
+		model.enterCriticalSection(true);
+		try {
+			Resource idResource = idToResource(id);
+			StmtIterator iter = idResource.listProperties();
+			try {
+				while (iter.hasNext()) {
+					Statement statement = iter.next();
+					Property predicate = statement.getPredicate();
+					if (RDF_TYPE.equals(predicate.getURI())) {
+						continue;
+					}
+					String propertyName;
+					try {
+						propertyName = resourceToPropertyName(predicate);
+					} catch (SpdxRdfException e) {
+						logger.warn("Skipping invalid property {}", statement.getObject().toString(), e);
+						continue;
+					}
+					Optional<Object> value = valueNodeToObject(statement.getObject(), predicate);
+					if (value.isPresent()) {
+						retval.computeIfAbsent(propertyName, name -> new ArrayList<>()).add(value.get());
+					}
+				}
+			} finally {
+				iter.close();
+			}
+			return retval;
+		} finally {
+			model.leaveCriticalSection();
+		}
+	}
+	
 	/**
 	 * Convert an RDFNode to a property name
 	 * @param node RDF node for a resource
@@ -835,9 +1086,50 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	public String getNextId(IdType idType) throws InvalidSPDXAnalysisException {
 		switch (idType) {
 		case Anonymous: return RdfStore.ANON_PREFIX+ model.createResource().getId();
-		case LicenseRef: return SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM+RdfStore.GENERATED+ getNextLicenseId();
-		case DocumentRef: return SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM+RdfStore.GENERATED+ getNextDocumentId();
-		case SpdxId: return SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM+RdfStore.GENERATED+ getNextSpdxId();
+		case LicenseRef: return SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM+RdfStore.GENERATED+ ids.reserve(idType, 1);
+		case DocumentRef: return SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM+RdfStore.GENERATED+ ids.reserve(idType, 1);
+		case SpdxId: return SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM+RdfStore.GENERATED+ ids.reserve(idType, 1);
+		case ListedLicense: {
+			logger.error("Can not generate a license ID for a Listed License");
+			throw new InvalidSPDXAnalysisException("Can not generate a license ID for a Listed License");
+		}
+		default: {
+            logger.error("Unknown ID type for next ID: {}", idType);
+			throw new InvalidSPDXAnalysisException("Unknown ID type for next ID: "+ idType);
+		}
+		}
+	}
+
+	/**
+	 * Reserve a block of IDs in a single operation.  The IDs are guaranteed not to be returned by any other call to
+	 * <code>getNextId</code> or <code>reserveIds</code> for this model.
+	 * <p>
+	 * For generated SPDX, license and document IDs the block is a contiguous range of the generated ID numbers and the
+	 * returned list formats each ID on access so callers can share out sub-ranges without any further synchronization
+	 * @param idType type of ID
+	 * @param count number of IDs to reserve
+	 * @return list of the reserved IDs
+	 * @throws InvalidSPDXAnalysisException On invalid ID types or counts
+	 */
+	public List<String> reserveIds(IdType idType, int count) throws InvalidSPDXAnalysisException {
+		Objects.requireNonNull(idType, "Missing required ID type");
+		if (count < 0) {
+			throw new InvalidSPDXAnalysisException("Invalid number of IDs to reserve: " + count);
+		}
+		switch (idType) {
+		case Anonymous: {
+			List<String> retval = new ArrayList<>(count);
+			for (int i = 0; i < count; i++) {
+				retval.add(RdfStore.ANON_PREFIX + AnonId.create());
+			}
+			return Collections.unmodifiableList(retval);
+		}
+		case LicenseRef: return new GeneratedIdRange(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM + RdfStore.GENERATED,
+				ids.reserve(idType, count), count);
+		case DocumentRef: return new GeneratedIdRange(SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM + RdfStore.GENERATED,
+				ids.reserve(idType, count), count);
+		case SpdxId: return new GeneratedIdRange(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM + RdfStore.GENERATED,
+				ids.reserve(idType, count), count);
 		case ListedLicense: {
 			logger.error("Can not generate a license ID for a Listed License");
 			throw new InvalidSPDXAnalysisException("Can not generate a license ID for a Listed License");
@@ -848,6 +1140,38 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		}
 		}
 	}
+	
+	/**
+	 * Immutable list of generated IDs over a contiguous range of ID numbers - the IDs are formatted on access
+	 */
+	static class GeneratedIdRange extends AbstractList<String> implements RandomAccess {
+		
+		private final String prefix;
+		private final int start;
+		private final int size;
+		
+		/**
+		 * @param prefix prefix for all IDs in the range
+		 * @param start first ID number in the range
+		 * @param size number of IDs in the range
+		 */
+		GeneratedIdRange(String prefix, int start, int size) {
+			this.prefix = prefix;
+			this.start = start;
+			this.size = size;
+		}
+
+		@Override
+		public String get(int index) {
+			Objects.checkIndex(index, size);
+			return prefix + (start + index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
 
 	/**
 	 * Remove a property associated with a given ID and all values associated with that property
@@ -874,42 +1198,142 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	 * @return Stream of all items matching the typeFilter
 	 */
 	public Stream<TypedValue> getAllItems(@Nullable String typeFilter) {
-		String query = "SELECT ?s ?type  WHERE { ?s  <" + RDF_TYPE + ">  ?type }";
-		final QueryExecution qe = QueryExecutionFactory.create(query, model);
-		ResultSet result = qe.execSelect();
-		Stream<QuerySolution> querySolutionStream = StreamSupport
-				.stream(Spliterators.spliteratorUnknownSize(result, Spliterator.ORDERED | Spliterator.NONNULL), false)
-				.filter((QuerySolution qs) -> {
-					RDFNode subject = qs.get("s");
-					RDFNode type = qs.get("type");
-					if (type.isResource() && subject.isResource()
-						&& (!subject.isURIResource() || subject.asResource().getURI().startsWith(this.documentNamespace))) {
-						Optional<String> sType = SpdxResourceFactory.resourceToSpdxType(type.asResource());
-						if (sType.isPresent()) {
-							if (Objects.isNull(typeFilter)) {
-								return true;
-							} else {
-								return typeFilter.equals(sType.get());
-							}
-						}
+		if (transactional) {
+			return readItems(typeFilter).stream().map(item -> subjectToTypedValue(item.getKey(), item.getValue()));
+		}
+		if (Objects.isNull(typeFilter)) {
+			return typeIndex.entrySet().stream()
+					.flatMap(entry -> entry.getValue().stream()
+							.map(subject -> subjectToTypedValue(subject, entry.getKey())));
+		}
+		Set<Node> subjects = typeIndex.get(typeFilter);
+		if (Objects.isNull(subjects)) {
+			return Stream.empty();
+		}
+		return subjects.stream().map(subject -> subjectToTypedValue(subject, typeFilter));
+	}
+	
+	/**
+	 * Get all objects of TypedValue type from a snapshot of the model taken under a read lock.
+	 * <p>
+	 * Unlike <code>getAllItems</code>, the returned stream is not affected by later changes to the model, reports its
+	 * size (<code>SIZED</code> and <code>SUBSIZED</code>) and splits evenly so it can be efficiently consumed in parallel.
+	 * @param typeFilter if null, get all objects otherwise only return items that have a type equal to the filter
+	 * @return Stream of all items matching the typeFilter at the time of the call
+	 */
+	public Stream<TypedValue> getAllItemsSnapshot(@Nullable String typeFilter) {
+		Node[] subjects;
+		String[] types;
+		if (transactional) {
+			List<Entry<Node, String>> items = readItems(typeFilter);
+			return IntStream.range(0, items.size())
+					.mapToObj(i -> subjectToTypedValue(items.get(i).getKey(), items.get(i).getValue()));
+		}
+		model.enterCriticalSection(true);
+		try {
+			if (Objects.isNull(typeFilter)) {
+				List<Node> subjectList = new ArrayList<>();
+				List<String> typeList = new ArrayList<>();
+				for (Entry<String, Set<Node>> entry:typeIndex.entrySet()) {
+					for (Node subject:entry.getValue()) {
+						subjectList.add(subject);
+						typeList.add(entry.getKey());
 					}
-					return false;
-				});
-		return querySolutionStream.map((QuerySolution qs) -> {
-			RDFNode subject = qs.get("s");
-			RDFNode type = qs.get("type");
+				}
+				subjects = subjectList.toArray(new Node[0]);
+				types = typeList.toArray(new String[0]);
+			} else {
+				Set<Node> typeSubjects = typeIndex.get(typeFilter);
+				subjects = Objects.isNull(typeSubjects) ? new Node[0] : typeSubjects.toArray(new Node[0]);
+				types = null;
+			}
+		} finally {
+			model.leaveCriticalSection();
+		}
+		return IntStream.range(0, subjects.length)
+				.mapToObj(i -> subjectToTypedValue(subjects[i], Objects.isNull(types) ? typeFilter : types[i]));
+	}
+	
+	/**
+	 * @param typeFilter if null, count all objects otherwise only count items that have a type equal to the filter
+	 * @return the number of items which would be returned by <code>getAllItems</code> for the typeFilter
+	 */
+	public int countItems(@Nullable String typeFilter) {
+		if (transactional) {
+			int count = 0;
+			model.enterCriticalSection(true);
 			try {
-				Optional<String> spdxType = SpdxResourceFactory.resourceToSpdxType(type.asResource());
-				if (spdxType.isEmpty()) {
-					throw new RuntimeException(new InvalidSPDXAnalysisException("Missing type for resource"));
+				StmtIterator iter = listTypeStatements(typeFilter);
+				while (iter.hasNext()) {
+					if (isItemOfType(iter.next(), typeFilter)) {
+						count++;
+					}
 				}
-				return new TypedValue(resourceToObjectUri(subject.asResource()),
-						spdxType.get(), specVersion);
-			} catch (Exception e) {
-				logger.error("Unexpected exception converting to type");
-				throw new RuntimeException(e);
+			} finally {
+				model.leaveCriticalSection();
+			}
+			return count;
+		}
+		if (Objects.isNull(typeFilter)) {
+			return typeIndex.values().stream().mapToInt(Set::size).sum();
+		}
+		Set<Node> subjects = typeIndex.get(typeFilter);
+		return Objects.isNull(subjects) ? 0 : subjects.size();
+	}
+	
+	/**
+	 * @param typeFilter if null, list all rdf:type statements otherwise only the statements for the type
+	 * @return the rdf:type statements read from the indexes of the model
+	 */
+	private StmtIterator listTypeStatements(@Nullable String typeFilter) {
+		return model.listStatements(null, typeProperty, 
+				Objects.isNull(typeFilter) ? null : SpdxResourceFactory.typeToResource(typeFilter));
+	}
+	
+	/**
+	 * @param typeStatement rdf:type statement
+	 * @param typeFilter if null, any SPDX type otherwise the type of the item
+	 * @return true if the subject of the statement would be in the type index for the type filter
+	 */
+	private boolean isItemOfType(Statement typeStatement, @Nullable String typeFilter) {
+		Optional<String> spdxType = typeIndexKey(typeStatement.getSubject(), typeStatement.getObject());
+		return spdxType.isPresent() && (Objects.isNull(typeFilter) || typeFilter.equals(spdxType.get()));
+	}
+	
+	/**
+	 * Read the items of a transactional model from the rdf:type statements in a single read transaction
+	 * @param typeFilter if null, read all items otherwise only items that have a type equal to the filter
+	 * @return the subject and SPDX type of each item
+	 */
+	private List<Entry<Node, String>> readItems(@Nullable String typeFilter) {
+		List<Entry<Node, String>> items = new ArrayList<>();
+		model.enterCriticalSection(true);
+		try {
+			StmtIterator iter = listTypeStatements(typeFilter);
+			while (iter.hasNext()) {
+				Statement typeStatement = iter.next();
+				typeIndexKey(typeStatement.getSubject(), typeStatement.getObject())
+						.filter(spdxType -> Objects.isNull(typeFilter) || typeFilter.equals(spdxType))
+						.ifPresent(spdxType -> items.add(Map.entry(typeStatement.getSubject().asNode(), spdxType)));
 			}
-		}).onClose(qe::close);
+		} finally {
+			model.leaveCriticalSection();
+		}
+		return items;
+	}
+	
+	/**
+	 * @param subject subject node from the type index
+	 * @param spdxType SPDX type of the subject
+	 * @return typed value for the subject
+	 */
+	private TypedValue subjectToTypedValue(Node subject, String spdxType) {
+		try {
+			return new TypedValue(resourceToObjectUri(model.wrapAsResource(subject)), spdxType, specVersion);
+		} catch (Exception e) {
+			logger.error("Unexpected exception converting to type");
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
@@ -953,7 +1377,18 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		try {
 			Resource idResource = idToResource(id);
 			Property property = model.createProperty(SpdxResourceFactory.propertyNameToUri(propertyName));
-			return model.listObjectsOfProperty(idResource, property).toList().size();
+			// count the matching triples directly - the subject and predicate are fixed so each triple has a distinct object
+			ExtendedIterator<Triple> iter = model.getGraph().find(idResource.asNode(), property.asNode(), Node.ANY);
+			int count = 0;
+			try {
+				while (iter.hasNext()) {
+					iter.next();
+					count++;
+				}
+			} finally {
+				iter.close();
+			}
+			return count;
 		} finally {
 			model.leaveCriticalSection();
 		}
@@ -1280,8 +1715,80 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 		this.model.leaveCriticalSection();
 	}
 
-	public void serialize(OutputStream stream, OutputFormat outputFormat) {
-		this.model.write(stream, outputFormat.getType());
+	/**
+	 * Serialize the model
+	 * @param stream stream to write the model to
+	 * @param outputFormat format for the output
+	 * @throws SpdxRdfException on errors writing the model
+	 */
+	public void serialize(OutputStream stream, OutputFormat outputFormat) throws SpdxRdfException {
+		RDFFormat streamingFormat = outputFormat.getStreamingFormat();
+		if (OutputFormat.XML_ABBREV_FAST.equals(outputFormat)) {
+			model.enterCriticalSection(true);
+			try {
+				new SpdxRdfXmlWriter(model, documentUri).write(stream);
+			} catch (IOException e) {
+				logger.error("I/O error writing RDF/XML", e);
+				throw new SpdxRdfException("I/O error writing RDF/XML", e);
+			} finally {
+				model.leaveCriticalSection();
+			}
+		} else if (Objects.isNull(streamingFormat)) {
+			model.enterCriticalSection(true);
+			try {
+				this.model.write(stream, outputFormat.getType());
+			} finally {
+				model.leaveCriticalSection();
+			}
+		} else {
+			serializeStreaming(stream, streamingFormat, outputFormat.isGroupBySubject());
+		}
+	}
+	
+	/**
+	 * Write the triples in the model to a RIOT stream writer as the graph is iterated
+	 * @param stream output stream
+	 * @param streamingFormat RIOT format supported by <code>StreamRDFWriter</code>
+	 * @param groupBySubject if true, all triples for a subject are written together
+	 */
+	private void serializeStreaming(OutputStream stream, RDFFormat streamingFormat, boolean groupBySubject) {
+		StreamRDF writer = StreamRDFWriter.getWriterStream(stream, streamingFormat);
+		Graph graph = model.getGraph();
+		model.enterCriticalSection(true);
+		try {
+			writer.start();
+			StreamRDFOps.sendPrefixesToStream(graph.getPrefixMapping(), writer);
+			if (groupBySubject) {
+				ResIterator subjects = model.listSubjects();
+				try {
+					while (subjects.hasNext()) {
+						sendTriples(graph.find(subjects.next().asNode(), Node.ANY, Node.ANY), writer);
+					}
+				} finally {
+					subjects.close();
+				}
+			} else {
+				sendTriples(graph.find(), writer);
+			}
+			writer.finish();
+		} finally {
+			model.leaveCriticalSection();
+		}
+	}
+	
+	/**
+	 * Send triples to a stream closing the iterator when done
+	 * @param triples triples to send
+	 * @param writer stream to send the triples to
+	 */
+	private static void sendTriples(ExtendedIterator<Triple> triples, StreamRDF writer) {
+		try {
+			while (triples.hasNext()) {
+				writer.triple(triples.next());
+			}
+		} finally {
+			triples.close();
+		}
 	}
 
 	/**
@@ -1290,7 +1797,7 @@ public class RdfSpdxModelManager implements IModelStoreLock {
 	 * @return case sensitive ID
 	 */
 	public Optional<String> getCasesensitiveId(String caseInsensisitiveId) {
-		return Optional.ofNullable(this.idCaseSensitiveMap.get(caseInsensisitiveId.toLowerCase()));
+		return ids.getCaseSensitiveId(caseInsensisitiveId);
 	}
 
 	/**
@@ -17,13 +17,22 @@
  */
 package org.spdx.spdxRdfStore;
 
+import java.io.BufferedInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.regex.Pattern;
@@ -33,11 +42,21 @@ import java.util.stream.Stream;
 import javax.annotation.Nullable;
 
 import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
 import org.apache.jena.graph.Triple;
 import org.apache.jena.query.ARQ;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.sparql.core.DatasetGraph;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.TDB2Factory;
+import org.apache.jena.tdb2.sys.TDBInternal;
 import org.apache.jena.util.iterator.ExtendedIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -69,11 +88,63 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	static final Pattern LICENSE_ID_PATTERN_GENERATED = Pattern.compile(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM+GENERATED+"(\\d+)$");
 	static final String ANON_PREFIX = "__anon__";
 	static final Pattern ANON_ID_PATTERN = Pattern.compile(ANON_PREFIX+"(.+)$");
+	/**
+	 * Matches a URL scheme of two or more characters so that Windows drive letters are treated as file names
+	 */
+	private static final Pattern URL_SCHEME_PATTERN = Pattern.compile("[a-zA-Z][a-zA-Z0-9+.-]+:");
 	RdfSpdxModelManager modelManager;
 	String documentUri;
 	boolean dontStoreLicenseDetails = false;
+	boolean skipCompatibilityUpgrade = false;
 	
 	private OutputFormat outputFormat = OutputFormat.XML_ABBREV;
+	
+	private Compression compression = Compression.NONE;
+	
+	private int compressionLevel = Compression.DEFAULT_LEVEL;
+	
+	/**
+	 * Approximate size of the chunks of N-Triples parsed by each parser thread
+	 */
+	private static final int PARALLEL_PARSE_CHUNK_SIZE = 4 * 1024 * 1024;
+	
+	/**
+	 * Size of the buffer used to read local files
+	 */
+	private static final int FILE_BUFFER_SIZE = 1024 * 1024;
+	
+	private int parserThreads = 1;
+	
+	private GraphEngine graphEngine = GraphEngine.GRAPH_MEM;
+	
+	private boolean shareListedLicenses = false;
+	
+	/**
+	 * Named graph in a persistent dataset holding information about the store and the ID indexes
+	 */
+	static final Node METADATA_GRAPH = NodeFactory.createURI("urn:spdx:rdfstore:metadata");
+	private static final Node METADATA_DOCUMENT_URI = NodeFactory.createURI("urn:spdx:rdfstore:documentUri");
+	
+	/**
+	 * TDB2 dataset for a persistent store - null if the store is in memory
+	 */
+	private @Nullable Dataset dataset = null;
+	
+	/**
+	 * Model for the graph of the persistent dataset holding the document - null if the store is in memory
+	 */
+	private @Nullable TransactionalModel persistentModel = null;
+	
+	/**
+	 * Index of the IDs in the graph of the persistent dataset holding the document - null if the store is in memory
+	 */
+	private @Nullable DatasetIdIndex persistentIds = null;
+	
+	/**
+	 * Named graph holding the document in a dataset shared by a <code>MultiDocumentRdfStore</code> - null if the
+	 * store owns its dataset
+	 */
+	private @Nullable Node documentGraph = null;
 
 	static {
 		ARQ.init();		// Insure ARQ is initialized
@@ -112,7 +183,52 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	 * @param documentUri URI for the SPDX document used in this store
 	 */
 	public RdfStore(String documentUri) {
+		this(documentUri, GraphEngine.GRAPH_MEM);
+	}
+	
+	/**
+	 * Create or reopen a persistent RDF store backed by a TDB2 dataset in a local directory.
+	 * <p>
+	 * If the directory contains a store from a previous session, its document is available immediately without
+	 * re-parsing.  Otherwise, the documentUri must be set or a stream deserialized before any other methods are called.
+	 * Critical sections are mapped onto TDB2 transactions.  The store must be closed to release the dataset.
+	 * @param directory directory for the TDB2 dataset - created if it does not exist
+	 */
+	public RdfStore(Path directory) {
+		Objects.requireNonNull(directory, "Missing required directory");
+		this.dataset = TDB2Factory.connectDataset(directory.toString());
+		this.persistentModel = new TransactionalModel(dataset.asDatasetGraph().getDefaultGraph(), dataset);
+		this.persistentIds = new DatasetIdIndex(dataset.asDatasetGraph(), Quad.defaultGraphIRI);
+		reopenPersistentModel();
+	}
+	
+	/**
+	 * Create a store for a document held in a named graph of a dataset shared by a <code>MultiDocumentRdfStore</code>
+	 * @param dataset transactional dataset containing the document
+	 * @param documentUri URI for the SPDX document - also the name of the graph
+	 */
+	RdfStore(Dataset dataset, String documentUri) {
+		Objects.requireNonNull(dataset, "Missing required dataset");
+		Objects.requireNonNull(documentUri, "Missing required document URI");
+		this.dataset = dataset;
+		this.documentGraph = NodeFactory.createURI(documentUri);
+		this.persistentModel = new TransactionalModel(dataset.asDatasetGraph().getGraph(documentGraph), dataset);
+		this.persistentIds = new DatasetIdIndex(dataset.asDatasetGraph(), documentGraph);
+		if (!Txn.calculateRead(dataset, () -> SpdxConstantsCompatV2.SPDX_NAMESPACE.equals(persistentModel.getNsPrefixURI("spdx")))) {
+			Txn.executeWrite(dataset, () -> setPrefixes(persistentModel));
+		}
 		this.documentUri = documentUri;
+		this.modelManager = new RdfSpdxModelManager(documentUri, persistentModel, persistentIds);
+	}
+	
+	/**
+	 * @param documentUri URI for the SPDX document used in this store
+	 * @param graphEngine in-memory graph implementation used for the RDF model
+	 */
+	public RdfStore(String documentUri, GraphEngine graphEngine) {
+		Objects.requireNonNull(graphEngine, "Missing required graph engine");
+		this.documentUri = documentUri;
+		this.graphEngine = graphEngine;
 		modelManager = createModelManager(documentUri);
 	}
 
@@ -139,6 +255,9 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		if (Objects.nonNull(this.documentUri) && !overwrite && !Objects.equals(this.documentUri, documentUri)) {
 			throw new InvalidSPDXAnalysisException("Document URI "+this.documentUri+" already exists");
 		}
+		if (Objects.nonNull(documentGraph) && !Objects.equals(this.documentUri, documentUri)) {
+			throw new SpdxRdfException("The document URI of a document in a multi-document store can not be changed");
+		}
 		if (!Objects.equals(this.documentUri, documentUri)) {
 			this.documentUri = documentUri;
 			if (Objects.nonNull(documentUri)) {
@@ -156,6 +275,56 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		this.outputFormat = outputFormat;
 	}
 	
+	/**
+	 * @return the compression applied to serialized output
+	 */
+	public Compression getCompression() {
+		return compression;
+	}
+
+	/**
+	 * Compressed input is detected on deserialization regardless of this setting.  The compression level is checked
+	 * against the codec before any output is written.
+	 * @param compression the compression to apply to serialized output
+	 */
+	public void setCompression(Compression compression) {
+		Objects.requireNonNull(compression, "Missing required compression");
+		this.compression = compression;
+	}
+
+	/**
+	 * @return the number of threads used to parse N-Triples or N-Quads on deserialization
+	 */
+	public int getParserThreads() {
+		return parserThreads;
+	}
+
+	/**
+	 * @param parserThreads the number of threads used to parse N-Triples or N-Quads on deserialization - other formats are always parsed on a single thread
+	 */
+	public void setParserThreads(int parserThreads) {
+		if (parserThreads < 1) {
+			throw new IllegalArgumentException("Parser threads must be at least 1");
+		}
+		this.parserThreads = parserThreads;
+	}
+
+	/**
+	 * @return the compression level - <code>Compression.DEFAULT_LEVEL</code> for the default level of the codec
+	 */
+	public int getCompressionLevel() {
+		return compressionLevel;
+	}
+
+	/**
+	 * @param compressionLevel the compression level for the codec or <code>Compression.DEFAULT_LEVEL</code> for the default level of the codec
+	 * @throws SpdxRdfException if the level is not valid for the configured compression
+	 */
+	public void setCompressionLevel(int compressionLevel) throws SpdxRdfException {
+		compression.checkLevel(compressionLevel);
+		this.compressionLevel = compressionLevel;
+	}
+	
 	
 
 	/**
@@ -172,6 +341,60 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		this.dontStoreLicenseDetails = dontStoreLicenseDetails;
 	}
 
+	/**
+	 * @return the skipCompatibilityUpgrade - if true, models are not upgraded for compatibility with the current spec when deserialized
+	 */
+	public boolean isSkipCompatibilityUpgrade() {
+		return skipCompatibilityUpgrade;
+	}
+
+	/**
+	 * @param skipCompatibilityUpgrade the skipCompatibilityUpgrade to set - if true, models are not upgraded for compatibility
+	 * with the current spec when deserialized.  Only set when reading data serialized by this library which is already up to date.
+	 */
+	public void setSkipCompatibilityUpgrade(boolean skipCompatibilityUpgrade) {
+		this.skipCompatibilityUpgrade = skipCompatibilityUpgrade;
+	}
+
+	/**
+	 * @return if true, listed license and exception triples loaded from a stream are read through a process-wide license graph
+	 */
+	public boolean isShareListedLicenses() {
+		return shareListedLicenses;
+	}
+
+	/**
+	 * Share the listed license and exception triples of documents loaded into this store with all other stores in the process.
+	 * Identical license triples are then held once however many stores contain them.  Only applies to in-memory stores.
+	 * @param shareListedLicenses if true, listed license and exception triples loaded from a stream are read through a process-wide license graph
+	 */
+	public void setShareListedLicenses(boolean shareListedLicenses) {
+		this.shareListedLicenses = shareListedLicenses;
+	}
+
+	/**
+	 * @return true if the store is backed by a persistent TDB2 dataset
+	 */
+	public boolean isPersistent() {
+		return Objects.nonNull(dataset) && TDBInternal.isTDB2(dataset.asDatasetGraph());
+	}
+
+	/**
+	 * @return the in-memory graph implementation used for the RDF model
+	 */
+	public GraphEngine getGraphEngine() {
+		return graphEngine;
+	}
+
+	/**
+	 * @param graphEngine the in-memory graph implementation to use for models created by subsequent calls to
+	 * <code>setDocumentUri</code> or deserialization - the current model is not changed
+	 */
+	public void setGraphEngine(GraphEngine graphEngine) {
+		Objects.requireNonNull(graphEngine, "Missing required graph engine");
+		this.graphEngine = graphEngine;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.spdx.storage.IModelStore#exists(java.lang.String, java.lang.String)
 	 */
@@ -257,12 +480,73 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	 * @return modelManager associated with the documentUri
 	 */
 	private RdfSpdxModelManager createModelManager(String documentUri) {
-		Model model = ModelFactory.createDefaultModel();
+		if (Objects.nonNull(persistentModel)) {
+			closeModelManager();
+			persistentModel.enterCriticalSection(false);
+			try {
+				persistentModel.removeAll();
+				persistentIds.clearIds();
+				setPrefixes(persistentModel);
+				storeDocumentUri(documentUri);
+			} finally {
+				persistentModel.leaveCriticalSection();
+			}
+			return new RdfSpdxModelManager(documentUri, persistentModel, persistentIds);
+		}
+		Model model = graphEngine.createModel();
+		setPrefixes(model);
+        return new RdfSpdxModelManager(documentUri, model);
+	}
+	
+	/**
+	 * @param model model to set the SPDX namespace prefixes on
+	 */
+	static void setPrefixes(Model model) {
 		model.getGraph().getPrefixMapping().setNsPrefix("spdx", SpdxConstantsCompatV2.SPDX_NAMESPACE);
 		model.getGraph().getPrefixMapping().setNsPrefix("doap", SpdxConstantsCompatV2.DOAP_NAMESPACE);
 		model.getGraph().getPrefixMapping().setNsPrefix("ptr", SpdxConstantsCompatV2.RDF_POINTER_NAMESPACE);
 		model.getGraph().getPrefixMapping().setNsPrefix("rdfs", SpdxConstantsCompatV2.RDFS_NAMESPACE);
-        return new RdfSpdxModelManager(documentUri, model);
+	}
+	
+	/**
+	 * Record the document URI in the persistent dataset so the store can be reopened
+	 * @param documentUri document URI for the store
+	 */
+	private void storeDocumentUri(String documentUri) {
+		if (Objects.nonNull(documentGraph)) {
+			return;	// the graph name is the document URI
+		}
+		Txn.executeWrite(dataset, () -> {
+			DatasetGraph datasetGraph = dataset.asDatasetGraph();
+			datasetGraph.deleteAny(METADATA_GRAPH, METADATA_GRAPH, METADATA_DOCUMENT_URI, Node.ANY);
+			datasetGraph.add(METADATA_GRAPH, METADATA_GRAPH, METADATA_DOCUMENT_URI, NodeFactory.createLiteralString(documentUri));
+		});
+	}
+	
+	/**
+	 * Create the model manager for the document recorded in the persistent dataset, if any
+	 */
+	private void reopenPersistentModel() {
+		closeModelManager();
+		if (Objects.nonNull(documentGraph)) {
+			this.modelManager = new RdfSpdxModelManager(documentUri, persistentModel, persistentIds);
+			return;
+		}
+		this.documentUri = Txn.calculateRead(dataset, () -> {
+			Iterator<Quad> iter = dataset.asDatasetGraph().find(METADATA_GRAPH, METADATA_GRAPH, METADATA_DOCUMENT_URI, Node.ANY);
+			return iter.hasNext() ? iter.next().getObject().getLiteralLexicalForm() : null;
+		});
+		this.modelManager = Objects.isNull(documentUri) ? null : new RdfSpdxModelManager(documentUri, persistentModel, persistentIds);
+	}
+	
+	/**
+	 * Close the current model manager, if any, so that it no longer listens to changes in the model
+	 */
+	private void closeModelManager() {
+		if (Objects.nonNull(modelManager)) {
+			modelManager.close();
+			modelManager = null;
+		}
 	}
 
 	/* (non-Javadoc)
@@ -280,6 +564,27 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 
 
 
+	/**
+	 * Get all property values for an object in a single pass over the statements for the object.  This is more
+	 * efficient than calling <code>getValue</code> or <code>listValues</code> for each property when reading whole elements.
+	 * <p>
+	 * Unlike <code>getValue</code>, property values for listed licenses and exceptions which are not stored locally
+	 * are not fetched from the listed license store.
+	 * @param objectUri URI or anonymous ID of the object
+	 * @return map of property descriptors to the values for the property - single valued properties have a list of one value
+	 * @throws InvalidSPDXAnalysisException on errors reading the values
+	 */
+	public Map<PropertyDescriptor, List<Object>> getAllPropertyValues(String objectUri) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		Objects.requireNonNull(objectUri, "Missing required object URI");
+		String id = CompatibleModelStoreWrapper.objectUriToId(this, objectUri, documentUri);
+		Map<PropertyDescriptor, List<Object>> retval = new LinkedHashMap<>();
+		for (Entry<String, List<Object>> entry:modelManager.getAllPropertyValues(id).entrySet()) {
+			retval.put(CompatibleModelStoreWrapper.propNameToPropDescriptor(entry.getKey()), entry.getValue());
+		}
+		return retval;
+	}
+
 	/* (non-Javadoc)
 	 * @see org.spdx.storage.IModelStore#setValue(java.lang.String, java.lang.String, java.lang.String, java.lang.Object)
 	 */
@@ -328,6 +633,20 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		return modelManager.getNextId(idType);
 	}
 
+	/**
+	 * Reserve a block of IDs in a single operation - useful when creating a large number of elements,
+	 * possibly from multiple threads
+	 * @param idType type of ID
+	 * @param count number of IDs to reserve
+	 * @return list of IDs which will not be returned by any other call to <code>getNextId</code> or <code>reserveIds</code>
+	 * @throws InvalidSPDXAnalysisException on invalid ID types or counts
+	 */
+	public List<String> reserveIds(IdType idType, int count) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		Objects.requireNonNull(idType, "Missing required ID type");
+		return modelManager.reserveIds(idType, count);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.spdx.storage.IModelStore#removeProperty(java.lang.String, java.lang.String, java.lang.String)
 	 */
@@ -350,6 +669,28 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		return modelManager.getAllItems(typeFilter);
 	}
 
+	/**
+	 * Get all items of a type from a snapshot of the store.  The returned stream is sized, splits evenly
+	 * and is not affected by later changes to the store making it suitable for parallel processing.
+	 * @param typeFilter if null, get all items otherwise only return items that have a type equal to the filter
+	 * @return Stream of all items matching the typeFilter at the time of the call
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	public Stream<TypedValue> getAllItemsSnapshot(@Nullable String typeFilter) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		return modelManager.getAllItemsSnapshot(typeFilter);
+	}
+
+	/**
+	 * @param typeFilter if null, count all items otherwise only count items that have a type equal to the filter
+	 * @return the number of items which would be returned by <code>getAllItems</code> for the typeFilter
+	 * @throws InvalidSPDXAnalysisException if the store is closed
+	 */
+	public int countItems(@Nullable String typeFilter) throws InvalidSPDXAnalysisException {
+		checkClosed();
+		return modelManager.countItems(typeFilter);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.spdx.storage.IModelStore#removeValueFromCollection(java.lang.String, java.lang.String, java.lang.String, java.lang.Object)
 	 */
@@ -487,6 +828,9 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	
 	/**
 	 * Load a document from a file or URL
+	 * <p>
+	 * Local files, given as a file name or a <code>file:</code> URL, are read through a large buffer and closed once the
+	 * file is loaded.  Any other URL is read as a stream.
 	 * @param fileNameOrUrl file name or URL of a serialized RDF model
 	 * @param overwrite if true, overwrite any existing documents with the same document URI
 	 * @return the DocumentURI of the SPDX document
@@ -494,7 +838,9 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	 * @throws IOException on IO error
 	 */
 	public String loadModelFromFile(String fileNameOrUrl, boolean overwrite) throws InvalidSPDXAnalysisException, IOException {
-		InputStream spdxRdfInput = RDFDataMgr.open(fileNameOrUrl);
+		Optional<Path> localFile = toLocalFile(fileNameOrUrl);
+		InputStream spdxRdfInput = localFile.isPresent() ? new BufferedInputStream(Files.newInputStream(localFile.get()), FILE_BUFFER_SIZE) :
+				RDFDataMgr.open(fileNameOrUrl);
 		if (Objects.isNull(spdxRdfInput)) {
 		    throw new FileNotFoundException(fileNameOrUrl + " not found.");
 		}
@@ -510,12 +856,32 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		}
 	}
 	
+	/**
+	 * @param fileNameOrUrl file name or URL
+	 * @return the path to the regular file if the file name or URL refers to a local file
+	 */
+	static Optional<Path> toLocalFile(String fileNameOrUrl) {
+		try {
+			Path path;
+			if (fileNameOrUrl.regionMatches(true, 0, "file:", 0, 5)) {
+				path = Paths.get(URI.create(fileNameOrUrl));
+			} else if (URL_SCHEME_PATTERN.matcher(fileNameOrUrl).lookingAt()) {
+				return Optional.empty();
+			} else {
+				path = Paths.get(fileNameOrUrl);
+			}
+			return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+		} catch (IllegalArgumentException | FileSystemNotFoundException e) {
+			return Optional.empty();
+		}
+	}
+	
 	/**
 	 * Form the document namespace URI from the SPDX document URI
 	 * @param docUriString String form of the SPDX document URI
 	 * @return document namespace
 	 */
-	private static String formDocNamespace(String docUriString) {
+	static String formDocNamespace(String docUriString) {
 		// just remove any fragments for the DOC URI
 		int fragmentIndex = docUriString.indexOf('#');
 		if (fragmentIndex <= 0) {
@@ -534,11 +900,16 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 		Node spdxDocObject = model.getProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE, 
 				SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT).asNode();
 		Triple m = Triple.createMatch(null, rdfTypePredicate, spdxDocObject);
-		ExtendedIterator<Triple> tripleIter = model.getGraph().find(m);	// find the document
 		List<Node> retval = new ArrayList<>();
-		while (tripleIter.hasNext()) {
-			Triple docTriple = tripleIter.next();
-			retval.add(docTriple.getSubject());
+		model.enterCriticalSection(true);
+		try {
+			ExtendedIterator<Triple> tripleIter = model.getGraph().find(m);	// find the document
+			while (tripleIter.hasNext()) {
+				Triple docTriple = tripleIter.next();
+				retval.add(docTriple.getSubject());
+			}
+		} finally {
+			model.leaveCriticalSection();
 		}
 		return retval;
 	}
@@ -549,8 +920,17 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
 	 */
 	public static List<String> getDocumentNamespaces(Model model) throws InvalidSPDXAnalysisException {
+		return documentNodesToNamespaces(getSpdxDocNodes(model));
+	}
+	
+	/**
+	 * @param documentNodes nodes for SPDX documents
+	 * @return the document namespaces for the documents
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
+	 */
+	static List<String> documentNodesToNamespaces(List<Node> documentNodes) throws InvalidSPDXAnalysisException {
 		List<String> retval = new ArrayList<>();
-		for (Node documentNode:getSpdxDocNodes(model)) {
+		for (Node documentNode:documentNodes) {
 			if (documentNode == null) {
 				throw(new InvalidSPDXAnalysisException("Invalid model - must contain an SPDX Document"));
 			}
@@ -566,7 +946,48 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 	@Override
 	public void serialize(OutputStream stream) throws InvalidSPDXAnalysisException {
 		checkClosed();
-		modelManager.serialize(stream, outputFormat);
+		serializeCompressed(stream);
+	}
+	
+	/**
+	 * Serialize the model applying the configured compression
+	 * @param stream stream to write the serialized model to
+	 * @throws InvalidSPDXAnalysisException on errors serializing the model
+	 */
+	private void serializeCompressed(OutputStream stream) throws InvalidSPDXAnalysisException {
+		if (Compression.NONE.equals(compression)) {
+			modelManager.serialize(stream, outputFormat);
+			return;
+		}
+		try (OutputStream compressedStream = compression.compress(stream, compressionLevel)) {
+			modelManager.serialize(compressedStream, outputFormat);
+		} catch (IOException e) {
+			logger.error("I/O error compressing serialized model", e);
+			throw new SpdxRdfException("I/O error compressing serialized model", e);
+		}
+	}
+	
+	/**
+	 * Stream a model from a stream in the configured output format decompressing the stream if it is compressed
+	 * @param stream stream containing the serialized model
+	 * @param model empty model to read into
+	 * @param ids empty index to record the IDs of the model in
+	 * @return loader containing the model read from the stream
+	 * @throws InvalidSPDXAnalysisException on errors reading the stream
+	 */
+	private SpdxStreamLoader readModel(InputStream stream, Model model, IdIndex ids) throws InvalidSPDXAnalysisException {
+		try {
+			InputStream decompressedStream = Compression.decompress(stream);
+			Lang lang = RDFLanguages.nameToLang(this.outputFormat.getType());
+			if (parserThreads > 1 && (RDFLanguages.sameLang(Lang.NTRIPLES, lang) || RDFLanguages.sameLang(Lang.NQUADS, lang))) {
+				return SpdxStreamLoader.loadParallel(decompressedStream, lang, parserThreads, PARALLEL_PARSE_CHUNK_SIZE, model, ids);
+			} else {
+				return SpdxStreamLoader.load(decompressedStream, this.outputFormat, model, ids);
+			}
+		} catch (IOException e) {
+			logger.error("I/O error reading serialized model", e);
+			throw new SpdxRdfException("I/O error reading serialized model", e);
+		}
 	}
 	
 	@Override
@@ -582,32 +1003,20 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 				throw new InvalidSPDXAnalysisException(((SpdxDocument)spdxDocument).getDocumentUri() + " not found in model store");
 			}
 		}
-		modelManager.serialize(stream, outputFormat);
+		serializeCompressed(stream);
 	}
 
 	@Override
 	public SpdxDocument deSerialize(InputStream stream, boolean overwrite) throws InvalidSPDXAnalysisException {
-		Model model = ModelFactory.createDefaultModel();
-		model.read(stream, null, this.outputFormat.getType());
-		List<String> documentNamespaces = getDocumentNamespaces(model);
-		if (documentNamespaces.size() > 1) {
-			throw new InvalidSPDXAnalysisException("Can only deserialize SPDX version 2 RDF documents with a single SPDX document");
-		}
-		if (documentNamespaces.isEmpty()) {
-			throw new InvalidSPDXAnalysisException("Missing SPDX document");
-		}
-		String documentNamespace = documentNamespaces.get(0);
-		CompatibilityUpgrader.upgrade(model, documentNamespace);
-		if (Objects.nonNull(modelManager) && !getDocumentNamespaces(modelManager.getModel()).isEmpty()) {
-			if (overwrite) {
-                logger.warn("Overwriting previous model from file for document URI {}", documentNamespace);
-			} else {
-				throw new SpdxRdfException("RDF Store contains data and overwrite is set to false");
-			}
-		}
-		this.modelManager = new RdfSpdxModelManager(documentNamespace, model);
-		this.documentUri = documentNamespace;
-		
+		return getSpdxDocument(loadModel(stream, overwrite, null));
+	}
+	
+	/**
+	 * @param documentNamespace namespace of the SPDX document in this store
+	 * @return the SPDX document
+	 * @throws InvalidSPDXAnalysisException if the store does not contain the SPDX document
+	 */
+	SpdxDocument getSpdxDocument(String documentNamespace) throws InvalidSPDXAnalysisException {
 		@SuppressWarnings("unchecked")
 		Stream<SpdxDocument> documentStream = (Stream<SpdxDocument>)SpdxModelFactory.getSpdxObjects(this, null, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, 
 				documentNamespace + "#" + SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, documentNamespace);
@@ -627,19 +1036,105 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
      * @throws InvalidSPDXAnalysisException on SPDX parsing errors
      */
 	public void deSerialize(InputStream stream, boolean overwrite, String documentNamespace) throws InvalidSPDXAnalysisException {
-        Model model = ModelFactory.createDefaultModel();
-        model.read(stream, null, this.outputFormat.getType());
-        CompatibilityUpgrader.upgrade(model, documentNamespace);
-        if (!getDocumentNamespaces(modelManager.getModel()).isEmpty())  {
-            if (overwrite) {
-                logger.warn("Overwriting previous model from file for document URI {}", documentNamespace);
-            } else {
-                throw new SpdxRdfException("Document "+documentNamespace+" is already open in the RDF Store");
-            }
-        }
-        this.modelManager = new RdfSpdxModelManager(documentNamespace, model);
-        this.documentUri = documentNamespace;
+		Objects.requireNonNull(documentNamespace, "Missing required document namespace");
+		loadModel(stream, overwrite, documentNamespace);
     }
+	
+	/**
+	 * Read a stream, upgrade it for compatibility and replace the current model with the result.
+	 * <p>
+	 * For a persistent store, the stream is loaded directly into the dataset in a single write transaction which
+	 * is aborted if the stream can not be loaded.
+	 * @param stream stream containing the SPDX data
+	 * @param overwrite if true, overwrite any existing SPDX documents in the store
+	 * @param documentNamespace document namespace to use or null to use the namespace of the single SPDX document in the stream
+	 * @return the document namespace
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
+	 */
+	private String loadModel(InputStream stream, boolean overwrite, @Nullable String documentNamespace) throws InvalidSPDXAnalysisException {
+		if (Objects.isNull(persistentModel)) {
+			SpdxStreamLoader loader = readModel(stream, graphEngine.createModel(), new MemoryIdIndex());
+			String namespace = upgrade(loader, documentNamespace);
+			checkOverwrite(overwrite, namespace, Objects.isNull(documentNamespace));
+			if (shareListedLicenses) {
+				Model sharedModel = ModelFactory.createModelForGraph(SharedLicenseGraph.share(loader.getModel().getGraph()));
+				this.modelManager = loader.createModelManager(namespace, sharedModel);
+			} else {
+				this.modelManager = loader.createModelManager(namespace);
+			}
+			this.documentUri = namespace;
+			return namespace;
+		}
+		checkOverwrite(overwrite, Objects.isNull(documentNamespace) ? documentUri : documentNamespace, Objects.isNull(documentNamespace));
+		boolean committed = false;
+		dataset.begin(TxnType.WRITE);
+		try {
+			closeModelManager();
+			persistentModel.removeAll();
+			persistentIds.clearIds();
+			SpdxStreamLoader loader = readModel(stream, persistentModel, persistentIds);
+			String namespace = upgrade(loader, documentNamespace);
+			if (Objects.nonNull(documentGraph) && !documentGraph.getURI().equals(namespace)) {
+				throw new SpdxRdfException("Document "+namespace+" can not be loaded into the store for document "+documentGraph.getURI());
+			}
+			storeDocumentUri(namespace);
+			this.modelManager = loader.createModelManager(namespace);
+			this.documentUri = namespace;
+			dataset.commit();
+			committed = true;
+			return namespace;
+		} finally {
+			if (!committed) {
+				dataset.abort();
+			}
+			dataset.end();
+			if (!committed) {
+				reopenPersistentModel();
+			}
+		}
+	}
+	
+	/**
+	 * @param loader loader containing the model read from a stream
+	 * @param documentNamespace document namespace to use or null to use the namespace of the single SPDX document in the model
+	 * @return the document namespace
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
+	 */
+	private String upgrade(SpdxStreamLoader loader, @Nullable String documentNamespace) throws InvalidSPDXAnalysisException {
+		String namespace = documentNamespace;
+		if (Objects.isNull(namespace)) {
+			List<String> documentNamespaces = loader.getDocumentNamespaces();
+			if (documentNamespaces.size() > 1) {
+				throw new InvalidSPDXAnalysisException("Can only deserialize SPDX version 2 RDF documents with a single SPDX document");
+			}
+			if (documentNamespaces.isEmpty()) {
+				throw new InvalidSPDXAnalysisException("Missing SPDX document");
+			}
+			namespace = documentNamespaces.get(0);
+		}
+		if (!skipCompatibilityUpgrade) {
+			loader.upgrade(namespace);
+		}
+		return namespace;
+	}
+	
+	/**
+	 * @param overwrite if true, overwrite any existing SPDX documents in the store
+	 * @param documentNamespace document namespace being loaded
+	 * @param wholeDocument true if a complete SPDX document is being loaded
+	 * @throws SpdxRdfException if the store already contains an SPDX document and overwrite is false
+	 */
+	private void checkOverwrite(boolean overwrite, @Nullable String documentNamespace, boolean wholeDocument) throws InvalidSPDXAnalysisException {
+		if (Objects.nonNull(modelManager) && !getDocumentNamespaces(modelManager.getModel()).isEmpty()) {
+			if (overwrite) {
+                logger.warn("Overwriting previous model from file for document URI {}", documentNamespace);
+			} else if (wholeDocument) {
+				throw new SpdxRdfException("RDF Store contains data and overwrite is set to false");
+			} else {
+				throw new SpdxRdfException("Document "+documentNamespace+" is already open in the RDF Store");
+			}
+		}
+	}
 
 	@Override
 	public Optional<String> getCaseSensitiveId(String documentUri, String caseInsensisitiveId) {
@@ -673,9 +1168,18 @@ public class RdfStore implements IModelStore, ISerializableModelStore {
 
 	@Override
 	public void close() {
-		if (Objects.nonNull(modelManager)) {
-			modelManager.close();
-			modelManager = null;
+		closeModelManager();
+		if (Objects.nonNull(documentGraph)) {
+			// the dataset is owned by the multi-document store
+			dataset = null;
+			persistentModel = null;
+			persistentIds = null;
+		} else if (Objects.nonNull(dataset)) {
+			dataset.close();
+			TDBInternal.expel(dataset.asDatasetGraph());
+			dataset = null;
+			persistentModel = null;
+			persistentIds = null;
 		}
 	}
 }
@@ -0,0 +1,271 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.WrappedGraph;
+import org.apache.jena.sparql.util.IsoMatcher;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.util.iterator.WrappedIterator;
+import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+
+/**
+ * Graph which reads listed license and listed exception triples from sets of triples shared by all stores
+ * <p>
+ * The triples for each listed license subject are interned by content, so stores holding the same version of a
+ * license share one immutable set of triples while a store holding another version of the license list shares with
+ * the stores holding that version.  Shared triples are removed from the local graph so each version of a license is
+ * held once no matter how many stores contain it.  An interned set is released once no graph reads it.  Triples with
+ * a blank node object, such as cross references, are never shared.  A shared set is never modified - a change to a
+ * shared subject first copies its triples back into the local graph.
+ *
+ * @author Gary O'Neall
+ */
+class SharedLicenseGraph extends WrappedGraph {
+
+	private static final String HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX = SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX.replaceAll("http:", "https:");
+
+	/**
+	 * Process-wide map of the content of the immutable set of triples for a listed license or exception subject to the
+	 * canonical set with that content - the canonical sets are held by the graphs sharing them and an entry is removed
+	 * once its set is no longer held
+	 */
+	private static final Map<Set<Triple>, WeakReference<Set<Triple>>> LICENSE_TRIPLES = new WeakHashMap<>();
+
+	/**
+	 * Subjects whose triples are read from a shared set to the shared set of triples
+	 */
+	private final Map<Node, Set<Triple>> sharedSubjects = new ConcurrentHashMap<>();
+
+	/**
+	 * @param local graph holding the triples for the store
+	 */
+	private SharedLicenseGraph(Graph local) {
+		super(local);
+	}
+
+	/**
+	 * Create a graph over a local graph moving any listed license triples which match the process-wide
+	 * license graph out of the local graph.  Events are not generated for the moved triples since the
+	 * returned graph contains the same triples as the local graph.
+	 * @param local graph holding the triples for the store
+	 * @return graph reading the listed license triples from the process-wide license graph
+	 */
+	static SharedLicenseGraph share(Graph local) {
+		Objects.requireNonNull(local, "Missing required local graph");
+		SharedLicenseGraph retval = new SharedLicenseGraph(local);
+		Map<Node, Set<Triple>> licenseTriples = new HashMap<>();
+		local.find().forEachRemaining(triple -> {
+			if (isListedLicenseNode(triple.getSubject()) && !triple.getObject().isBlank()) {
+				licenseTriples.computeIfAbsent(triple.getSubject(), subject -> new HashSet<>()).add(triple);
+			}
+		});
+		for (Entry<Node, Set<Triple>> entry:licenseTriples.entrySet()) {
+			Set<Triple> shared = intern(entry.getValue());
+			for (Triple triple:shared) {
+				local.delete(triple);
+			}
+			retval.sharedSubjects.put(entry.getKey(), shared);
+		}
+		return retval;
+	}
+	
+	/**
+	 * @param triples triples for a listed license or exception subject
+	 * @return the canonical immutable set of triples with the same content
+	 */
+	private static Set<Triple> intern(Set<Triple> triples) {
+		synchronized (LICENSE_TRIPLES) {
+			WeakReference<Set<Triple>> reference = LICENSE_TRIPLES.get(triples);
+			Set<Triple> retval = Objects.isNull(reference) ? null : reference.get();
+			if (Objects.isNull(retval)) {
+				retval = Set.copyOf(triples);
+				LICENSE_TRIPLES.put(retval, new WeakReference<>(retval));
+			}
+			return retval;
+		}
+	}
+
+	/**
+	 * @param node node
+	 * @return true if the node is the URI of a listed license or listed exception
+	 */
+	private static boolean isListedLicenseNode(Node node) {
+		return node.isURI() && (node.getURI().startsWith(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX) ||
+				node.getURI().startsWith(HTTPS_LISTED_LICENSE_NAMESPACE_PREFIX));
+	}
+
+	/**
+	 * @return number of subjects read from the process-wide license graph
+	 */
+	int getSharedSubjectCount() {
+		return sharedSubjects.size();
+	}
+	
+	/**
+	 * @param subject listed license or exception subject
+	 * @return the shared set of triples read for the subject or null if the subject is not shared
+	 */
+	@Nullable Set<Triple> getSharedTriples(Node subject) {
+		return sharedSubjects.get(subject);
+	}
+
+	/**
+	 * Copy the triples for shared subjects with triples matching the pattern back into the local graph
+	 * so that they can be modified
+	 */
+	private void unshare(Node s, Node p, Node o) {
+		if (sharedSubjects.isEmpty()) {
+			return;
+		}
+		List<Node> subjects = new ArrayList<>();
+		if (s.isConcrete()) {
+			if (sharedSubjects.containsKey(s)) {
+				subjects.add(s);
+			}
+		} else {
+			Triple pattern = Triple.createMatch(s, p, o);
+			for (Entry<Node, Set<Triple>> entry:sharedSubjects.entrySet()) {
+				if (entry.getValue().stream().anyMatch(pattern::matches)) {
+					subjects.add(entry.getKey());
+				}
+			}
+		}
+		for (Node subject:subjects) {
+			Set<Triple> shared = sharedSubjects.remove(subject);
+			if (Objects.nonNull(shared)) {
+				for (Triple triple:shared) {
+					base.add(triple);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return shared triples matching the pattern
+	 */
+	private Iterator<Triple> findShared(Node s, Node p, Node o) {
+		Triple pattern = Triple.createMatch(s, p, o);
+		if (s.isConcrete()) {
+			Set<Triple> shared = sharedSubjects.get(s);
+			if (Objects.isNull(shared)) {
+				return WrappedIterator.emptyIterator();
+			}
+			return shared.stream().filter(pattern::matches).iterator();
+		}
+		return sharedSubjects.values().stream()
+				.flatMap(Set::stream)
+				.filter(pattern::matches)
+				.iterator();
+	}
+
+	@Override
+	public void add(Triple t) {
+		unshare(t.getSubject(), Node.ANY, Node.ANY);
+		super.add(t);
+	}
+
+	@Override
+	public void performAdd(Triple t) {
+		unshare(t.getSubject(), Node.ANY, Node.ANY);
+		super.performAdd(t);
+	}
+
+	@Override
+	public void delete(Triple t) {
+		unshare(t.getSubject(), Node.ANY, Node.ANY);
+		super.delete(t);
+	}
+
+	@Override
+	public void performDelete(Triple t) {
+		unshare(t.getSubject(), Node.ANY, Node.ANY);
+		super.performDelete(t);
+	}
+
+	@Override
+	public void remove(Node s, Node p, Node o) {
+		unshare(s, p, o);
+		super.remove(s, p, o);
+	}
+
+	@Override
+	public void clear() {
+		sharedSubjects.clear();
+		super.clear();
+	}
+
+	@Override
+	public ExtendedIterator<Triple> find(Triple m) {
+		return find(m.getMatchSubject(), m.getMatchPredicate(), m.getMatchObject());
+	}
+
+	@Override
+	public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+		if (sharedSubjects.isEmpty()) {
+			return super.find(s, p, o);
+		}
+		return super.find(s, p, o).andThen(findShared(s, p, o));
+	}
+
+	@Override
+	public boolean contains(Node s, Node p, Node o) {
+		return super.contains(s, p, o) || findShared(s, p, o).hasNext();
+	}
+
+	@Override
+	public boolean contains(Triple t) {
+		return contains(t.getSubject(), t.getPredicate(), t.getObject());
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return sharedSubjects.isEmpty() && super.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		int retval = super.size();
+		for (Set<Triple> shared:sharedSubjects.values()) {
+			retval += shared.size();
+		}
+		return retval;
+	}
+
+	@Override
+	public boolean isIsomorphicWith(Graph g) {
+		return IsoMatcher.isomorphic(this, g);
+	}
+}
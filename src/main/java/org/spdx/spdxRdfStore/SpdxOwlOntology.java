@@ -19,30 +19,31 @@ package org.spdx.spdxRdfStore;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
-import org.apache.jena.ontology.DatatypeProperty;
-import org.apache.jena.ontology.OntClass;
 import org.apache.jena.ontology.OntModel;
 import org.apache.jena.ontology.OntModelSpec;
-import org.apache.jena.ontology.OntProperty;
-import org.apache.jena.ontology.OntResource;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.apache.jena.rdf.model.Property;
-import org.apache.jena.rdf.model.Statement;
-import org.apache.jena.util.iterator.ExtendedIterator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+import org.spdx.spdxRdfStore.SpdxOwlOntologyMetadata.PropertyRestrictions;
 
 /**
  * Singleton class to manage the OWL ontology
+ * <p>
+ * The property restrictions for all classes are compiled into an immutable table from the OWL ontology at build
+ * time (see {@link SpdxOwlOntologyMetadata}) so that lookups do not need to parse the ontology or traverse
+ * the OWL class hierarchy
  * 
  * @author Gary O'Neall
  */
@@ -55,18 +56,25 @@ public class SpdxOwlOntology {
 	
 	static final String ONTOLOGY_PATH = "/resources/spdx-2-3-revision-2-ontology.owl.xml";
 	
-	private final OntModel model;
+	/**
+	 * OWL model - only loaded if requested through <code>getModel()</code> or if the generated metadata is not available
+	 */
+	private volatile OntModel model = null;
+	
+	/**
+	 * Restrictions compiled from the ontology indexed by class URI then OWL property URI
+	 */
+	private final Map<String, Map<String, PropertyRestrictions>> restrictionTable;
 	
-	Property PROP_MIN_CARDINALITY;
-	Property PROP_MIN_QUAL_CARDINALITY;
-	Property PROP_MAX_CARDINALITY;
-	Property PROP_MAX_QUAL_CARDINALITY;
-	Property PROP_CARDINALITY;
-	Property PROP_QUAL_CARDINALITY;
-	Property ON_PROPERTY_PROPERTY;
-	Property RANGE_PROPERTY;
-	Property ON_CLASS_PROPERTY;
-	Property ON_DATA_RANGE_PROPERTY;
+	/**
+	 * URIs for all properties defined in the ontology
+	 */
+	private final Set<String> ontPropertyUris;
+	
+	/**
+	 * Map of datatype property URIs to the Java class that best matches the property range
+	 */
+	private final Map<String, Class<?>> propertyClasses;
 	
 	static final Map<String, Class<?>> DATA_TYPE_TO_CLASS;
 	
@@ -99,25 +107,32 @@ public class SpdxOwlOntology {
 	}
 
 	/**
-	 * 
+	 * Loads the metadata generated from the OWL ontology at build time.  If the generated metadata is not available,
+	 * the OWL ontology is parsed and the metadata is compiled from the ontology.
 	 */
 	private SpdxOwlOntology() {
+		SpdxOwlOntologyMetadata metadata = SpdxOwlOntologyMetadata.loadGenerated();
+		if (Objects.isNull(metadata)) {
+			logger.debug("Generated SPDX ontology metadata not found - parsing the OWL ontology");
+			model = loadOntologyModel();
+			metadata = SpdxOwlOntologyMetadata.compile(model);
+		}
+		restrictionTable = metadata.getRestrictionTable();
+		ontPropertyUris = metadata.getOntPropertyUris();
+		propertyClasses = metadata.getPropertyClasses();
+	}
+	
+	/**
+	 * @return a new OWL model read from the SPDX OWL ontology file
+	 */
+	static OntModel loadOntologyModel() {
 		try (InputStream is = SpdxOwlOntology.class.getResourceAsStream(ONTOLOGY_PATH)) {
 			if (Objects.isNull(is)) {
 				throw new RuntimeException("Can not open SPDX OWL ontology file");
 			}
-			model = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
-			model.read(is, "RDF/XML");
-			PROP_MIN_CARDINALITY = model.createProperty("http://www.w3.org/2002/07/owl#minCardinality");
-			PROP_MIN_QUAL_CARDINALITY = model.createProperty("http://www.w3.org/2002/07/owl#minQualifiedCardinality");
-			PROP_MAX_CARDINALITY = model.createProperty("http://www.w3.org/2002/07/owl#maxCardinality");
-			PROP_MAX_QUAL_CARDINALITY = model.createProperty("http://www.w3.org/2002/07/owl#maxQualifiedCardinality");
-			PROP_CARDINALITY = model.createProperty("http://www.w3.org/2002/07/owl#cardinality");
-			ON_PROPERTY_PROPERTY = model.createProperty("http://www.w3.org/2002/07/owl#onProperty");
-			RANGE_PROPERTY = model.getProperty("http://www.w3.org/2000/01/rdf-schema#range");
-			PROP_QUAL_CARDINALITY = model.getProperty("http://www.w3.org/2002/07/owl#qualifiedCardinality");
-			ON_CLASS_PROPERTY = model.getProperty("http://www.w3.org/2002/07/owl#onClass");
-			ON_DATA_RANGE_PROPERTY = model.getProperty("http://www.w3.org/2002/07/owl#onDataRange");
+			OntModel retval = ModelFactory.createOntologyModel(OntModelSpec.OWL_MEM);
+			retval.read(is, "RDF/XML");
+			return retval;
 		} catch (IOException e) {
 			throw new RuntimeException("I/O error in the SPDX OWL ontology file",e);
 		}
@@ -162,29 +177,24 @@ public class SpdxOwlOntology {
 		if (!p.isURIResource()) {
 			return Optional.empty();
 		}
-		String propertyUri = checkGetOwlUriFromRenamed(p.getURI());
-		
-		DatatypeProperty dataProperty = this.model.getDatatypeProperty(propertyUri);
-		if (Objects.isNull(dataProperty)) {
-			return Optional.empty();
-		}
-		ExtendedIterator<? extends OntResource> rangeIter = dataProperty.listRange();
-		while (rangeIter.hasNext()) {
-			OntResource range = rangeIter.next();
-			if (range.isURIResource()) {
-				Class<?> retval = DATA_TYPE_TO_CLASS.get(range.getURI());
-				if (Objects.nonNull(retval)) {
-					return Optional.of(retval);
-				} else {
-                    logger.warn("Unknown data type: {}", range);
-				}
-			}
-		}
-		return Optional.empty();
+		return Optional.ofNullable(propertyClasses.get(checkGetOwlUriFromRenamed(p.getURI())));
 	}
 	
+	/**
+	 * @return the OWL model for the SPDX ontology - the ontology is parsed on the first call
+	 */
 	public OntModel getModel() {
-		return this.model;
+		OntModel retval = this.model;
+		if (Objects.isNull(retval)) {
+			synchronized (this) {
+				retval = this.model;
+				if (Objects.isNull(retval)) {
+					retval = loadOntologyModel();
+					this.model = retval;
+				}
+			}
+		}
+		return retval;
 	}
 	
 	/**
@@ -196,29 +206,14 @@ public class SpdxOwlOntology {
 	public List<String> getClassUriRestrictions(String classUri, String propertyUri) throws SpdxRdfException {
 		Objects.requireNonNull(classUri, "Missing class URI");
 		Objects.requireNonNull(propertyUri, "Missing property URI");
-		OntClass ontClass = model.getOntClass(classUri);
-		if (Objects.isNull(ontClass)) {
-			if (classUri.endsWith("GenericSpdxElement")) {
-				ontClass = model.getOntClass(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_ELEMENT);
-			} else {
-                logger.warn("{} is not an SPDX class", classUri);
-				throw new SpdxRdfException(classUri + " is not an SPDX class");
-			}
-		}
-		OntProperty property = model.getOntProperty(checkGetOwlUriFromRenamed(propertyUri));
-		if (Objects.isNull(property)) {
+		Map<String, PropertyRestrictions> classRestrictions = getClassRestrictions(classUri);
+		String owlPropertyUri = checkGetOwlUriFromRenamed(propertyUri);
+		if (!ontPropertyUris.contains(owlPropertyUri)) {
             logger.warn("{} is not an SPDX property", propertyUri);
 			throw new MissingDataTypeAndClassRestriction(propertyUri + " is not an SPDX property");
 		}
-		List<Statement> propertyRestrictions = new ArrayList<>();
-		addPropertyRestrictions(ontClass, property, propertyRestrictions);
-		List<String> retval = new ArrayList<>();
-		for (Statement stmt:propertyRestrictions) {
-			if (stmt.getPredicate().equals(ON_CLASS_PROPERTY) && stmt.getObject().asResource().isURIResource()) {
-				retval.add(stmt.getObject().asResource().getURI());
-			}
-		}
-		return retval;
+		PropertyRestrictions restrictions = classRestrictions.get(owlPropertyUri);
+		return Objects.isNull(restrictions) ? Collections.emptyList() : restrictions.getClassUriRestrictions();
 	}
 	
 	/**
@@ -230,29 +225,8 @@ public class SpdxOwlOntology {
 	public List<String> getDataUriRestrictions(String classUri, String propertyUri) throws SpdxRdfException {
 		Objects.requireNonNull(classUri, "Missing class URI");
 		Objects.requireNonNull(propertyUri, "Missing property URI");
-		OntClass ontClass = model.getOntClass(classUri);
-		if (Objects.isNull(ontClass)) {
-			if (classUri.endsWith("GenericSpdxElement")) {
-				ontClass = model.getOntClass(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_ELEMENT);
-			} else {
-                logger.warn("{} is not an SPDX class", classUri);
-				throw new SpdxRdfException(classUri + " is not an SPDX class");
-			}
-		}
-		OntProperty property = model.getOntProperty(checkGetOwlUriFromRenamed(propertyUri));
-		if (Objects.isNull(property)) {
-            logger.warn("{} is not an SPDX property", propertyUri);
-			throw new SpdxRdfException(propertyUri + " is not an SPDX property");
-		}
-		List<Statement> propertyRestrictions = new ArrayList<>();
-		addPropertyRestrictions(ontClass, property, propertyRestrictions);
-		List<String> retval = new ArrayList<>();
-		for (Statement stmt:propertyRestrictions) {
-			if (stmt.getPredicate().equals(ON_DATA_RANGE_PROPERTY) && stmt.getObject().asResource().isURIResource()) {
-				retval.add(stmt.getObject().asResource().getURI());
-			}
-		}
-		return retval;
+		PropertyRestrictions restrictions = getPropertyRestrictions(classUri, propertyUri);
+		return Objects.isNull(restrictions) ? Collections.emptyList() : restrictions.getDataUriRestrictions();
 	}
 
 	/**
@@ -264,64 +238,45 @@ public class SpdxOwlOntology {
 	public boolean isList(String classUri, String propertyUri) throws SpdxRdfException {
 		Objects.requireNonNull(classUri, "Missing class URI");
 		Objects.requireNonNull(propertyUri, "Missing property URI");
-		OntClass ontClass = model.getOntClass(classUri);
-		if (Objects.isNull(ontClass)) {
+		PropertyRestrictions restrictions = getPropertyRestrictions(classUri, propertyUri);
+		if (Objects.isNull(restrictions)) {
+			throw new SpdxRdfException(propertyUri + " was not found related to class "+classUri);
+		}
+		return restrictions.isList();
+	}
+	
+	/**
+	 * @param classUri URI for the class
+	 * @return map of OWL property URI to the restrictions compiled for the class
+	 * @throws SpdxRdfException if the class is not in the ontology
+	 */
+	private Map<String, PropertyRestrictions> getClassRestrictions(String classUri) throws SpdxRdfException {
+		Map<String, PropertyRestrictions> retval = restrictionTable.get(classUri);
+		if (Objects.isNull(retval)) {
 			if (classUri.endsWith("GenericSpdxElement")) {
-				ontClass = model.getOntClass(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_ELEMENT);
+				retval = restrictionTable.get(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_ELEMENT);
 			} else {
                 logger.warn("{} is not an SPDX class", classUri);
 				throw new SpdxRdfException(classUri + " is not an SPDX class");
 			}
 		}
-		OntProperty property = model.getOntProperty(checkGetOwlUriFromRenamed(propertyUri));
-		if (Objects.isNull(property)) {
-            logger.warn("{} is not an SPDX property", propertyUri);
-			throw new SpdxRdfException(propertyUri + " is not an SPDX property");
-		}
-		List<Statement> propertyRestrictions = new ArrayList<>();
-		addPropertyRestrictions(ontClass, property, propertyRestrictions);
-		if (propertyRestrictions.isEmpty()) {
-			throw new SpdxRdfException(propertyUri + " was not found related to class "+classUri);
-		}
-		int minCardinality = -1;
-		int maxCardinality = -1;
-		int exactCardinality = -1;
-		for (Statement stmt:propertyRestrictions) {
-			if (stmt.getPredicate().equals(PROP_MIN_CARDINALITY) ||
-					stmt.getPredicate().equals(PROP_MIN_QUAL_CARDINALITY)) {
-				if (stmt.getObject().asLiteral().getInt() > minCardinality) {
-					minCardinality = stmt.getObject().asLiteral().getInt();
-				}
-			} else if (stmt.getPredicate().equals(PROP_MAX_CARDINALITY) ||
-					stmt.getPredicate().equals(PROP_MAX_QUAL_CARDINALITY)) {
-				if (stmt.getObject().asLiteral().getInt() > maxCardinality) {
-					maxCardinality = stmt.getObject().asLiteral().getInt();
-				}
-			} else if (stmt.getPredicate().equals(PROP_CARDINALITY) ||
-					stmt.getPredicate().equals(PROP_QUAL_CARDINALITY)) {
-				exactCardinality = stmt.getObject().asLiteral().getInt();
-			}
-		}
-		return (exactCardinality == -1 && (maxCardinality == -1) || (maxCardinality > 1)) || exactCardinality > 1;
+		return retval;
 	}
-
+	
 	/**
-	 * Adds restriction statement to the propertyRestrictions list
-	 * @param ontClass class related to the property - all superclasses will be searched
-	 * @param property property on which the restriction occurs
-	 * @param propertyRestrictions list of all statements containing a restriction on the property within the class and all superclasses (including transitive superclasses)
+	 * @param classUri URI for the class
+	 * @param propertyUri URI for the property
+	 * @return the restrictions for the property within the class or null if there are no restrictions
+	 * @throws SpdxRdfException if the class or the property is not in the ontology
 	 */
-	private void addPropertyRestrictions(OntClass ontClass, OntProperty property, List<Statement> propertyRestrictions) {	
-		if (ontClass.isRestriction()) {
-			if (model.listStatements(ontClass, ON_PROPERTY_PROPERTY, property).hasNext()) {
-				// matches the property
-				ontClass.listProperties().forEachRemaining(propertyRestrictions::add);
-			}
-		} else if (ontClass.isUnionClass()) {
-			ontClass.asUnionClass().listOperands().forEachRemaining((OntClass operand) -> addPropertyRestrictions(operand, property, propertyRestrictions));
-		} else {
-			 ontClass.listSuperClasses().forEachRemaining((OntClass superClass) -> addPropertyRestrictions(superClass, property, propertyRestrictions));
+	private @Nullable PropertyRestrictions getPropertyRestrictions(String classUri, String propertyUri) throws SpdxRdfException {
+		Map<String, PropertyRestrictions> classRestrictions = getClassRestrictions(classUri);
+		String owlPropertyUri = checkGetOwlUriFromRenamed(propertyUri);
+		if (!ontPropertyUris.contains(owlPropertyUri)) {
+            logger.warn("{} is not an SPDX property", propertyUri);
+			throw new SpdxRdfException(propertyUri + " is not an SPDX property");
 		}
+		return classRestrictions.get(owlPropertyUri);
 	}
-
+	
 }
@@ -0,0 +1,478 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2020 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.jena.ontology.DatatypeProperty;
+import org.apache.jena.ontology.OntClass;
+import org.apache.jena.ontology.OntModel;
+import org.apache.jena.ontology.OntProperty;
+import org.apache.jena.ontology.OntResource;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.RDFNode;
+import org.apache.jena.rdf.model.ResourceFactory;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Restriction, range and cardinality data compiled from the SPDX OWL ontology
+ * <p>
+ * The metadata is generated from the OWL file during the build (see the <code>main</code> method) and stored
+ * as a compact binary resource so that the OWL ontology does not need to be parsed at runtime.
+ *
+ * @author Gary O'Neall
+ */
+public class SpdxOwlOntologyMetadata {
+
+	static final Logger logger = LoggerFactory.getLogger(SpdxOwlOntologyMetadata.class);
+
+	static final String METADATA_PATH = "/resources/spdx-2-3-revision-2-ontology.metadata.bin";
+
+	/**
+	 * Identifies the binary metadata format - "SPDXOWLM"
+	 */
+	private static final long MAGIC = 0x535044584F574C4DL;
+
+	/**
+	 * Incremented whenever the binary format changes
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	static final Property PROP_MIN_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#minCardinality");
+	static final Property PROP_MIN_QUAL_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#minQualifiedCardinality");
+	static final Property PROP_MAX_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#maxCardinality");
+	static final Property PROP_MAX_QUAL_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#maxQualifiedCardinality");
+	static final Property PROP_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#cardinality");
+	static final Property PROP_QUAL_CARDINALITY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#qualifiedCardinality");
+	static final Property ON_PROPERTY_PROPERTY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#onProperty");
+	static final Property ON_CLASS_PROPERTY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#onClass");
+	static final Property ON_DATA_RANGE_PROPERTY = ResourceFactory.createProperty("http://www.w3.org/2002/07/owl#onDataRange");
+
+	/**
+	 * Java classes which may be the range of a datatype property - the index is used in the binary format
+	 */
+	private static final List<Class<?>> PROPERTY_CLASSES = List.of(String.class, Integer.class, Boolean.class);
+
+	/**
+	 * Restrictions compiled from the ontology indexed by class URI then OWL property URI
+	 */
+	private final Map<String, Map<String, PropertyRestrictions>> restrictionTable;
+
+	/**
+	 * URIs for all properties defined in the ontology
+	 */
+	private final Set<String> ontPropertyUris;
+
+	/**
+	 * Map of datatype property URIs to the Java class that best matches the property range
+	 */
+	private final Map<String, Class<?>> propertyClasses;
+
+	/**
+	 * @param restrictionTable restrictions indexed by class URI then OWL property URI
+	 * @param ontPropertyUris URIs for all properties defined in the ontology
+	 * @param propertyClasses map of datatype property URIs to the Java class for the property range
+	 */
+	private SpdxOwlOntologyMetadata(Map<String, Map<String, PropertyRestrictions>> restrictionTable,
+			Set<String> ontPropertyUris, Map<String, Class<?>> propertyClasses) {
+		this.restrictionTable = restrictionTable;
+		this.ontPropertyUris = ontPropertyUris;
+		this.propertyClasses = propertyClasses;
+	}
+
+	/**
+	 * @return restrictions indexed by class URI then OWL property URI
+	 */
+	Map<String, Map<String, PropertyRestrictions>> getRestrictionTable() {
+		return restrictionTable;
+	}
+
+	/**
+	 * @return URIs for all properties defined in the ontology
+	 */
+	Set<String> getOntPropertyUris() {
+		return ontPropertyUris;
+	}
+
+	/**
+	 * @return map of datatype property URIs to the Java class that best matches the property range
+	 */
+	Map<String, Class<?>> getPropertyClasses() {
+		return propertyClasses;
+	}
+
+	/**
+	 * Compile the metadata from an OWL ontology model
+	 * @param model OWL ontology model
+	 * @return metadata compiled from the model
+	 */
+	static SpdxOwlOntologyMetadata compile(OntModel model) {
+		Set<String> propertyUris = new HashSet<>();
+		model.listAllOntProperties().forEachRemaining((OntProperty property) -> {
+			if (property.isURIResource()) {
+				propertyUris.add(property.getURI());
+			}
+		});
+		return new SpdxOwlOntologyMetadata(compileRestrictionTable(model),
+				Collections.unmodifiableSet(propertyUris), compilePropertyClasses(model));
+	}
+
+	/**
+	 * Compile the restrictions for every named class in the ontology into a table indexed by class URI and property URI
+	 * @param model OWL ontology model
+	 * @return map of class URI to a map of property URI to the restrictions on the property within the class
+	 */
+	private static Map<String, Map<String, PropertyRestrictions>> compileRestrictionTable(OntModel model) {
+		Map<String, Map<String, PropertyRestrictions>> retval = new HashMap<>();
+		model.listNamedClasses().forEachRemaining((OntClass ontClass) -> {
+			List<OntClass> restrictions = new ArrayList<>();
+			addRestrictions(ontClass, restrictions);
+			Map<String, List<Statement>> statementsByProperty = new HashMap<>();
+			for (OntClass restriction:restrictions) {
+				model.listObjectsOfProperty(restriction, ON_PROPERTY_PROPERTY).forEachRemaining((RDFNode onProperty) -> {
+					if (onProperty.isURIResource()) {
+						List<Statement> statements = statementsByProperty.computeIfAbsent(onProperty.asResource().getURI(), k -> new ArrayList<>());
+						restriction.listProperties().forEachRemaining(statements::add);
+					}
+				});
+			}
+			Map<String, PropertyRestrictions> classRestrictions = new HashMap<>();
+			for (Entry<String, List<Statement>> entry:statementsByProperty.entrySet()) {
+				classRestrictions.put(entry.getKey(), compilePropertyRestrictions(entry.getValue()));
+			}
+			retval.put(ontClass.getURI(), Collections.unmodifiableMap(classRestrictions));
+		});
+		return Collections.unmodifiableMap(retval);
+	}
+
+	/**
+	 * @param propertyRestrictions all statements containing a restriction on a property within a class and its superclasses
+	 * @return the compiled restrictions
+	 */
+	private static PropertyRestrictions compilePropertyRestrictions(List<Statement> propertyRestrictions) {
+		List<String> classUriRestrictions = new ArrayList<>();
+		List<String> dataUriRestrictions = new ArrayList<>();
+		int minCardinality = -1;
+		int maxCardinality = -1;
+		int exactCardinality = -1;
+		for (Statement stmt:propertyRestrictions) {
+			if (stmt.getPredicate().equals(PROP_MIN_CARDINALITY) ||
+					stmt.getPredicate().equals(PROP_MIN_QUAL_CARDINALITY)) {
+				if (stmt.getObject().asLiteral().getInt() > minCardinality) {
+					minCardinality = stmt.getObject().asLiteral().getInt();
+				}
+			} else if (stmt.getPredicate().equals(PROP_MAX_CARDINALITY) ||
+					stmt.getPredicate().equals(PROP_MAX_QUAL_CARDINALITY)) {
+				if (stmt.getObject().asLiteral().getInt() > maxCardinality) {
+					maxCardinality = stmt.getObject().asLiteral().getInt();
+				}
+			} else if (stmt.getPredicate().equals(PROP_CARDINALITY) ||
+					stmt.getPredicate().equals(PROP_QUAL_CARDINALITY)) {
+				exactCardinality = stmt.getObject().asLiteral().getInt();
+			} else if (stmt.getPredicate().equals(ON_CLASS_PROPERTY) && stmt.getObject().asResource().isURIResource()) {
+				classUriRestrictions.add(stmt.getObject().asResource().getURI());
+			} else if (stmt.getPredicate().equals(ON_DATA_RANGE_PROPERTY) && stmt.getObject().asResource().isURIResource()) {
+				dataUriRestrictions.add(stmt.getObject().asResource().getURI());
+			}
+		}
+		return new PropertyRestrictions(minCardinality, maxCardinality, exactCardinality,
+				classUriRestrictions, dataUriRestrictions);
+	}
+
+	/**
+	 * @param model OWL ontology model
+	 * @return map of the OWL datatype property URIs to the Java class that best matches the range of the property
+	 */
+	private static Map<String, Class<?>> compilePropertyClasses(OntModel model) {
+		Map<String, Class<?>> retval = new HashMap<>();
+		model.listDatatypeProperties().forEachRemaining((DatatypeProperty dataProperty) -> {
+			if (!dataProperty.isURIResource()) {
+				return;
+			}
+			ExtendedIterator<? extends OntResource> rangeIter = dataProperty.listRange();
+			while (rangeIter.hasNext()) {
+				OntResource range = rangeIter.next();
+				if (range.isURIResource()) {
+					Class<?> propertyClass = SpdxOwlOntology.DATA_TYPE_TO_CLASS.get(range.getURI());
+					if (Objects.nonNull(propertyClass)) {
+						retval.put(dataProperty.getURI(), propertyClass);
+						rangeIter.close();
+						return;
+					} else {
+	                    logger.warn("Unknown data type: {}", range);
+					}
+				}
+			}
+		});
+		return Collections.unmodifiableMap(retval);
+	}
+
+	/**
+	 * Adds restriction classes to the restrictions list
+	 * @param ontClass class to search - all superclasses will be searched
+	 * @param restrictions list of all restrictions within the class and all superclasses (including transitive superclasses)
+	 */
+	private static void addRestrictions(OntClass ontClass, List<OntClass> restrictions) {
+		if (ontClass.isRestriction()) {
+			restrictions.add(ontClass);
+		} else if (ontClass.isUnionClass()) {
+			ontClass.asUnionClass().listOperands().forEachRemaining((OntClass operand) -> addRestrictions(operand, restrictions));
+		} else {
+			 ontClass.listSuperClasses().forEachRemaining((OntClass superClass) -> addRestrictions(superClass, restrictions));
+		}
+	}
+
+	/**
+	 * Write the metadata in the compact binary format
+	 * @param stream output stream to write to
+	 * @throws IOException on I/O errors
+	 */
+	void write(OutputStream stream) throws IOException {
+		DataOutputStream out = new DataOutputStream(stream);
+		out.writeLong(MAGIC);
+		out.writeInt(FORMAT_VERSION);
+		out.writeInt(ontPropertyUris.size());
+		for (String propertyUri:ontPropertyUris) {
+			out.writeUTF(propertyUri);
+		}
+		out.writeInt(propertyClasses.size());
+		for (Entry<String, Class<?>> entry:propertyClasses.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeByte(PROPERTY_CLASSES.indexOf(entry.getValue()));
+		}
+		out.writeInt(restrictionTable.size());
+		for (Entry<String, Map<String, PropertyRestrictions>> classEntry:restrictionTable.entrySet()) {
+			out.writeUTF(classEntry.getKey());
+			out.writeInt(classEntry.getValue().size());
+			for (Entry<String, PropertyRestrictions> propertyEntry:classEntry.getValue().entrySet()) {
+				PropertyRestrictions restrictions = propertyEntry.getValue();
+				out.writeUTF(propertyEntry.getKey());
+				out.writeInt(restrictions.getMinCardinality());
+				out.writeInt(restrictions.getMaxCardinality());
+				out.writeInt(restrictions.getExactCardinality());
+				writeStrings(out, restrictions.getClassUriRestrictions());
+				writeStrings(out, restrictions.getDataUriRestrictions());
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Read metadata previously written by the <code>write</code> method
+	 * @param stream input stream to read from
+	 * @return the metadata
+	 * @throws IOException on I/O errors or if the stream is not in the expected format
+	 */
+	static SpdxOwlOntologyMetadata read(InputStream stream) throws IOException {
+		DataInputStream in = new DataInputStream(stream);
+		if (in.readLong() != MAGIC) {
+			throw new IOException("Invalid SPDX ontology metadata");
+		}
+		int version = in.readInt();
+		if (version != FORMAT_VERSION) {
+			throw new IOException("Unsupported SPDX ontology metadata format version " + version);
+		}
+		int numProperties = in.readInt();
+		Set<String> ontPropertyUris = new HashSet<>(numProperties * 2);
+		for (int i = 0; i < numProperties; i++) {
+			ontPropertyUris.add(in.readUTF());
+		}
+		int numPropertyClasses = in.readInt();
+		Map<String, Class<?>> propertyClasses = new HashMap<>(numPropertyClasses * 2);
+		for (int i = 0; i < numPropertyClasses; i++) {
+			String propertyUri = in.readUTF();
+			int classIndex = in.readByte();
+			if (classIndex < 0 || classIndex >= PROPERTY_CLASSES.size()) {
+				throw new IOException("Invalid property class in SPDX ontology metadata");
+			}
+			propertyClasses.put(propertyUri, PROPERTY_CLASSES.get(classIndex));
+		}
+		int numClasses = in.readInt();
+		Map<String, Map<String, PropertyRestrictions>> restrictionTable = new HashMap<>(numClasses * 2);
+		for (int i = 0; i < numClasses; i++) {
+			String classUri = in.readUTF();
+			int numRestrictions = in.readInt();
+			Map<String, PropertyRestrictions> classRestrictions = new HashMap<>(numRestrictions * 2);
+			for (int j = 0; j < numRestrictions; j++) {
+				String propertyUri = in.readUTF();
+				int minCardinality = in.readInt();
+				int maxCardinality = in.readInt();
+				int exactCardinality = in.readInt();
+				List<String> classUriRestrictions = readStrings(in);
+				List<String> dataUriRestrictions = readStrings(in);
+				classRestrictions.put(propertyUri, new PropertyRestrictions(minCardinality, maxCardinality,
+						exactCardinality, classUriRestrictions, dataUriRestrictions));
+			}
+			restrictionTable.put(classUri, Collections.unmodifiableMap(classRestrictions));
+		}
+		return new SpdxOwlOntologyMetadata(Collections.unmodifiableMap(restrictionTable),
+				Collections.unmodifiableSet(ontPropertyUris), Collections.unmodifiableMap(propertyClasses));
+	}
+
+	/**
+	 * @param out output to write to
+	 * @param strings list of strings to write
+	 * @throws IOException on I/O errors
+	 */
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		out.writeInt(strings.size());
+		for (String s:strings) {
+			out.writeUTF(s);
+		}
+	}
+
+	/**
+	 * @param in input to read from
+	 * @return list of strings previously written by writeStrings
+	 * @throws IOException on I/O errors
+	 */
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<String> retval = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			retval.add(in.readUTF());
+		}
+		return retval;
+	}
+
+	/**
+	 * Load the metadata generated at build time from the classpath
+	 * @return the metadata or null if it is not available
+	 */
+	static SpdxOwlOntologyMetadata loadGenerated() {
+		try (InputStream is = SpdxOwlOntologyMetadata.class.getResourceAsStream(METADATA_PATH)) {
+			if (Objects.isNull(is)) {
+				return null;
+			}
+			return read(new BufferedInputStream(is));
+		} catch (IOException e) {
+			logger.warn("Unable to read the generated SPDX ontology metadata - the OWL ontology will be parsed", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Generate the binary metadata file from the SPDX OWL ontology - run as part of the build
+	 * @param args the single argument is the path of the file to generate
+	 * @throws IOException on I/O errors
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: SpdxOwlOntologyMetadata outputFile");
+			System.exit(1);
+		}
+		File outputFile = new File(args[0]);
+		File parent = outputFile.getParentFile();
+		if (Objects.nonNull(parent) && !parent.exists() && !parent.mkdirs()) {
+			throw new IOException("Unable to create directory " + parent);
+		}
+		SpdxOwlOntologyMetadata metadata = compile(SpdxOwlOntology.loadOntologyModel());
+		try (OutputStream os = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+			metadata.write(os);
+		}
+	}
+
+	/**
+	 * Immutable restrictions on a property within a class (including restrictions inherited from superclasses)
+	 */
+	static final class PropertyRestrictions {
+		private final int minCardinality;
+		private final int maxCardinality;
+		private final int exactCardinality;
+		private final List<String> classUriRestrictions;
+		private final List<String> dataUriRestrictions;
+
+		/**
+		 * @param minCardinality minimum cardinality or -1 if not restricted
+		 * @param maxCardinality maximum cardinality or -1 if not restricted
+		 * @param exactCardinality exact cardinality or -1 if not restricted
+		 * @param classUriRestrictions class URI restrictions for the property values
+		 * @param dataUriRestrictions data type URI restrictions for the property values
+		 */
+		PropertyRestrictions(int minCardinality, int maxCardinality, int exactCardinality,
+				List<String> classUriRestrictions, List<String> dataUriRestrictions) {
+			this.minCardinality = minCardinality;
+			this.maxCardinality = maxCardinality;
+			this.exactCardinality = exactCardinality;
+			this.classUriRestrictions = List.copyOf(classUriRestrictions);
+			this.dataUriRestrictions = List.copyOf(dataUriRestrictions);
+		}
+
+		/**
+		 * @return the minimum cardinality or -1 if not restricted
+		 */
+		int getMinCardinality() {
+			return minCardinality;
+		}
+
+		/**
+		 * @return the maximum cardinality or -1 if not restricted
+		 */
+		int getMaxCardinality() {
+			return maxCardinality;
+		}
+
+		/**
+		 * @return the exact cardinality or -1 if not restricted
+		 */
+		int getExactCardinality() {
+			return exactCardinality;
+		}
+
+		/**
+		 * @return the class URI restrictions for the property values
+		 */
+		List<String> getClassUriRestrictions() {
+			return classUriRestrictions;
+		}
+
+		/**
+		 * @return the data type URI restrictions for the property values
+		 */
+		List<String> getDataUriRestrictions() {
+			return dataUriRestrictions;
+		}
+
+		/**
+		 * @return true if the property has a max cardinality greater than 1 or does not have a max cardinality
+		 */
+		boolean isList() {
+			return (exactCardinality == -1 && (maxCardinality == -1) || (maxCardinality > 1)) || exactCardinality > 1;
+		}
+	}
+}
@@ -0,0 +1,453 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map.Entry;
+import java.util.Objects;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.impl.Util;
+import org.apache.jena.shared.PrefixMapping;
+import org.apache.jena.util.iterator.ExtendedIterator;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+
+/**
+ * Writes an SPDX model as abbreviated RDF/XML in a single pass over the subjects in the graph.
+ * <p>
+ * Unlike the generic Jena RDF/XML-ABBREV writer, the graph is not analysed before writing. Each subject is
+ * written as a typed node element using the namespace prefixes registered for the model.  Blank nodes
+ * referenced exactly once - such as the checksums, relationships and annotations of SPDX elements - are
+ * nested within the property element which references them.  All other blank nodes are written at the top
+ * level and referenced by <code>rdf:nodeID</code>.  The SPDX document is written first.
+ *
+ * @author Gary O'Neall
+ */
+class SpdxRdfXmlWriter {
+
+	static final Logger logger = LoggerFactory.getLogger(SpdxRdfXmlWriter.class);
+
+	private static final String RDF_PREFIX = "rdf";
+
+	/**
+	 * Prefix used for namespaces declared locally on an element when no prefix is registered for the namespace
+	 */
+	private static final String LOCAL_PREFIX = "j.0";
+
+	private static final String INDENT = "  ";
+
+	private final Graph graph;
+	private final PrefixMapping prefixes;
+	private final String rdfPrefix;
+	private final Node documentNode;
+	private final Node typeNode;
+	private Writer out;
+
+	/**
+	 * @param model model to write
+	 * @param documentUri URI for the SPDX document in the model
+	 */
+	SpdxRdfXmlWriter(Model model, String documentUri) {
+		Objects.requireNonNull(model, "Missing required model");
+		Objects.requireNonNull(documentUri, "Missing required document URI");
+		this.graph = model.getGraph();
+		this.prefixes = PrefixMapping.Factory.create();
+		for (Entry<String, String> entry:model.getNsPrefixMap().entrySet()) {
+			// the default namespace is not used so that all element names are qualified
+			if (!entry.getKey().isEmpty() && !LOCAL_PREFIX.equals(entry.getKey())) {
+				prefixes.setNsPrefix(entry.getKey(), entry.getValue());
+			}
+		}
+		String prefix = prefixes.getNsURIPrefix(RDF.getURI());
+		if (Objects.isNull(prefix)) {
+			prefix = RDF_PREFIX;
+			while (Objects.nonNull(prefixes.getNsPrefixURI(prefix))) {
+				prefix = prefix + "_";
+			}
+			prefixes.setNsPrefix(prefix, RDF.getURI());
+		}
+		this.rdfPrefix = prefix;
+		this.documentNode = NodeFactory.createURI(documentUri + "#" + SpdxConstantsCompatV2.SPDX_DOCUMENT_ID);
+		this.typeNode = RDF.type.asNode();
+	}
+
+	/**
+	 * Write the model to the stream - the stream is flushed but not closed
+	 * @param stream output stream
+	 * @throws IOException on errors writing to the stream
+	 * @throws SpdxRdfException if the model contains a property which can not be represented in RDF/XML
+	 */
+	void write(OutputStream stream) throws IOException, SpdxRdfException {
+		out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<");
+		out.write(rdfPrefix);
+		out.write(":RDF");
+		for (Entry<String, String> entry:prefixes.getNsPrefixMap().entrySet()) {
+			out.write("\n");
+			out.write(INDENT);
+			out.write(INDENT);
+			out.write("xmlns:");
+			out.write(entry.getKey());
+			out.write("=\"");
+			out.write(escapeAttribute(entry.getValue()));
+			out.write("\"");
+		}
+		out.write(">\n");
+		if (graph.contains(documentNode, Node.ANY, Node.ANY)) {
+			writeNode(documentNode, 1);
+		}
+		ExtendedIterator<Triple> triples = graph.find();
+		Node lastSubject = null;
+		try {
+			while (triples.hasNext()) {
+				Triple triple = triples.next();
+				Node subject = triple.getSubject();
+				if (subject.equals(lastSubject)) {
+					continue;
+				}
+				lastSubject = subject;
+				if (!subject.equals(documentNode) && isFirstTriple(triple) && isTopLevel(subject)) {
+					writeNode(subject, 1);
+				}
+			}
+		} finally {
+			triples.close();
+		}
+		out.write("</");
+		out.write(rdfPrefix);
+		out.write(":RDF>\n");
+		out.flush();
+	}
+
+	/**
+	 * Graph implementations are not required to return the triples for a subject together. Rather than keeping
+	 * track of the subjects already written, a subject is written when the triple is the first triple found for the subject.
+	 * @param triple triple found while iterating all triples in the graph
+	 * @return true if the triple is the first triple found for its subject
+	 */
+	private boolean isFirstTriple(Triple triple) {
+		ExtendedIterator<Triple> iter = graph.find(triple.getSubject(), Node.ANY, Node.ANY);
+		try {
+			return iter.hasNext() && triple.equals(iter.next());
+		} finally {
+			iter.close();
+		}
+	}
+
+	/**
+	 * @param node subject node
+	 * @return true if the node is written at the top level rather than nested within the element which references it
+	 */
+	private boolean isTopLevel(Node node) {
+		return !node.isBlank() || !isNested(node);
+	}
+
+	/**
+	 * A blank node is nested if it is referenced exactly once, unless it is part of a cycle of nested blank nodes.
+	 * In that case, the node in the cycle with the lowest label is written at the top level.
+	 * @param blankNode blank node
+	 * @return true if the blank node is written nested within the element which references it
+	 */
+	private boolean isNested(Node blankNode) {
+		Node referrer = singleReferrer(blankNode);
+		if (Objects.isNull(referrer)) {
+			return false;
+		}
+		String label = blankNode.getBlankNodeLabel();
+		// follow the chain of nested blank nodes - this terminates at a node which is not nested or returns to blankNode
+		while (referrer.isBlank() && !referrer.equals(blankNode)) {
+			if (referrer.getBlankNodeLabel().compareTo(label) < 0) {
+				label = referrer.getBlankNodeLabel();
+			}
+			referrer = singleReferrer(referrer);
+			if (Objects.isNull(referrer)) {
+				return true;
+			}
+		}
+		return !referrer.equals(blankNode) || !label.equals(blankNode.getBlankNodeLabel());
+	}
+
+	/**
+	 * @param node object node
+	 * @return the subject of the only triple referencing the node or null if the node is not referenced exactly once
+	 */
+	private @Nullable Node singleReferrer(Node node) {
+		ExtendedIterator<Triple> iter = graph.find(Node.ANY, Node.ANY, node);
+		try {
+			if (!iter.hasNext()) {
+				return null;
+			}
+			Node referrer = iter.next().getSubject();
+			return iter.hasNext() ? null : referrer;
+		} finally {
+			iter.close();
+		}
+	}
+
+	/**
+	 * Write a node element for the subject including all properties
+	 * @param subject subject to write
+	 * @param indent indentation level
+	 * @throws IOException on errors writing to the stream
+	 * @throws SpdxRdfException if a property can not be represented in RDF/XML
+	 */
+	private void writeNode(Node subject, int indent) throws IOException, SpdxRdfException {
+		Triple typeTriple = null;
+		String elementName = null;
+		ExtendedIterator<Triple> types = graph.find(subject, typeNode, Node.ANY);
+		try {
+			while (types.hasNext() && Objects.isNull(elementName)) {
+				Triple triple = types.next();
+				if (triple.getObject().isURI()) {
+					elementName = prefixes.qnameFor(triple.getObject().getURI());
+					typeTriple = triple;
+				}
+			}
+		} finally {
+			types.close();
+		}
+		if (Objects.isNull(elementName)) {
+			// use a description with an rdf:type property
+			typeTriple = null;
+			elementName = rdfPrefix + ":Description";
+		}
+		writeIndent(indent);
+		out.write("<");
+		out.write(elementName);
+		if (subject.isURI()) {
+			writeAttribute("about", subject.getURI());
+		} else if (indent == 1) {
+			writeAttribute("nodeID", nodeId(subject));
+		}
+		boolean hasProperties = false;
+		ExtendedIterator<Triple> properties = graph.find(subject, Node.ANY, Node.ANY);
+		try {
+			while (properties.hasNext()) {
+				Triple triple = properties.next();
+				if (triple.equals(typeTriple)) {
+					continue;
+				}
+				if (!hasProperties) {
+					out.write(">\n");
+					hasProperties = true;
+				}
+				writeProperty(triple.getPredicate(), triple.getObject(), indent + 1);
+			}
+		} finally {
+			properties.close();
+		}
+		if (hasProperties) {
+			writeIndent(indent);
+			out.write("</");
+			out.write(elementName);
+			out.write(">\n");
+		} else {
+			out.write("/>\n");
+		}
+	}
+
+	/**
+	 * Write a property element
+	 * @param predicate predicate for the property
+	 * @param object object of the property
+	 * @param indent indentation level
+	 * @throws IOException on errors writing to the stream
+	 * @throws SpdxRdfException if the predicate can not be represented in RDF/XML
+	 */
+	private void writeProperty(Node predicate, Node object, int indent) throws IOException, SpdxRdfException {
+		String elementName = prefixes.qnameFor(predicate.getURI());
+		String namespaceDeclaration = null;
+		if (Objects.isNull(elementName)) {
+			int split = Util.splitNamespaceXML(predicate.getURI());
+			if (split >= predicate.getURI().length()) {
+				logger.error("Property {} can not be written as RDF/XML", predicate.getURI());
+				throw new SpdxRdfException("Property "+predicate.getURI()+" can not be written as RDF/XML");
+			}
+			elementName = LOCAL_PREFIX + ":" + predicate.getURI().substring(split);
+			namespaceDeclaration = predicate.getURI().substring(0, split);
+		}
+		writeIndent(indent);
+		out.write("<");
+		out.write(elementName);
+		if (Objects.nonNull(namespaceDeclaration)) {
+			out.write(" xmlns:");
+			out.write(LOCAL_PREFIX);
+			out.write("=\"");
+			out.write(escapeAttribute(namespaceDeclaration));
+			out.write("\"");
+		}
+		if (object.isLiteral()) {
+			String lang = object.getLiteralLanguage();
+			if (Objects.nonNull(lang) && !lang.isEmpty()) {
+				out.write(" xml:lang=\"");
+				out.write(escapeAttribute(lang));
+				out.write("\"");
+			} else if (!XSDDatatype.XSDstring.getURI().equals(object.getLiteralDatatypeURI())) {
+				writeAttribute("datatype", object.getLiteralDatatypeURI());
+			}
+			out.write(">");
+			out.write(escapeText(object.getLiteralLexicalForm()));
+			out.write("</");
+			out.write(elementName);
+			out.write(">\n");
+		} else if (object.isURI()) {
+			writeAttribute("resource", object.getURI());
+			out.write("/>\n");
+		} else if (isNested(object)) {
+			out.write(">\n");
+			writeNode(object, indent + 1);
+			writeIndent(indent);
+			out.write("</");
+			out.write(elementName);
+			out.write(">\n");
+		} else {
+			writeAttribute("nodeID", nodeId(object));
+			out.write("/>\n");
+		}
+	}
+
+	/**
+	 * Write an attribute in the RDF namespace
+	 * @param name local name of the attribute
+	 * @param value unescaped value for the attribute
+	 * @throws IOException on errors writing to the stream
+	 * @throws SpdxRdfException if the value contains a character which is not allowed in XML 1.0
+	 */
+	private void writeAttribute(String name, String value) throws IOException, SpdxRdfException {
+		out.write(" ");
+		out.write(rdfPrefix);
+		out.write(":");
+		out.write(name);
+		out.write("=\"");
+		out.write(escapeAttribute(value));
+		out.write("\"");
+	}
+
+	private void writeIndent(int indent) throws IOException {
+		for (int i = 0; i < indent; i++) {
+			out.write(INDENT);
+		}
+	}
+
+	/**
+	 * Blank node labels may contain characters which are not valid in an XML name, so all characters other
+	 * than ASCII letters and digits are replaced by an escape sequence to produce a unique valid node ID
+	 * @param blankNode blank node
+	 * @return node ID for the blank node
+	 */
+	static String nodeId(Node blankNode) {
+		String label = blankNode.getBlankNodeLabel();
+		StringBuilder sb = new StringBuilder(label.length() + 1);
+		sb.append('A');
+		for (int i = 0; i < label.length(); i++) {
+			char c = label.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+				sb.append(c);
+			} else {
+				sb.append('_');
+				sb.append(Integer.toHexString(c));
+				sb.append('_');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @param text text to escape
+	 * @return text escaped for use as XML character data
+	 * @throws SpdxRdfException if the text contains a character which is not allowed in XML 1.0
+	 */
+	static String escapeText(String text) throws SpdxRdfException {
+		return escape(text, false);
+	}
+
+	/**
+	 * @param value value to escape
+	 * @return value escaped for use within a double quoted XML attribute
+	 * @throws SpdxRdfException if the value contains a character which is not allowed in XML 1.0
+	 */
+	static String escapeAttribute(String value) throws SpdxRdfException {
+		return escape(value, true);
+	}
+
+	private static String escape(String s, boolean attribute) throws SpdxRdfException {
+		StringBuilder sb = null;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (!isXmlChar(s, i)) {
+				logger.error("Character U+{} can not be written in XML 1.0", String.format("%04X", (int)c));
+				throw new SpdxRdfException("Character U+" + String.format("%04X", (int)c) + " can not be written in XML 1.0");
+			}
+			String replacement;
+			switch (c) {
+				case '&': replacement = "&amp;"; break;
+				case '<': replacement = "&lt;"; break;
+				case '>': replacement = "&gt;"; break;
+				case '\r': replacement = "&#xD;"; break;
+				case '"': replacement = attribute ? "&quot;" : null; break;
+				case '\n': replacement = attribute ? "&#xA;" : null; break;
+				case '\t': replacement = attribute ? "&#x9;" : null; break;
+				default: replacement = null;
+			}
+			if (Objects.nonNull(replacement)) {
+				if (Objects.isNull(sb)) {
+					sb = new StringBuilder(s.length() + 16);
+					sb.append(s, 0, i);
+				}
+				sb.append(replacement);
+			} else if (Objects.nonNull(sb)) {
+				sb.append(c);
+			}
+		}
+		return Objects.isNull(sb) ? s : sb.toString();
+	}
+
+	/**
+	 * @param s string
+	 * @param i index of a character in the string
+	 * @return true if the character at the index, including a surrogate in a valid pair, matches the XML 1.0 Char
+	 * production
+	 */
+	private static boolean isXmlChar(String s, int i) {
+		char c = s.charAt(i);
+		if (c < 0x20) {
+			return c == '\t' || c == '\n' || c == '\r';
+		} else if (Character.isHighSurrogate(c)) {
+			return i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1));
+		} else if (Character.isLowSurrogate(c)) {
+			return i > 0 && Character.isHighSurrogate(s.charAt(i - 1));
+		} else {
+			return c != 0xFFFE && c != 0xFFFF;
+		}
+	}
+}
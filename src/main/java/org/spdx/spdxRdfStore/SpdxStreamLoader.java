@@ -0,0 +1,482 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nullable;
+
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.rdf.listeners.StatementListener;
+import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFLanguages;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.system.StreamRDFBase;
+import org.apache.jena.riot.system.StreamRDFLib;
+import org.apache.jena.riot.system.StreamRDFWrapper;
+import org.apache.jena.sparql.core.Quad;
+import org.apache.jena.vocabulary.RDF;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spdx.core.InvalidSPDXAnalysisException;
+import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+
+/**
+ * Parses serialized RDF into a new model in a single pass using a RIOT stream.
+ * <p>
+ * As triples arrive, the SPDX document nodes are recorded so that the document namespace can be determined and
+ * the SPDX IDs of the subjects are added to an ID index so that the <code>RdfSpdxModelManager</code> ID counters
+ * and case-insensitive ID map are built without rescanning the model.  Only the IDs are held - the type index of the
+ * model manager is built from the rdf:type statements in the model once the load is complete.  For a model in a
+ * transactional dataset, the ID index is stored in the dataset and written in the same transaction as the model.
+ *
+ * @author Gary O'Neall
+ */
+class SpdxStreamLoader extends StreamRDFWrapper {
+	
+	static final Logger logger = LoggerFactory.getLogger(SpdxStreamLoader.class);
+
+	private static final Node TYPE_NODE = RDF.type.asNode();
+	private static final Node SPDX_DOCUMENT_TYPE_NODE = NodeFactory.createURI(
+			SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT);
+
+	private final Model model;
+	private final List<Node> documentNodes = new ArrayList<>();
+	private final IdIndex ids;
+	/**
+	 * Last ID added to the ID index - the statements for a subject usually arrive together
+	 */
+	private String lastId = null;
+
+	/**
+	 * Keeps the recorded IDs up to date with changes made by the compatibility upgrader
+	 */
+	private final StatementListener upgradeListener = new StatementListener() {
+		@Override
+		public void addedStatement(Statement s) {
+			record(s.asTriple());
+		}
+
+		@Override
+		public void removedStatement(Statement s) {
+			String id = IdIndex.trackedId(s.getSubject().asNode());
+			if (Objects.nonNull(id) && !model.containsResource(s.getSubject())) {
+				ids.removeId(id);
+				lastId = null;
+			}
+		}
+	};
+
+	/**
+	 * @param model model to load the triples into
+	 * @param ids empty index to record the IDs in
+	 */
+	private SpdxStreamLoader(Model model, IdIndex ids) {
+		super(StreamRDFLib.graph(model.getGraph()));
+		this.model = model;
+		this.ids = ids;
+	}
+
+	/**
+	 * Parse a stream into a model
+	 * @param stream stream containing serialized RDF
+	 * @param outputFormat format of the serialized RDF
+	 * @param model empty model to load the triples into
+	 * @param ids empty index to record the IDs in
+	 * @return the loader containing the parsed model
+	 */
+	static SpdxStreamLoader load(InputStream stream, OutputFormat outputFormat, Model model, IdIndex ids) {
+		SpdxStreamLoader loader = new SpdxStreamLoader(model, ids);
+		Lang lang = RDFLanguages.nameToLang(outputFormat.getType());
+		RDFParser.source(stream).forceLang(lang).parse(loader);
+		return loader;
+	}
+
+	/**
+	 * Destination for a document whose model is chosen once the document namespace is known
+	 */
+	interface DocumentTarget {
+		/**
+		 * @param documentNamespace namespace of the SPDX document found in the stream
+		 * @return empty model to load the document into
+		 */
+		Model documentModel(String documentNamespace);
+
+		/**
+		 * @param documentNamespace namespace of the SPDX document found in the stream
+		 * @return empty index to record the IDs of the document in
+		 */
+		IdIndex documentIds(String documentNamespace);
+	}
+
+	/**
+	 * Parse a stream containing an SPDX document into a model chosen by the namespace of the document.
+	 * <p>
+	 * Triples are held until the SPDX document is found, which is usually the first subject in the stream, and are then
+	 * added to the model for the document followed by the remaining triples as they arrive.
+	 * @param stream stream containing serialized RDF
+	 * @param outputFormat format of the serialized RDF
+	 * @param target destination for the document
+	 * @return the loader containing the parsed model
+	 * @throws InvalidSPDXAnalysisException if the stream does not contain an SPDX document
+	 */
+	static SpdxStreamLoader loadDocument(InputStream stream, OutputFormat outputFormat, 
+			DocumentTarget target) throws InvalidSPDXAnalysisException {
+		DocumentRouter router = new DocumentRouter(target);
+		Lang lang = RDFLanguages.nameToLang(outputFormat.getType());
+		RDFParser.source(stream).forceLang(lang).parse(router);
+		if (Objects.isNull(router.loader)) {
+			throw new InvalidSPDXAnalysisException("Missing SPDX document");
+		}
+		return router.loader;
+	}
+
+	/**
+	 * Parse N-Quads containing SPDX documents in named graphs into the model for each document.
+	 * <p>
+	 * The name of each graph is the namespace of the document it contains.  Quads for a graph are usually grouped
+	 * together but may arrive in any order.
+	 * @param stream stream containing N-Quads
+	 * @param target destination for the documents
+	 * @return the loaders for the documents keyed by document namespace in the order the graphs were found
+	 * @throws InvalidSPDXAnalysisException if the stream does not contain any named graphs
+	 */
+	static Map<String, SpdxStreamLoader> loadDocuments(InputStream stream, DocumentTarget target) 
+			throws InvalidSPDXAnalysisException {
+		GraphRouter router = new GraphRouter(target);
+		RDFParser.source(stream).forceLang(Lang.NQUADS).parse(router);
+		if (router.loaders.isEmpty()) {
+			throw new InvalidSPDXAnalysisException("Missing SPDX document");
+		}
+		return router.loaders;
+	}
+
+	/**
+	 * Passes the quads in each named graph to a loader for the model of the document named by the graph
+	 */
+	private static class GraphRouter extends StreamRDFBase {
+		private final DocumentTarget target;
+		private final Map<String, SpdxStreamLoader> loaders = new LinkedHashMap<>();
+		/**
+		 * Graph and loader of the last quad - the quads for a graph usually arrive together
+		 */
+		private Node lastGraph = null;
+		private SpdxStreamLoader lastLoader = null;
+
+		GraphRouter(DocumentTarget target) {
+			this.target = target;
+		}
+
+		@Override
+		public void triple(Triple triple) {
+			throw new RiotException("Triple outside of a named graph - each SPDX document must be in the named graph for its namespace");
+		}
+
+		@Override
+		public void quad(Quad quad) {
+			Node graph = quad.getGraph();
+			if (quad.isDefaultGraph()) {
+				triple(quad.asTriple());
+				return;
+			}
+			if (!graph.equals(lastGraph)) {
+				if (!graph.isURI() || RdfStore.METADATA_GRAPH.equals(graph)) {
+					throw new RiotException("Invalid graph name for an SPDX document: "+graph);
+				}
+				lastLoader = loaders.computeIfAbsent(graph.getURI(), documentNamespace -> {
+					SpdxStreamLoader loader = new SpdxStreamLoader(target.documentModel(documentNamespace), 
+							target.documentIds(documentNamespace));
+					loader.start();
+					return loader;
+				});
+				lastGraph = graph;
+			}
+			lastLoader.triple(quad.asTriple());
+		}
+
+		@Override
+		public void finish() {
+			loaders.values().forEach(SpdxStreamLoader::finish);
+		}
+	}
+
+	/**
+	 * Holds the triples parsed before the SPDX document is found and then passes all triples to a loader for the model
+	 * of the document
+	 */
+	private static class DocumentRouter extends StreamRDFBase {
+		private final DocumentTarget target;
+		private final List<Triple> pending = new ArrayList<>();
+		private SpdxStreamLoader loader = null;
+
+		DocumentRouter(DocumentTarget target) {
+			this.target = target;
+		}
+
+		@Override
+		public void triple(Triple triple) {
+			if (Objects.nonNull(loader)) {
+				loader.triple(triple);
+			} else if (TYPE_NODE.equals(triple.getPredicate()) && SPDX_DOCUMENT_TYPE_NODE.equals(triple.getObject()) &&
+					triple.getSubject().isURI()) {
+				String documentNamespace = RdfStore.formDocNamespace(triple.getSubject().getURI());
+				loader = new SpdxStreamLoader(target.documentModel(documentNamespace), target.documentIds(documentNamespace));
+				loader.start();
+				pending.forEach(loader::triple);
+				pending.clear();
+				loader.triple(triple);
+			} else {
+				pending.add(triple);
+			}
+		}
+
+		@Override
+		public void quad(Quad quad) {
+			triple(quad.asTriple());
+		}
+
+		@Override
+		public void finish() {
+			if (Objects.nonNull(loader)) {
+				loader.finish();
+			}
+		}
+	}
+
+	/**
+	 * Parse a stream of N-Triples or N-Quads into a model using a pool of parser threads.
+	 * <p>
+	 * The input is split into chunks at line boundaries which are parsed concurrently.  The parsed triples are added
+	 * to the model in the order of the input.  All chunks share the same blank node allocation seed so a blank node
+	 * label maps to the same blank node in every chunk.  At most two chunks per thread are held in memory at a time.
+	 * @param stream stream containing N-Triples or N-Quads
+	 * @param lang language of the stream - must be <code>Lang.NTRIPLES</code> or <code>Lang.NQUADS</code>
+	 * @param threads number of parser threads
+	 * @param chunkSize approximate number of bytes in each chunk
+	 * @param model empty model to load the triples into
+	 * @param ids empty index to record the IDs in
+	 * @return the loader containing the parsed model
+	 * @throws IOException on errors reading the stream
+	 * @throws InvalidSPDXAnalysisException if the stream could not be parsed
+	 */
+	static SpdxStreamLoader loadParallel(InputStream stream, Lang lang, int threads, int chunkSize, 
+			Model model, IdIndex ids) throws IOException, InvalidSPDXAnalysisException {
+		if (!RDFLanguages.sameLang(Lang.NTRIPLES, lang) && !RDFLanguages.sameLang(Lang.NQUADS, lang)) {
+			throw new SpdxRdfException("Parallel loading is only supported for N-Triples and N-Quads");
+		}
+		if (threads < 1 || chunkSize < 1) {
+			throw new SpdxRdfException("Invalid number of threads or chunk size for parallel loading");
+		}
+		SpdxStreamLoader loader = new SpdxStreamLoader(model, ids);
+		UUID blankNodeSeed = UUID.randomUUID();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			Deque<Future<List<Triple>>> pending = new ArrayDeque<>();
+			ChunkReader reader = new ChunkReader(stream, chunkSize);
+			byte[] chunk = reader.next();
+			loader.start();
+			while (Objects.nonNull(chunk) || !pending.isEmpty()) {
+				while (Objects.nonNull(chunk) && pending.size() < threads * 2) {
+					final byte[] chunkToParse = chunk;
+					pending.add(executor.submit(() -> parseChunk(chunkToParse, lang, blankNodeSeed)));
+					chunk = reader.next();
+				}
+				for (Triple triple:pending.remove().get()) {
+					loader.triple(triple);
+				}
+			}
+			loader.finish();
+		} catch (ExecutionException e) {
+			logger.error("Error parsing RDF", e.getCause());
+			throw new SpdxRdfException("Error parsing RDF: "+e.getCause().getMessage(), e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SpdxRdfException("Interrupted while parsing RDF", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		return loader;
+	}
+	
+	/**
+	 * @param chunk bytes containing complete lines
+	 * @param lang language of the chunk
+	 * @param blankNodeSeed seed shared by all chunks for allocating blank nodes
+	 * @return triples parsed from the chunk - quads are converted to triples
+	 */
+	private static List<Triple> parseChunk(byte[] chunk, Lang lang, UUID blankNodeSeed) {
+		List<Triple> triples = new ArrayList<>();
+		RDFParser.source(new ByteArrayInputStream(chunk))
+				.forceLang(lang)
+				.labelToNode(LabelToNode.createScopeByDocumentHash(blankNodeSeed))
+				.parse(new StreamRDFBase() {
+					@Override
+					public void triple(Triple triple) {
+						triples.add(triple);
+					}
+					
+					@Override
+					public void quad(Quad quad) {
+						triples.add(quad.asTriple());
+					}
+				});
+		return triples;
+	}
+	
+	/**
+	 * Reads a stream in chunks which end at a line boundary
+	 */
+	private static class ChunkReader {
+		private final InputStream stream;
+		private byte[] buffer;
+		private int length = 0;
+		private boolean eof = false;
+		
+		ChunkReader(InputStream stream, int chunkSize) {
+			this.stream = stream;
+			this.buffer = new byte[chunkSize];
+		}
+		
+		/**
+		 * @return the next chunk of complete lines or null if there is no more input
+		 * @throws IOException on errors reading the stream
+		 */
+		@Nullable byte[] next() throws IOException {
+			while (true) {
+				if (!eof && length < buffer.length) {
+					int read = stream.readNBytes(buffer, length, buffer.length - length);
+					length += read;
+					eof = length < buffer.length;
+				}
+				if (length == 0) {
+					return null;
+				}
+				int end = length;
+				if (!eof) {
+					while (end > 0 && buffer[end - 1] != '\n') {
+						end--;
+					}
+					if (end == 0) {
+						// a line longer than the buffer
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+						continue;
+					}
+				}
+				byte[] chunk = Arrays.copyOf(buffer, end);
+				System.arraycopy(buffer, end, buffer, 0, length - end);
+				length -= end;
+				return chunk;
+			}
+		}
+	}
+
+	@Override
+	public void triple(Triple triple) {
+		record(triple);
+		super.triple(triple);
+	}
+
+	@Override
+	public void quad(Quad quad) {
+		// graph names are ignored - the same as reading into a model
+		triple(quad.asTriple());
+	}
+
+	private void record(Triple triple) {
+		Node subject = triple.getSubject();
+		if (subject.isURI()) {
+			String id = IdIndex.trackedId(subject);
+			if (Objects.nonNull(id) && !id.equals(lastId)) {
+				ids.addId(id);
+				lastId = id;
+			}
+		}
+		if (TYPE_NODE.equals(triple.getPredicate()) && SPDX_DOCUMENT_TYPE_NODE.equals(triple.getObject())) {
+			documentNodes.add(subject);
+		}
+	}
+
+	/**
+	 * @return the model containing the parsed triples
+	 */
+	Model getModel() {
+		return model;
+	}
+
+	/**
+	 * @return the document namespaces for the SPDX documents found while parsing
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
+	 */
+	List<String> getDocumentNamespaces() throws InvalidSPDXAnalysisException {
+		return RdfStore.documentNodesToNamespaces(documentNodes);
+	}
+
+	/**
+	 * Upgrade the parsed model for compatibility with the current version of the spec
+	 * @param documentNamespace Namespace or URI for the SPDX document
+	 * @throws InvalidSPDXAnalysisException on SPDX parsing errors
+	 */
+	void upgrade(String documentNamespace) throws InvalidSPDXAnalysisException {
+		model.register(upgradeListener);
+		try {
+			CompatibilityUpgrader.upgrade(model, documentNamespace);
+		} finally {
+			model.unregister(upgradeListener);
+		}
+	}
+
+	/**
+	 * @param documentNamespace Namespace or URI for the SPDX document
+	 * @return a model manager for the parsed model initialized from the IDs recorded while parsing
+	 */
+	RdfSpdxModelManager createModelManager(String documentNamespace) {
+		return createModelManager(documentNamespace, model);
+	}
+
+	/**
+	 * @param documentNamespace Namespace or URI for the SPDX document
+	 * @param managedModel model containing the same triples as the parsed model
+	 * @return a model manager for the managed model initialized from the IDs recorded while parsing
+	 */
+	RdfSpdxModelManager createModelManager(String documentNamespace, Model managedModel) {
+		Objects.requireNonNull(documentNamespace, "Missing required document namespace");
+		Objects.requireNonNull(managedModel, "Missing required model");
+		return new RdfSpdxModelManager(documentNamespace, managedModel, ids);
+	}
+}
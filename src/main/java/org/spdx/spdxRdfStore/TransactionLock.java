@@ -0,0 +1,85 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.query.TxnType;
+import org.apache.jena.shared.JenaException;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.core.Transactional;
+
+/**
+ * Lock which maps critical sections onto the transactions of a dataset
+ * <p>
+ * The outermost <code>enterCriticalSection</code> on a thread begins a read (promotable) or write transaction and the
+ * matching <code>leaveCriticalSection</code> commits and ends it.  Nested critical sections, including critical sections
+ * entered through other locks on the same dataset, join the enclosing transaction, promoting it to a write transaction if
+ * a write lock is requested.
+ *
+ * @author Gary O'Neall
+ */
+class TransactionLock implements Lock {
+
+	private final Transactional transactional;
+
+	/**
+	 * For each thread, the open critical sections - true if the critical section began the transaction
+	 */
+	private final ThreadLocal<Deque<Boolean>> criticalSections = ThreadLocal.withInitial(ArrayDeque::new);
+
+	/**
+	 * @param transactional dataset to begin transactions on
+	 */
+	TransactionLock(Transactional transactional) {
+		this.transactional = transactional;
+	}
+
+	@Override
+	public void enterCriticalSection(boolean readLockRequested) {
+		Deque<Boolean> sections = criticalSections.get();
+		if (!transactional.isInTransaction()) {
+			transactional.begin(readLockRequested ? TxnType.READ_PROMOTE : TxnType.WRITE);
+			sections.push(true);
+		} else {
+			if (!readLockRequested && ReadWrite.READ.equals(transactional.transactionMode()) && !transactional.promote()) {
+				throw new JenaException("Unable to promote a read transaction to a write transaction");
+			}
+			sections.push(false);
+		}
+	}
+
+	@Override
+	public void leaveCriticalSection() {
+		Deque<Boolean> sections = criticalSections.get();
+		if (sections.isEmpty()) {
+			throw new JenaException("Leaving a critical section which was not entered");
+		}
+		if (sections.pop()) {
+			try {
+				if (ReadWrite.WRITE.equals(transactional.transactionMode())) {
+					transactional.commit();
+				}
+			} finally {
+				transactional.end();
+			}
+		}
+	}
+}
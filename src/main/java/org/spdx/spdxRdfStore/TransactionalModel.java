@@ -0,0 +1,153 @@
+/**
+ * SPDX-FileCopyrightText: Copyright (c) 2024 Source Auditor Inc.
+ * SPDX-FileType: SOURCE
+ * SPDX-License-Identifier: Apache-2.0
+ * <p>
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * <p>
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.spdx.spdxRdfStore;
+
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.graph.impl.WrappedGraph;
+import org.apache.jena.rdf.model.impl.ModelCom;
+import org.apache.jena.shared.Lock;
+import org.apache.jena.sparql.JenaTransactionException;
+import org.apache.jena.sparql.core.Transactional;
+import org.apache.jena.system.Txn;
+import org.apache.jena.util.iterator.ExtendedIterator;
+
+/**
+ * Model over a graph in a transactional dataset such as TDB2
+ * <p>
+ * Critical sections are mapped onto transactions by a <code>TransactionLock</code>.
+ * Updates and lookups which do not iterate the graph made outside of a critical section run in their own transaction.
+ * The graph can only be iterated within a critical section - a find outside of a transaction fails with a
+ * <code>JenaTransactionException</code> rather than copying the matching triples out of the dataset.
+ *
+ * @author Gary O'Neall
+ */
+class TransactionalModel extends ModelCom {
+
+	private final TransactionLock lock;
+
+	/**
+	 * @param graph graph in the transactional dataset
+	 * @param transactional the dataset containing the graph
+	 */
+	TransactionalModel(Graph graph, Transactional transactional) {
+		super(new AutoCommitGraph(graph, transactional));
+		this.lock = new TransactionLock(transactional);
+	}
+
+	@Override
+	public void enterCriticalSection(boolean readLockRequested) {
+		lock.enterCriticalSection(readLockRequested);
+	}
+
+	@Override
+	public void leaveCriticalSection() {
+		lock.leaveCriticalSection();
+	}
+
+	@Override
+	public synchronized Lock getLock() {
+		return lock;
+	}
+
+	/**
+	 * Graph which wraps any update or lookup made outside of a transaction in its own transaction and rejects finds
+	 * outside of a transaction
+	 */
+	private static class AutoCommitGraph extends WrappedGraph {
+
+		private final Transactional transactional;
+
+		AutoCommitGraph(Graph base, Transactional transactional) {
+			super(base);
+			this.transactional = transactional;
+		}
+
+		private void write(Runnable action) {
+			if (transactional.isInTransaction()) {
+				action.run();
+			} else {
+				Txn.executeWrite(transactional, action);
+			}
+		}
+
+		@Override
+		public void add(Triple t) {
+			write(() -> super.add(t));
+		}
+
+		@Override
+		public void delete(Triple t) {
+			write(() -> super.delete(t));
+		}
+
+		@Override
+		public void clear() {
+			write(() -> super.clear());
+		}
+
+		@Override
+		public void remove(Node s, Node p, Node o) {
+			write(() -> super.remove(s, p, o));
+		}
+
+		@Override
+		public ExtendedIterator<Triple> find(Triple m) {
+			return find(m.getMatchSubject(), m.getMatchPredicate(), m.getMatchObject());
+		}
+
+		@Override
+		public ExtendedIterator<Triple> find(Node s, Node p, Node o) {
+			if (transactional.isInTransaction()) {
+				return super.find(s, p, o);
+			}
+			throw new JenaTransactionException("Find outside of a transaction - enter a critical section to iterate the graph");
+		}
+
+		@Override
+		public boolean contains(Node s, Node p, Node o) {
+			return transactional.isInTransaction() ? super.contains(s, p, o) :
+				Txn.calculateRead(transactional, () -> super.contains(s, p, o));
+		}
+
+		@Override
+		public boolean contains(Triple t) {
+			return transactional.isInTransaction() ? super.contains(t) :
+				Txn.calculateRead(transactional, () -> super.contains(t));
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return transactional.isInTransaction() ? super.isEmpty() :
+				Txn.calculateRead(transactional, () -> super.isEmpty());
+		}
+
+		@Override
+		public int size() {
+			return transactional.isInTransaction() ? super.size() :
+				Txn.calculateRead(transactional, () -> super.size());
+		}
+
+		@Override
+		public boolean isIsomorphicWith(Graph g) {
+			return transactional.isInTransaction() ? super.isIsomorphicWith(g) :
+				Txn.calculateRead(transactional, () -> super.isIsomorphicWith(g));
+		}
+	}
+}
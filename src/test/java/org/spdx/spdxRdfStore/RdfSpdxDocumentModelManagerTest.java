@@ -7,15 +7,24 @@ package org.spdx.spdxRdfStore;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
-import org.spdx.core.DuplicateSpdxIdException;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.vocabulary.RDF;
 import org.spdx.core.InvalidSPDXAnalysisException;
 import org.spdx.core.ModelRegistry;
 import org.spdx.core.SpdxInvalidIdException;
@@ -212,6 +221,58 @@ public class RdfSpdxDocumentModelManagerTest extends TestCase {
 		assertEquals(0, store.getPropertyValueNames(TEST_ID2).size());		
 	}
 
+	public void testGetAllPropertyValues() throws InvalidSPDXAnalysisException {
+		Model model = ModelFactory.createDefaultModel();
+		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + TEST_ID1, SpdxConstantsCompatV2.CLASS_ANNOTATION);
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + TEST_ID2, SpdxConstantsCompatV2.CLASS_ANNOTATION);
+		assertTrue(store.getAllPropertyValues(TEST_ID1).isEmpty());
+		for (int i = 0; i < 3; i++) {
+			store.setValue(TEST_ID1, TEST_VALUE_PROPERTIES[i], TEST_VALUE_PROPERTY_VALUES[i]);
+		}
+		for (int i = 0; i < 2; i++) {
+			for (Object value:TEST_LIST_PROPERTY_VALUES[i]) {
+				store.addValueToCollection(TEST_ID1, TEST_LIST_PROPERTIES[i], value);
+			}
+		}
+		Map<String, List<Object>> result = store.getAllPropertyValues(TEST_ID1);
+		assertEquals(5, result.size());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(Collections.singletonList(TEST_VALUE_PROPERTY_VALUES[i]), result.get(TEST_VALUE_PROPERTIES[i]));
+			assertEquals(store.getPropertyValue(TEST_ID1, TEST_VALUE_PROPERTIES[i]).get(), result.get(TEST_VALUE_PROPERTIES[i]).get(0));
+		}
+		for (int i = 0; i < 2; i++) {
+			assertEquals(new HashSet<>(TEST_LIST_PROPERTY_VALUES[i]), new HashSet<>(result.get(TEST_LIST_PROPERTIES[i])));
+			assertEquals(store.collectionSize(TEST_ID1, TEST_LIST_PROPERTIES[i]), result.get(TEST_LIST_PROPERTIES[i]).size());
+		}
+		assertTrue(store.getAllPropertyValues(TEST_ID2).isEmpty());
+	}
+
+	public void testResolvedIdCacheInvalidation() throws InvalidSPDXAnalysisException {
+		Model model = ModelFactory.createDefaultModel();
+		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
+		assertFalse(store.exists(TEST_ID1));
+		try {
+			store.getPropertyValue(TEST_ID1, TEST_VALUE_PROPERTIES[0]);
+			fail("Expected exception for a missing ID");
+		} catch (SpdxInvalidIdException ex) {
+			// expected
+		}
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + TEST_ID1, SpdxConstantsCompatV2.CLASS_ANNOTATION);
+		assertTrue(store.exists(TEST_ID1));
+		store.setValue(TEST_ID1, TEST_VALUE_PROPERTIES[0], TEST_VALUE_PROPERTY_VALUES[0]);
+		assertEquals(TEST_VALUE_PROPERTY_VALUES[0], store.getPropertyValue(TEST_ID1, TEST_VALUE_PROPERTIES[0]).get());
+		store.delete(TEST_ID1);
+		assertFalse(store.exists(TEST_ID1));
+		// changes made directly to the model are also reflected
+		Resource resource = model.createResource(TEST_DOCUMENT_URI1 + "#" + TEST_ID1);
+		resource.addProperty(RDF.type, model.createResource(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_ANNOTATION));
+		assertTrue(store.exists(TEST_ID1));
+		assertFalse(store.getPropertyValue(TEST_ID1, TEST_VALUE_PROPERTIES[0]).isPresent());
+		model.removeAll();
+		assertFalse(store.exists(TEST_ID1));
+	}
+
 	/**
 	 * Test method for {@link org.spdx.spdxRdfStore.RdfSpdxModelManager#setValue(java.lang.String, java.lang.String, java.lang.Object)}.
 	 */
@@ -585,7 +646,7 @@ public class RdfSpdxDocumentModelManagerTest extends TestCase {
 		assertFalse(store.isCollectionProperty(TEST_ID1, sProperty));
 	}
 	
-	public void testGetCasesensitiveId() throws SpdxInvalidIdException, DuplicateSpdxIdException {
+	public void testGetCasesensitiveId() throws InvalidSPDXAnalysisException {
 		Model model = ModelFactory.createDefaultModel();
 		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
 		String licenseId = SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM+"NowisTheTime";
@@ -601,6 +662,105 @@ public class RdfSpdxDocumentModelManagerTest extends TestCase {
 		assertFalse(store.getCasesensitiveId("LicenseRef-NOtThere").isPresent());
 		store.delete(spdxId);
 		assertFalse(store.getCasesensitiveId(spdxId).isPresent());
+		// an ID deleted right after its statements were added is tracked when it is re-created
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + spdxId, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		store.setValue(spdxId, TEST_VALUE_PROPERTIES[0], TEST_VALUE_PROPERTY_VALUES[0]);
+		assertEquals(spdxId, store.getCasesensitiveId(spdxId.toUpperCase()).get());
+		store.delete(spdxId);
+		assertFalse(store.getCasesensitiveId(spdxId).isPresent());
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + spdxId, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		assertEquals(spdxId, store.getCasesensitiveId(spdxId.toUpperCase()).get());
+	}
+
+	public void testConcurrentNextIds() throws Exception {
+		Model model = ModelFactory.createDefaultModel();
+		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
+		int numThreads = 8;
+		int idsPerThread = 1000;
+		Set<String> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < numThreads; i++) {
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < idsPerThread; j++) {
+						String id = store.getNextId(IdType.SpdxId);
+						store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + id, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+						ids.add(id);
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future:futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(numThreads * idsPerThread, ids.size());
+		for (String id:ids) {
+			assertEquals(id, store.getCasesensitiveId(id.toUpperCase()).get());
+		}
+		assertEquals(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM + "gnrtd" + (numThreads * idsPerThread + 1), 
+				store.getNextId(IdType.SpdxId));
+	}
+	
+	public void testReserveIds() throws InvalidSPDXAnalysisException {
+		Model model = ModelFactory.createDefaultModel();
+		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + "SPDXRef-gnrtd10", SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		List<String> ids = store.reserveIds(IdType.SpdxId, 5);
+		assertEquals(Arrays.asList("SPDXRef-gnrtd11", "SPDXRef-gnrtd12", "SPDXRef-gnrtd13", "SPDXRef-gnrtd14", "SPDXRef-gnrtd15"), ids);
+		assertEquals("SPDXRef-gnrtd16", store.getNextId(IdType.SpdxId));
+		ids = store.reserveIds(IdType.LicenseRef, 2);
+		assertEquals(Arrays.asList("LicenseRef-gnrtd1", "LicenseRef-gnrtd2"), ids);
+		ids = store.reserveIds(IdType.DocumentRef, 1);
+		assertEquals(Arrays.asList(SpdxConstantsCompatV2.EXTERNAL_DOC_REF_PRENUM + "gnrtd1"), ids);
+		assertTrue(store.reserveIds(IdType.SpdxId, 0).isEmpty());
+		ids = store.reserveIds(IdType.Anonymous, 3);
+		assertEquals(3, ids.size());
+		assertEquals(3, new HashSet<>(ids).size());
+		for (String id:ids) {
+			assertTrue(id.startsWith(RdfStore.ANON_PREFIX));
+		}
+		try {
+			store.reserveIds(IdType.ListedLicense, 1);
+			fail("Listed license IDs can not be reserved");
+		} catch (InvalidSPDXAnalysisException ex) {
+			// expected
+		}
+		try {
+			store.reserveIds(IdType.SpdxId, -1);
+			fail("Negative counts are not allowed");
+		} catch (InvalidSPDXAnalysisException ex) {
+			// expected
+		}
+	}
+	
+	public void testSuspendResumeIdTracking() throws InvalidSPDXAnalysisException {
+		Model model = ModelFactory.createDefaultModel();
+		RdfSpdxModelManager store = new RdfSpdxModelManager(TEST_DOCUMENT_URI1, model);
+		String spdxId = SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM + "gnrtd12";
+		String licenseId = SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM + "gnrtd7";
+		store.suspendIdTracking();
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + spdxId, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + licenseId, SpdxConstantsCompatV2.CLASS_SPDX_EXTRACTED_LICENSING_INFO);
+		assertFalse(store.getCasesensitiveId(spdxId.toLowerCase()).isPresent());
+		store.resumeIdTracking();
+		assertEquals(spdxId, store.getCasesensitiveId(spdxId.toLowerCase()).get());
+		assertEquals(licenseId, store.getCasesensitiveId(licenseId.toUpperCase()).get());
+		assertEquals(SpdxConstantsCompatV2.SPDX_ELEMENT_REF_PRENUM + "gnrtd13", store.getNextId(IdType.SpdxId));
+		assertEquals(SpdxConstantsCompatV2.NON_STD_LICENSE_ID_PRENUM + "gnrtd8", store.getNextId(IdType.LicenseRef));
+		// deleted and re-created IDs are tracked
+		store.delete(spdxId);
+		assertFalse(store.getCasesensitiveId(spdxId).isPresent());
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + spdxId, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		assertEquals(spdxId, store.getCasesensitiveId(spdxId.toLowerCase()).get());
+		// clearing the graph removes all IDs
+		model.getGraph().clear();
+		assertFalse(store.getCasesensitiveId(spdxId).isPresent());
+		store.getOrCreate(TEST_DOCUMENT_URI1 + "#" + spdxId, SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		assertEquals(spdxId, store.getCasesensitiveId(spdxId.toLowerCase()).get());
 	}
 
 	public void testGetTypedValue() throws InvalidSPDXAnalysisException {
@@ -5,22 +5,55 @@
  */
 package org.spdx.spdxRdfStore;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.apache.jena.datatypes.xsd.XSDDatatype;
+import org.apache.jena.graph.Graph;
+import org.apache.jena.graph.GraphMemFactory;
+import org.apache.jena.graph.Node;
+import org.apache.jena.graph.NodeFactory;
+import org.apache.jena.graph.Triple;
+import org.apache.jena.query.Dataset;
+import org.apache.jena.query.DatasetFactory;
 import org.apache.jena.query.QueryExecution;
 import org.apache.jena.query.QueryExecutionFactory;
+import org.apache.jena.query.TxnType;
 import org.apache.jena.query.ResultSet;
 import org.apache.jena.rdf.model.Model;
+import org.apache.jena.rdf.model.ModelFactory;
+import org.apache.jena.sparql.JenaTransactionException;
+import org.apache.jena.rdf.model.Property;
+import org.apache.jena.rdf.model.Resource;
+import org.apache.jena.rdf.model.Statement;
+import org.apache.jena.riot.Lang;
 import org.apache.jena.riot.RDFDataMgr;
+import org.apache.jena.util.iterator.ExtendedIterator;
 import org.spdx.core.InvalidSPDXAnalysisException;
 import org.spdx.core.ModelRegistry;
 import org.spdx.core.TypedValue;
@@ -36,6 +69,8 @@ import org.spdx.library.model.v2.SpdxModelInfoV2_X;
 import org.spdx.library.model.v2.SpdxPackage;
 import org.spdx.library.model.v2.enumerations.RelationshipType;
 import org.spdx.library.model.v3_0_1.SpdxModelInfoV3_0;
+import org.spdx.storage.IModelStore.IModelStoreLock;
+import org.spdx.storage.IModelStore.IdType;
 import org.spdx.storage.compatv2.CompatibleModelStoreWrapper;
 
 import junit.framework.TestCase;
@@ -114,6 +149,53 @@ public class RdfStoreTest extends TestCase {
 		}
 	}
 	
+	public void testCountItems() throws InvalidSPDXAnalysisException {
+		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
+		assertEquals(0, rdfStore.countItems(null));
+		SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+		SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, ID_2, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+		SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, ID_3, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+		assertEquals(2, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+		assertEquals(1, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT));
+		assertEquals(0, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_PACKAGE));
+		assertEquals(3, rdfStore.countItems(null));
+		try (Stream<TypedValue> allItems = rdfStore.getAllItems(null, null)) {
+			assertEquals(3, allItems.count());
+		}
+		rdfStore.delete(DOCUMENT_URI1 + "#" + ID_2);
+		assertEquals(1, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+		try (Stream<TypedValue> files = rdfStore.getAllItems(null, SpdxConstantsCompatV2.CLASS_SPDX_FILE)) {
+			assertEquals(Collections.singletonList(new TypedValue(DOCUMENT_URI1 + "#" + ID_3, SpdxConstantsCompatV2.CLASS_SPDX_FILE, 
+					CompatibleModelStoreWrapper.LATEST_SPDX_2X_VERSION)), files.collect(Collectors.toList()));
+		}
+	}
+	
+	public void testGetAllItemsSnapshot() throws InvalidSPDXAnalysisException {
+		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
+		SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+		int numFiles = 100;
+		List<TypedValue> expected = new ArrayList<>();
+		for (int i = 0; i < numFiles; i++) {
+			String id = rdfStore.getNextId(IdType.SpdxId);
+			SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, id, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+			expected.add(new TypedValue(DOCUMENT_URI1 + "#" + id, SpdxConstantsCompatV2.CLASS_SPDX_FILE, CompatibleModelStoreWrapper.LATEST_SPDX_2X_VERSION));
+		}
+		try (Stream<TypedValue> result = rdfStore.getAllItemsSnapshot(SpdxConstantsCompatV2.CLASS_SPDX_FILE)) {
+			Spliterator<TypedValue> spliterator = result.spliterator();
+			assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+			assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+			assertEquals(numFiles, spliterator.estimateSize());
+		}
+		Stream<TypedValue> snapshot = rdfStore.getAllItemsSnapshot(SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		// changes after the snapshot is taken are not reflected
+		rdfStore.delete(expected.get(0).getObjectUri());
+		Set<TypedValue> result = snapshot.parallel().collect(Collectors.toSet());
+		assertEquals(new HashSet<>(expected), result);
+		try (Stream<TypedValue> all = rdfStore.getAllItemsSnapshot(null)) {
+			assertEquals(numFiles, all.parallel().count());
+		}
+	}
+	
 	   public void testInconsistentLicenseUri() throws InvalidSPDXAnalysisException, IOException {
 	       // See issue #1 - inconsistent use of http:// https:// in license Id's are causing issues
 	       // Test file uses the following references to listed licenses:
@@ -188,6 +270,33 @@ public class RdfStoreTest extends TestCase {
 		assertEquals(2, documentDescribes.size());
 	}
 	
+	public void testLoadModelFromFileUrl() throws InvalidSPDXAnalysisException, IOException {
+		File testFile = new File(TEST_FILE_NAME);
+		assertTrue(RdfStore.toLocalFile(TEST_FILE_NAME).isPresent());
+		assertTrue(RdfStore.toLocalFile(testFile.toURI().toString()).isPresent());
+		assertFalse(RdfStore.toLocalFile("https://spdx.org/licenses/MIT").isPresent());
+		assertFalse(RdfStore.toLocalFile("TestFiles").isPresent());
+		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
+		assertEquals(TEST_FILE_NAMESPACE, rdfStore.loadModelFromFile(testFile.toURI().toString(), false));
+		SpdxDocument doc = new SpdxDocument(rdfStore, TEST_FILE_NAMESPACE, null, false);
+		assertEquals(2, doc.getDocumentDescribes().size());
+	}
+	
+	public void testLoadModelFromFileCloses() throws Exception {
+		Path copy = Files.createTempFile("spdx", ".rdf.xml");
+		try {
+			Files.copy(Paths.get(TEST_FILE_NAME), copy, StandardCopyOption.REPLACE_EXISTING);
+			// the file is no longer open once it has been loaded
+			try (RdfStore rdfStore = new RdfStore()) {
+				assertEquals(TEST_FILE_NAMESPACE, rdfStore.loadModelFromFile(copy.toString(), false));
+			}
+			Files.write(copy, new byte[] {1, 2, 3});
+			assertEquals(3, Files.size(copy));
+		} finally {
+			Files.delete(copy);
+		}
+	}
+	
 	public void testHandleHasFile() throws InvalidSPDXAnalysisException, IOException {
 		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
 		String documentUri = rdfStore.loadModelFromFile(HAS_FILE_FILE_PATH, false);
@@ -210,6 +319,67 @@ public class RdfStoreTest extends TestCase {
 		assertTrue(found);
 	}
 	
+	public void testSkipCompatibilityUpgrade() throws InvalidSPDXAnalysisException, IOException {
+		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
+		rdfStore.setSkipCompatibilityUpgrade(true);
+		rdfStore.loadModelFromFile(HAS_FILE_FILE_PATH, false);
+		Model model = rdfStore.modelManager.model;
+		String query = "SELECT ?s ?o  WHERE { ?s  <http://spdx.org/rdf/terms#hasFile> ?o }";
+		try (QueryExecution qe = QueryExecutionFactory.create(query, model)) {
+			 ResultSet result = qe.execSelect();
+			 assertTrue(result.hasNext());
+		}
+	}
+	
+	public void testUpgradeNotNeeded() throws InvalidSPDXAnalysisException, IOException {
+		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
+		String documentUri = rdfStore.loadModelFromFile(TEST_FILE_NAME, false);
+		Model model = rdfStore.modelManager.model;
+		List<Statement> before = model.listStatements().toList();
+		// the model has already been upgraded, so a second upgrade must not change it
+		CompatibilityUpgrader.upgrade(model, documentUri);
+		assertEquals(before.size(), model.size());
+		for (Statement statement:before) {
+			assertTrue(model.contains(statement));
+		}
+		
+		RdfStore hasFileStore = new RdfStore(DOCUMENT_URI1);
+		hasFileStore.setSkipCompatibilityUpgrade(true);
+		String hasFileDocumentUri = hasFileStore.loadModelFromFile(HAS_FILE_FILE_PATH, false);
+		Model hasFileModel = hasFileStore.modelManager.model;
+		long sizeBefore = hasFileModel.size();
+		assertTrue(hasFileModel.contains(null, CompatibilityUpgrader.HAS_FILE_PROPERTY));
+		CompatibilityUpgrader.upgrade(hasFileModel, hasFileDocumentUri);
+		assertFalse(hasFileModel.contains(null, CompatibilityUpgrader.HAS_FILE_PROPERTY));
+		assertTrue(hasFileModel.size() != sizeBefore);
+	}
+	
+	public void testUpgradeManyHasFiles() throws InvalidSPDXAnalysisException {
+		String namespace = "http://spdx.org/spdxdocs/manyHasFiles";
+		Model model = ModelFactory.createDefaultModel();
+		Resource pkg = model.createResource(namespace + "#SPDXRef-Package");
+		Property relationshipProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP.getName());
+		Property relatedElementProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATED_SPDX_ELEMENT.getName());
+		Property relationshipTypeProperty = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_RELATIONSHIP_TYPE.getName());
+		int numFiles = 5000;
+		for (int i = 0; i < numFiles; i++) {
+			pkg.addProperty(CompatibilityUpgrader.HAS_FILE_PROPERTY, model.createResource(namespace + "#SPDXRef-File" + i));
+		}
+		// an existing CONTAINS relationship should not be duplicated
+		Resource existing = model.createResource();
+		existing.addProperty(relatedElementProperty, model.createResource(namespace + "#SPDXRef-File0"));
+		existing.addProperty(relationshipTypeProperty, model.createResource(RelationshipType.CONTAINS.getIndividualURI()));
+		pkg.addProperty(relationshipProperty, existing);
+		
+		CompatibilityUpgrader.upgrade(model, namespace);
+		assertFalse(model.contains(null, CompatibilityUpgrader.HAS_FILE_PROPERTY));
+		assertEquals(numFiles, model.listStatements(pkg, relationshipProperty, (Resource)null).toList().size());
+		Set<Resource> relatedFiles = new HashSet<>();
+		model.listStatements(pkg, relationshipProperty, (Resource)null).forEach(stmt -> 
+			assertTrue(relatedFiles.add(stmt.getObject().asResource().getPropertyResourceValue(relatedElementProperty))));
+		assertEquals(numFiles, relatedFiles.size());
+	}
+	
 	public void testDuplicateHasFiles() throws InvalidSPDXAnalysisException, IOException {
 		RdfStore rdfStore = new RdfStore(DOCUMENT_URI1);
 		String documentUri = rdfStore.loadModelFromFile(HAS_FILE_AND_CONTAINS_PATH, false);
@@ -252,4 +422,765 @@ public class RdfStoreTest extends TestCase {
 			}
 		}
 	}
+	
+	public void testStreamingSerialization() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			try (InputStream spdxRdfInput = RDFDataMgr.open(TEST_FILE_NAME)) {
+				rdfStore.deSerialize(spdxRdfInput, false);
+			}
+			Model expected = rdfStore.modelManager.getModel();
+			for (OutputFormat format:new OutputFormat[] {OutputFormat.N_TRIPLET_STREAMING, 
+					OutputFormat.TURTLE_STREAMING, OutputFormat.TURTLE_STREAMING_BY_SUBJECT,
+					OutputFormat.RDF_THRIFT, OutputFormat.RDF_PROTO}) {
+				rdfStore.setOutputFormat(format);
+				try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+					rdfStore.serialize(output);
+					try (RdfStore compareStore = new RdfStore()) {
+						compareStore.setOutputFormat(format);
+						// the upgrade is not needed for data written by this library
+						compareStore.setSkipCompatibilityUpgrade(true);
+						SpdxDocument result = compareStore.deSerialize(new ByteArrayInputStream(output.toByteArray()), false);
+						assertTrue(result.verify().isEmpty());
+						assertTrue(format.toString(), expected.isIsomorphicWith(compareStore.modelManager.getModel()));
+					}
+				}
+			}
+		}
+	}
+	
+	public void testFastXmlSerialization() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			try (InputStream spdxRdfInput = RDFDataMgr.open(TEST_FILE_NAME)) {
+				rdfStore.deSerialize(spdxRdfInput, false);
+			}
+			rdfStore.setOutputFormat(OutputFormat.XML_ABBREV_FAST);
+			try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+				rdfStore.serialize(output);
+				try (RdfStore compareStore = new RdfStore()) {
+					SpdxDocument result = compareStore.deSerialize(new ByteArrayInputStream(output.toByteArray()), false);
+					assertTrue(result.verify().isEmpty());
+					assertTrue(rdfStore.modelManager.getModel().isIsomorphicWith(compareStore.modelManager.getModel()));
+				}
+			}
+		}
+	}
+	
+	public void testFastXmlWriterBlankNodes() throws Exception {
+		Model model = ModelFactory.createDefaultModel();
+		model.setNsPrefix("spdx", SpdxConstantsCompatV2.SPDX_NAMESPACE);
+		Property prop = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE, "prop");
+		Property unregistered = model.createProperty("http://example.com/unregistered#", "other");
+		Resource type = model.createResource(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_FILE);
+		Resource subject = model.createResource(DOCUMENT_URI1 + "#SPDXRef-1", type);
+		// referenced once, referenced twice, referenced by itself and a cycle of blank nodes
+		Resource nested = model.createResource(type);
+		subject.addProperty(prop, nested);
+		nested.addProperty(prop, "a <literal> & \"quotes\"\r\n\ttabs");
+		nested.addProperty(prop, model.createLiteral("english", "en"));
+		nested.addProperty(prop, model.createTypedLiteral(Integer.valueOf(12)));
+		Resource shared = model.createResource();
+		subject.addProperty(unregistered, shared);
+		nested.addProperty(unregistered, shared);
+		shared.addProperty(prop, "shared");
+		Resource self = model.createResource();
+		self.addProperty(prop, self);
+		Resource cycle1 = model.createResource();
+		Resource cycle2 = model.createResource();
+		cycle1.addProperty(prop, cycle2);
+		cycle2.addProperty(prop, cycle1);
+		subject.addProperty(prop, model.createResource());
+		try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+			new SpdxRdfXmlWriter(model, DOCUMENT_URI1).write(output);
+			Model result = ModelFactory.createDefaultModel();
+			result.read(new ByteArrayInputStream(output.toByteArray()), null, "RDF/XML");
+			assertEquals(model.size(), result.size());
+			assertTrue(model.isIsomorphicWith(result));
+		}
+	}
+	
+	public void testFastXmlWriterInvalidCharacters() throws Exception {
+		Model model = ModelFactory.createDefaultModel();
+		Property prop = model.createProperty(SpdxConstantsCompatV2.SPDX_NAMESPACE, "prop");
+		Resource subject = model.createResource(DOCUMENT_URI1 + "#SPDXRef-1");
+		subject.addProperty(prop, "supplementary \ud83d\ude00 character");
+		try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+			new SpdxRdfXmlWriter(model, DOCUMENT_URI1).write(output);
+			Model result = ModelFactory.createDefaultModel();
+			result.read(new ByteArrayInputStream(output.toByteArray()), null, "RDF/XML");
+			assertTrue(model.isIsomorphicWith(result));
+		}
+		// characters outside of the XML 1.0 Char production are rejected rather than written
+		for (String invalid:List.of("form\u000cfeed", "lone \ud83d surrogate", "\ufffe")) {
+			subject.removeAll(prop);
+			subject.addProperty(prop, invalid);
+			try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+				new SpdxRdfXmlWriter(model, DOCUMENT_URI1).write(output);
+				fail("Invalid XML character should be rejected");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+		}
+	}
+	
+	public void testCompression() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			try (InputStream spdxRdfInput = RDFDataMgr.open(TEST_FILE_NAME)) {
+				rdfStore.deSerialize(spdxRdfInput, false);
+			}
+			Model expected = rdfStore.modelManager.getModel();
+			int uncompressedSize;
+			try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+				rdfStore.serialize(output);
+				uncompressedSize = output.size();
+			}
+			for (Compression compression:Compression.values()) {
+				rdfStore.setCompression(compression);
+				rdfStore.setCompressionLevel(Compression.NONE.equals(compression) ? Compression.DEFAULT_LEVEL : 1);
+				File compressedFile = File.createTempFile("spdx", ".rdf");
+				try {
+					try (OutputStream output = new FileOutputStream(compressedFile)) {
+						rdfStore.serialize(output);
+					}
+					if (!Compression.NONE.equals(compression)) {
+						assertTrue(compressedFile.length() < uncompressedSize);
+					}
+					try (RdfStore compareStore = new RdfStore()) {
+						compareStore.loadModelFromFile(compressedFile.getPath(), false);
+						assertTrue(compression.toString(), expected.isIsomorphicWith(compareStore.modelManager.getModel()));
+					}
+				} finally {
+					compressedFile.delete();
+				}
+			}
+		}
+	}
+	
+	public void testCompressionLevel() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			try (InputStream spdxRdfInput = RDFDataMgr.open(TEST_FILE_NAME)) {
+				rdfStore.deSerialize(spdxRdfInput, false);
+			}
+			int[][] invalidLevels = new int[][] {{}, {-2, 10}, {0, 10}, {23}};
+			for (Compression compression:Compression.values()) {
+				rdfStore.setCompression(compression);
+				for (int level:invalidLevels[compression.ordinal()]) {
+					try {
+						rdfStore.setCompressionLevel(level);
+						fail(compression + " level " + level + " should be rejected");
+					} catch (SpdxRdfException ex) {
+						// expected
+					}
+				}
+				rdfStore.setCompressionLevel(Compression.DEFAULT_LEVEL);
+			}
+			// the level is checked against the codec before anything is written
+			rdfStore.setCompression(Compression.ZSTD);
+			rdfStore.setCompressionLevel(19);
+			rdfStore.setCompression(Compression.GZIP);
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			try {
+				rdfStore.serialize(output);
+				fail("GZIP level 19 should be rejected");
+			} catch (SpdxRdfException ex) {
+				assertEquals(0, output.size());
+			}
+		}
+	}
+	
+	public void testStreamingLoadIndexes() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			rdfStore.loadModelFromFile(HAS_FILE_FILE_PATH, false);
+			RdfSpdxModelManager loaded = rdfStore.modelManager;
+			// compare to a manager which scans the model
+			RdfSpdxModelManager scanned = new RdfSpdxModelManager(rdfStore.getDocumentUri(), loaded.getModel());
+			try {
+				assertEquals(scanned.countItems(null), loaded.countItems(null));
+				assertEquals(scanned.getAllItems(null).collect(Collectors.toSet()), loaded.getAllItems(null).collect(Collectors.toSet()));
+				assertEquals(scanned.getCasesensitiveId("spdxref-package"), loaded.getCasesensitiveId("spdxref-package"));
+				assertTrue(loaded.getCasesensitiveId("spdxref-package").isPresent());
+				for (IdType idType:new IdType[] {IdType.SpdxId, IdType.LicenseRef, IdType.DocumentRef}) {
+					assertEquals(scanned.getNextId(idType), loaded.getNextId(idType));
+				}
+			} finally {
+				scanned.close();
+			}
+			// generated IDs seen while loading update the counters
+			rdfStore.setOutputFormat(OutputFormat.N_TRIPLET);
+			String generated = "<" + rdfStore.getDocumentUri() + "#SPDXRef-gnrtd41> <" + RdfSpdxModelManager.RDF_TYPE + "> <" +
+					SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_FILE + "> .\n";
+			try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+				rdfStore.serialize(output);
+				output.write(generated.getBytes(StandardCharsets.UTF_8));
+				try (RdfStore reloaded = new RdfStore()) {
+					reloaded.setOutputFormat(OutputFormat.N_TRIPLET);
+					reloaded.deSerialize(new ByteArrayInputStream(output.toByteArray()), false);
+					assertEquals("SPDXRef-gnrtd42", reloaded.modelManager.getNextId(IdType.SpdxId));
+					assertEquals(Optional.of("SPDXRef-gnrtd41"), reloaded.modelManager.getCasesensitiveId("spdxref-GNRTD41"));
+				}
+			}
+		}
+	}
+	
+	public void testParallelLoad() throws Exception {
+		try (RdfStore rdfStore = new RdfStore()) {
+			try (InputStream spdxRdfInput = RDFDataMgr.open(TEST_FILE_NAME)) {
+				rdfStore.deSerialize(spdxRdfInput, false);
+			}
+			Model expected = rdfStore.modelManager.getModel();
+			rdfStore.setOutputFormat(OutputFormat.N_TRIPLET_STREAMING);
+			byte[] nTriples;
+			try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+				rdfStore.serialize(output);
+				nTriples = output.toByteArray();
+			}
+			// small chunks so blank nodes are referenced from several chunks
+			SpdxStreamLoader loader = SpdxStreamLoader.loadParallel(new ByteArrayInputStream(nTriples), Lang.NTRIPLES, 4, 512, ModelFactory.createDefaultModel(), new MemoryIdIndex());
+			assertEquals(expected.size(), loader.getModel().size());
+			assertTrue(expected.isIsomorphicWith(loader.getModel()));
+			try (RdfStore compareStore = new RdfStore()) {
+				compareStore.setOutputFormat(OutputFormat.N_TRIPLET);
+				compareStore.setParserThreads(4);
+				SpdxDocument result = compareStore.deSerialize(new ByteArrayInputStream(nTriples), false);
+				assertTrue(result.verify().isEmpty());
+				assertTrue(expected.isIsomorphicWith(compareStore.modelManager.getModel()));
+			}
+		}
+	}
+	
+	public void testGraphEngines() throws Exception {
+		Model expected;
+		try (RdfStore defaultStore = new RdfStore(DOCUMENT_URI1)) {
+			assertEquals(GraphEngine.GRAPH_MEM, defaultStore.getGraphEngine());
+			defaultStore.loadModelFromFile(TEST_FILE_NAME, true);
+			expected = defaultStore.modelManager.getModel();
+		}
+		for (GraphEngine graphEngine:GraphEngine.values()) {
+			try (RdfStore rdfStore = new RdfStore(DOCUMENT_URI1, graphEngine)) {
+				assertEquals(graphEngine, rdfStore.getGraphEngine());
+				assertEquals(graphEngine.createGraph().getClass(), rdfStore.modelManager.getModel().getGraph().getClass());
+				SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+				SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, ID_2, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+				assertEquals(1, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+				assertTrue(rdfStore.exists(DOCUMENT_URI1 + "#" + ID_2));
+				rdfStore.delete(DOCUMENT_URI1 + "#" + ID_2);
+				assertFalse(rdfStore.exists(DOCUMENT_URI1 + "#" + ID_2));
+				
+				rdfStore.loadModelFromFile(TEST_FILE_NAME, true);
+				assertEquals(graphEngine.createGraph().getClass(), rdfStore.modelManager.getModel().getGraph().getClass());
+				assertTrue(expected.isIsomorphicWith(rdfStore.modelManager.getModel()));
+				SpdxDocument doc = new SpdxDocument(rdfStore, TEST_FILE_NAMESPACE, null, false);
+				assertTrue(doc.verify().isEmpty());
+				assertEquals(2, doc.getDocumentDescribes().size());
+				
+				rdfStore.setOutputFormat(OutputFormat.N_TRIPLET_STREAMING);
+				byte[] nTriples;
+				try (ByteArrayOutputStream output = new ByteArrayOutputStream()) {
+					rdfStore.serialize(output);
+					nTriples = output.toByteArray();
+				}
+				try (RdfStore compareStore = new RdfStore()) {
+					compareStore.setGraphEngine(graphEngine);
+					compareStore.setOutputFormat(OutputFormat.N_TRIPLET);
+					compareStore.setParserThreads(2);
+					compareStore.deSerialize(new ByteArrayInputStream(nTriples), false);
+					assertEquals(graphEngine.createGraph().getClass(), compareStore.modelManager.getModel().getGraph().getClass());
+					assertTrue(expected.isIsomorphicWith(compareStore.modelManager.getModel()));
+				}
+			}
+		}
+	}
+	
+	public void testCompactGraph() throws Exception {
+		assertGraphMatchesGraphMem2(GraphEngine.COMPACT);
+		NodeDictionary dictionary = new NodeDictionary();
+		List<Node> nodes = List.of(NodeFactory.createURI(DOCUMENT_URI1 + "#SPDXRef-1"), NodeFactory.createBlankNode("b1"),
+				NodeFactory.createLiteralString("1"), NodeFactory.createLiteralLang("1", "en"),
+				NodeFactory.createLiteralDT("1", XSDDatatype.XSDinteger), NodeFactory.createLiteralString("\u00e9\u4e2d"),
+				NodeFactory.createURI("urn:\ud83d\ude00"));
+		for (Node node:nodes) {
+			dictionary.getOrCreateId(node);
+		}
+		for (int i = 0; i < nodes.size(); i++) {
+			assertEquals(i, dictionary.getId(nodes.get(i)));
+			assertEquals(nodes.get(i), dictionary.getNode(i));
+		}
+		// nodes which differ only in part of their encoding are not found
+		assertEquals(-1, dictionary.getId(NodeFactory.createURI(DOCUMENT_URI1 + "#SPDXRef-10")));
+		assertEquals(-1, dictionary.getId(NodeFactory.createURI(DOCUMENT_URI1 + "#SPDXRef-")));
+		assertEquals(-1, dictionary.getId(NodeFactory.createLiteralLang("1", "fr")));
+		assertEquals(-1, dictionary.getId(NodeFactory.createLiteralDT("1", XSDDatatype.XSDint)));
+		assertEquals(-1, dictionary.getId(NodeFactory.createBlankNode("1")));
+		// clearing the graph empties the dictionary
+		Graph compact = GraphEngine.COMPACT.createGraph();
+		compact.add(Triple.create(nodes.get(0), nodes.get(0), nodes.get(2)));
+		compact.clear();
+		compact.add(Triple.create(nodes.get(1), nodes.get(0), nodes.get(3)));
+		assertEquals(List.of(Triple.create(nodes.get(1), nodes.get(0), nodes.get(3))), compact.find().toList());
+		assertFalse(compact.contains(nodes.get(0), Node.ANY, Node.ANY));
+	}
+	
+	public void testPredicateTableGraph() throws Exception {
+		assertGraphMatchesGraphMem2(GraphEngine.PREDICATE_TABLES);
+		// a second value for a single valued property is kept
+		Graph graph = GraphEngine.PREDICATE_TABLES.createGraph();
+		Node subject = NodeFactory.createURI(DOCUMENT_URI1 + "#SPDXRef-File");
+		Node fileName = NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_FILE_NAME.getName());
+		graph.add(subject, fileName, NodeFactory.createLiteralString("./a"));
+		graph.add(subject, fileName, NodeFactory.createLiteralString("./b"));
+		assertEquals(2, graph.find(subject, fileName, Node.ANY).toList().size());
+		graph.delete(subject, fileName, NodeFactory.createLiteralString("./a"));
+		assertEquals(List.of(Triple.create(subject, fileName, NodeFactory.createLiteralString("./b"))), 
+				graph.find(subject, fileName, Node.ANY).toList());
+		// typed values are created with the same term they were added with
+		Node offset = NodeFactory.createURI(SpdxConstantsCompatV2.RDF_POINTER_NAMESPACE + SpdxConstantsCompatV2.PROP_POINTER_OFFSET.getName());
+		Node fsfLibre = NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_STD_LICENSE_FSF_LIBRE.getName());
+		Triple offsetTriple = Triple.create(subject, offset, NodeFactory.createLiteralDT("12", XSDDatatype.XSDint));
+		Triple fsfLibreTriple = Triple.create(subject, fsfLibre, NodeFactory.createLiteralDT("false", XSDDatatype.XSDboolean));
+		graph.add(offsetTriple);
+		graph.add(fsfLibreTriple);
+		assertEquals(List.of(offsetTriple), graph.find(subject, offset, Node.ANY).toList());
+		assertEquals(List.of(fsfLibreTriple), graph.find(Node.ANY, Node.ANY, fsfLibreTriple.getObject()).toList());
+		assertFalse(graph.contains(subject, offset, NodeFactory.createLiteralDT("12", XSDDatatype.XSDinteger)));
+		// the number of a subject without triples is reused
+		Node other = NodeFactory.createURI(DOCUMENT_URI1 + "#SPDXRef-Other");
+		graph.remove(subject, Node.ANY, Node.ANY);
+		assertEquals(0, graph.size());
+		graph.add(other, offset, NodeFactory.createLiteralDT("1", XSDDatatype.XSDint));
+		assertEquals(List.of(Triple.create(other, offset, NodeFactory.createLiteralDT("1", XSDDatatype.XSDint))), 
+				graph.find().toList());
+		assertFalse(graph.contains(subject, Node.ANY, Node.ANY));
+	}
+	
+	/**
+	 * Compare random updates and finds on a graph created by the engine with a GraphMem2 graph
+	 * @param engine graph engine to test
+	 */
+	private void assertGraphMatchesGraphMem2(GraphEngine engine) {
+		Random random = new Random(42);
+		List<Node> subjects = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			subjects.add(i % 10 == 0 ? NodeFactory.createBlankNode() : NodeFactory.createURI(DOCUMENT_URI1 + "#s" + i));
+		}
+		List<Node> predicates = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			predicates.add(NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + "p" + i));
+		}
+		predicates.add(NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_FILE_NAME.getName()));
+		predicates.add(NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_STD_LICENSE_FSF_LIBRE.getName()));
+		predicates.add(NodeFactory.createURI(SpdxConstantsCompatV2.RDF_POINTER_NAMESPACE + SpdxConstantsCompatV2.PROP_POINTER_OFFSET.getName()));
+		List<Node> objects = new ArrayList<>(subjects.subList(0, 20));
+		for (int i = 0; i < 20; i++) {
+			objects.add(NodeFactory.createLiteralString("literal" + i));
+		}
+		objects.add(NodeFactory.createLiteralLang("literal0", "en"));
+		objects.add(NodeFactory.createLiteralDT("1", XSDDatatype.XSDinteger));
+		objects.add(NodeFactory.createLiteralDT("1", XSDDatatype.XSDint));
+		objects.add(NodeFactory.createLiteralDT("01", XSDDatatype.XSDint));
+		objects.add(NodeFactory.createLiteralDT("true", XSDDatatype.XSDboolean));
+		objects.add(NodeFactory.createLiteralDT("1", XSDDatatype.XSDboolean));
+		objects.add(NodeFactory.createLiteralString("non-ascii \u00e9\u4e2d"));
+		objects.add(NodeFactory.createURI("urn:no:separator"));
+		Graph expected = GraphMemFactory.createGraphMem2();
+		Graph compact = engine.createGraph();
+		for (int i = 0; i < 20000; i++) {
+			Triple triple = Triple.create(subjects.get(random.nextInt(subjects.size())), 
+					predicates.get(random.nextInt(predicates.size())), objects.get(random.nextInt(objects.size())));
+			if (random.nextInt(4) == 0) {
+				expected.delete(triple);
+				compact.delete(triple);
+			} else {
+				expected.add(triple);
+				compact.add(triple);
+			}
+		}
+		assertEquals(expected.size(), compact.size());
+		assertTrue(compact.isIsomorphicWith(expected));
+		for (int i = 0; i < 500; i++) {
+			Node s = random.nextBoolean() ? Node.ANY : subjects.get(random.nextInt(subjects.size()));
+			Node p = random.nextBoolean() ? Node.ANY : predicates.get(random.nextInt(predicates.size()));
+			Node o = random.nextBoolean() ? Node.ANY : objects.get(random.nextInt(objects.size()));
+			assertEquals(new HashSet<>(expected.find(s, p, o).toList()), new HashSet<>(compact.find(s, p, o).toList()));
+			assertEquals(expected.contains(s, p, o), compact.contains(s, p, o));
+		}
+		assertTrue(compact.find(NodeFactory.createURI("urn:not:in:graph"), Node.ANY, Node.ANY).toList().isEmpty());
+		ExtendedIterator<Triple> exhausted = compact.find(subjects.get(1), Node.ANY, Node.ANY);
+		exhausted.toList();
+		assertFalse(exhausted.hasNext());
+
+		// remove all triples with a predicate through the iterator
+		Node removed = predicates.get(0);
+		ExtendedIterator<Triple> iter = compact.find(Node.ANY, removed, Node.ANY);
+		while (iter.hasNext()) {
+			iter.next();
+			iter.remove();
+		}
+		expected.remove(Node.ANY, removed, Node.ANY);
+		assertFalse(compact.contains(Node.ANY, removed, Node.ANY));
+		assertEquals(expected.size(), compact.size());
+		assertTrue(compact.isIsomorphicWith(expected));
+		compact.clear();
+		assertTrue(compact.isEmpty());
+	}
+	
+	public void testPersistentStore() throws Exception {
+		Path directory = Files.createTempDirectory("spdxTdb");
+		try {
+			Model expected;
+			try (RdfStore rdfStore = new RdfStore(directory)) {
+				assertTrue(rdfStore.isPersistent());
+				assertNull(rdfStore.getDocumentUri());
+				assertEquals(TEST_FILE_NAMESPACE, rdfStore.loadModelFromFile(TEST_FILE_NAME, false));
+				SpdxDocument doc = new SpdxDocument(rdfStore, TEST_FILE_NAMESPACE, null, false);
+				assertTrue(doc.verify().isEmpty());
+				doc.setName("Changed name");
+				try {
+					rdfStore.deSerialize(new ByteArrayInputStream("not RDF".getBytes()), true);
+					fail("Invalid RDF should not load");
+				} catch (Exception ex) {
+					// expected
+				}
+				// the failed load is rolled back
+				doc = new SpdxDocument(rdfStore, TEST_FILE_NAMESPACE, null, false);
+				assertEquals("Changed name", doc.getName().get());
+				expected = ModelFactory.createDefaultModel();
+				IModelStoreLock lock = rdfStore.enterCriticalSection(true);
+				try {
+					expected.add(rdfStore.modelManager.getModel());
+				} finally {
+					lock.unlock();
+				}
+			}
+			try (RdfStore rdfStore = new RdfStore(directory)) {
+				assertEquals(TEST_FILE_NAMESPACE, rdfStore.getDocumentUri());
+				SpdxDocument doc = new SpdxDocument(rdfStore, TEST_FILE_NAMESPACE, null, false);
+				assertEquals("Changed name", doc.getName().get());
+				assertEquals(2, doc.getDocumentDescribes().size());
+				assertTrue(doc.verify().isEmpty());
+				assertTrue(rdfStore.modelManager.getModel().isIsomorphicWith(expected));
+				// the graph is only iterated within a transaction
+				try {
+					rdfStore.modelManager.getModel().getGraph().find().toList();
+					fail("Find outside of a transaction should fail");
+				} catch (JenaTransactionException ex) {
+					// expected
+				}
+				rdfStore.setOutputFormat(OutputFormat.XML);
+				ByteArrayOutputStream xml = new ByteArrayOutputStream();
+				rdfStore.serialize(xml);
+				Model written = ModelFactory.createDefaultModel();
+				written.read(new ByteArrayInputStream(xml.toByteArray()), null, "RDF/XML");
+				assertTrue(written.isIsomorphicWith(expected));
+				try (RdfStore memoryStore = new RdfStore(DOCUMENT_URI1)) {
+					memoryStore.loadModelFromFile(TEST_FILE_NAME, true);
+					assertEquals(memoryStore.countItems(null), rdfStore.countItems(null));
+				}
+				try {
+					rdfStore.loadModelFromFile(TEST_FILE_NAME, false);
+					fail("Should not overwrite without the overwrite flag");
+				} catch (SpdxRdfException ex) {
+					// expected
+				}
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+	
+	public void testPersistentStoreNewDocument() throws Exception {
+		Path directory = Files.createTempDirectory("spdxTdb");
+		try {
+			try (RdfStore rdfStore = new RdfStore(directory)) {
+				rdfStore.setDocumentUri(DOCUMENT_URI1, false);
+				SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+				SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, ID_2, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+			}
+			try (RdfStore rdfStore = new RdfStore(directory)) {
+				assertEquals(DOCUMENT_URI1, rdfStore.getDocumentUri());
+				assertTrue(rdfStore.exists(DOCUMENT_URI1 + "#" + ID_2));
+				assertEquals(1, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+				assertEquals(ID_2, rdfStore.getCaseSensitiveId(DOCUMENT_URI1, ID_2.toUpperCase()).get());
+				// generated IDs continue after the existing IDs
+				String generatedId = rdfStore.getNextId(IdType.SpdxId);
+				SpdxModelFactoryCompatV2.createModelObjectV2(rdfStore, DOCUMENT_URI1, generatedId, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+				assertEquals(2, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+				assertEquals(2, rdfStore.getAllItems(DOCUMENT_URI1, SpdxConstantsCompatV2.CLASS_SPDX_FILE).count());
+			}
+			try (RdfStore rdfStore = new RdfStore(directory)) {
+				// the ID counters are read from the dataset on reopen
+				String nextId = rdfStore.getNextId(IdType.SpdxId);
+				assertFalse(rdfStore.exists(DOCUMENT_URI1 + "#" + nextId));
+				assertEquals(2, rdfStore.countItems(SpdxConstantsCompatV2.CLASS_SPDX_FILE));
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+	
+	public void testDatasetIdIndex() throws Exception {
+		Dataset dataset = DatasetFactory.createTxnMem();
+		DatasetIdIndex ids = new DatasetIdIndex(dataset.asDatasetGraph(), NodeFactory.createURI(DOCUMENT_URI1));
+		assertFalse(ids.isComplete());
+		ids.clearIds();
+		assertTrue(ids.isComplete());
+		ids.addId("SPDXRef-gnrtd3");
+		// changes made in an aborted transaction are discarded
+		dataset.begin(TxnType.WRITE);
+		ids.addId("SPDXRef-gnrtd7");
+		ids.addId("SPDXRef-Other");
+		dataset.abort();
+		dataset.end();
+		assertEquals("SPDXRef-gnrtd3", ids.getCaseSensitiveId("spdxref-GNRTD3").get());
+		assertFalse(ids.getCaseSensitiveId("spdxref-other").isPresent());
+		assertEquals(4, ids.reserve(IdType.SpdxId, 2));
+		assertEquals(6, ids.reserve(IdType.SpdxId, 1));
+		// a read transaction is promoted to record an ID
+		dataset.begin(TxnType.READ_PROMOTE);
+		ids.addId("SPDXRef-Other");
+		dataset.commit();
+		dataset.end();
+		assertEquals("SPDXRef-Other", ids.getCaseSensitiveId("SPDXREF-OTHER").get());
+		// IDs of other graphs are not affected
+		DatasetIdIndex otherIds = new DatasetIdIndex(dataset.asDatasetGraph(), NodeFactory.createURI(DOCUMENT_URI1 + "/other"));
+		otherIds.clearIds();
+		otherIds.addId("SPDXRef-Other");
+		ids.clearIds();
+		assertFalse(ids.getCaseSensitiveId("spdxref-other").isPresent());
+		assertEquals("SPDXRef-Other", otherIds.getCaseSensitiveId("spdxref-other").get());
+		assertEquals(7, ids.reserve(IdType.SpdxId, 1));
+	}
+	
+	public void testShareListedLicenses() throws Exception {
+		try (RdfStore unshared = new RdfStore(); RdfStore shared1 = new RdfStore(); RdfStore shared2 = new RdfStore()) {
+			unshared.loadModelFromFile(TEST_FILE_NAME, false);
+			shared1.setShareListedLicenses(true);
+			shared1.loadModelFromFile(TEST_FILE_NAME, false);
+			shared2.setShareListedLicenses(true);
+			shared2.loadModelFromFile(TEST_FILE_NAME, false);
+			SharedLicenseGraph graph1 = (SharedLicenseGraph)shared1.modelManager.getModel().getGraph();
+			SharedLicenseGraph graph2 = (SharedLicenseGraph)shared2.modelManager.getModel().getGraph();
+			assertEquals(5, graph1.getSharedSubjectCount());
+			assertEquals(5, graph2.getSharedSubjectCount());
+			Model unsharedModel = unshared.modelManager.getModel();
+			assertEquals(unsharedModel.size(), shared1.modelManager.getModel().size());
+			assertTrue(unsharedModel.isIsomorphicWith(shared1.modelManager.getModel()));
+			assertTrue(new SpdxDocument(shared2, TEST_FILE_NAMESPACE, null, false).verify().isEmpty());
+			
+			String apache = SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX + "Apache-2.0";
+			Object name = unshared.getValue(apache, SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME).get();
+			assertEquals(name, shared1.getValue(apache, SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME).get());
+			// changing a shared license only changes the store making the change
+			shared1.setValue(apache, SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME, "Changed name");
+			assertEquals(4, graph1.getSharedSubjectCount());
+			assertEquals("Changed name", shared1.getValue(apache, SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME).get());
+			assertEquals(name, shared2.getValue(apache, SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME).get());
+			assertEquals(unsharedModel.size(), shared1.modelManager.getModel().size());
+		}
+	}
+	
+	public void testShareListedLicenseVersions() throws Exception {
+		Node mit = NodeFactory.createURI(SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX + "MIT");
+		Node licenseName = NodeFactory.createURI(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_STD_LICENSE_NAME.getName());
+		Triple version1Triple = Triple.create(mit, licenseName, NodeFactory.createLiteralString("MIT License"));
+		Triple version2Triple = Triple.create(mit, licenseName, NodeFactory.createLiteralString("The MIT License"));
+		Graph version1 = GraphMemFactory.createDefaultGraph();
+		version1.add(version1Triple);
+		Graph version2 = GraphMemFactory.createDefaultGraph();
+		version2.add(version2Triple);
+		Graph otherVersion2 = GraphMemFactory.createDefaultGraph();
+		otherVersion2.add(version2Triple);
+		SharedLicenseGraph shared1 = SharedLicenseGraph.share(version1);
+		SharedLicenseGraph shared2 = SharedLicenseGraph.share(version2);
+		SharedLicenseGraph otherShared2 = SharedLicenseGraph.share(otherVersion2);
+		// each version of the license is shared by the graphs holding that version
+		assertEquals(1, shared1.getSharedSubjectCount());
+		assertEquals(1, shared2.getSharedSubjectCount());
+		assertEquals(1, otherShared2.getSharedSubjectCount());
+		assertSame(shared2.getSharedTriples(mit), otherShared2.getSharedTriples(mit));
+		assertNotSame(shared1.getSharedTriples(mit), shared2.getSharedTriples(mit));
+		assertTrue(otherVersion2.isEmpty());
+		assertTrue(shared1.contains(version1Triple));
+		assertFalse(shared1.contains(version2Triple));
+		assertTrue(otherShared2.contains(version2Triple));
+	}
+	
+	public void testMultiDocumentStore() throws Exception {
+		try (MultiDocumentRdfStore multiStore = new MultiDocumentRdfStore()) {
+			assertFalse(multiStore.isPersistent());
+			assertTrue(multiStore.getDocumentUris().isEmpty());
+			SpdxDocument doc;
+			try (InputStream stream = new FileInputStream(TEST_FILE_NAME)) {
+				doc = multiStore.deSerialize(stream, false);
+			}
+			assertEquals(TEST_FILE_NAMESPACE, doc.getDocumentUri());
+			assertTrue(doc.verify().isEmpty());
+			RdfStore documentStore = multiStore.getDocumentStore(DOCUMENT_URI1);
+			SpdxModelFactoryCompatV2.createModelObjectV2(documentStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+			SpdxModelFactoryCompatV2.createModelObjectV2(documentStore, DOCUMENT_URI1, ID_2, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+			assertEquals(Arrays.asList(TEST_FILE_NAMESPACE, DOCUMENT_URI1), multiStore.getDocumentUris());
+			
+			// operations are routed by the namespace of the object URI
+			assertTrue(multiStore.exists(DOCUMENT_URI1 + "#" + ID_2));
+			assertFalse(multiStore.exists(TEST_FILE_NAMESPACE + "#" + ID_2));
+			assertFalse(multiStore.exists("https://not.in.store#" + ID_2));
+			assertEquals(SpdxConstantsCompatV2.CLASS_SPDX_FILE, multiStore.getTypedValue(DOCUMENT_URI1 + "#" + ID_2).get().getType());
+			assertEquals(IdType.SpdxId, multiStore.getIdType(DOCUMENT_URI1 + "#" + ID_2));
+			multiStore.setValue(DOCUMENT_URI1 + "#" + ID_2, SpdxConstantsCompatV2.PROP_NAME, "file name");
+			assertEquals("file name", documentStore.getValue(DOCUMENT_URI1 + "#" + ID_2, SpdxConstantsCompatV2.PROP_NAME).get());
+			assertFalse(multiStore.getValue(TEST_FILE_NAMESPACE + "#" + SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, 
+					SpdxConstantsCompatV2.PROP_NAME).get().equals("file name"));
+			assertEquals(ID_2, multiStore.getCaseSensitiveId(DOCUMENT_URI1, ID_2.toUpperCase()).get());
+			assertFalse(multiStore.getCaseSensitiveId(TEST_FILE_NAMESPACE, ID_2).isPresent());
+			
+			// objects outside of any document namespace can only be updated through the store for the document
+			String listedLicenseUri = SpdxConstantsCompatV2.LISTED_LICENSE_NAMESPACE_PREFIX + "Apache-2.0";
+			try {
+				multiStore.setValue(listedLicenseUri, SpdxConstantsCompatV2.PROP_NAME, "changed");
+				fail("Updates outside of a document namespace should be rejected");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+			try {
+				multiStore.delete(listedLicenseUri);
+				fail("Updates outside of a document namespace should be rejected");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+			
+			// anonymous objects are routed to the document containing them
+			List<TypedValue> checksums = multiStore.getAllItems(TEST_FILE_NAMESPACE, SpdxConstantsCompatV2.CLASS_SPDX_CHECKSUM)
+					.collect(Collectors.toList());
+			assertFalse(checksums.isEmpty());
+			String anonUri = checksums.get(0).getObjectUri();
+			assertTrue(multiStore.isAnon(anonUri));
+			assertTrue(multiStore.exists(anonUri));
+			assertFalse(multiStore.getPropertyValueDescriptors(anonUri).isEmpty());
+			assertFalse(multiStore.exists(multiStore.getNextId(IdType.Anonymous)));
+			try {
+				multiStore.getNextId(IdType.SpdxId);
+				fail("SPDX IDs require a document");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+			
+			// each document matches the same document in its own store
+			try (RdfStore expected = new RdfStore(DOCUMENT_URI1)) {
+				expected.loadModelFromFile(TEST_FILE_NAME, true);
+				assertEquals(expected.countItems(null), multiStore.getDocumentStore(TEST_FILE_NAMESPACE).countItems(null));
+				assertEquals(expected.countItems(null) + 2, multiStore.getAllItems(null, null).count());
+			}
+			
+			try (InputStream stream = new FileInputStream(TEST_FILE_NAME)) {
+				multiStore.deSerialize(stream, false);
+				fail("Should not overwrite without the overwrite flag");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+			try {
+				multiStore.deSerialize(new ByteArrayInputStream("not RDF".getBytes()), true);
+				fail("Invalid RDF should not load");
+			} catch (Exception ex) {
+				// expected
+			}
+			// the failed loads are rolled back
+			assertEquals(Arrays.asList(TEST_FILE_NAMESPACE, DOCUMENT_URI1), multiStore.getDocumentUris());
+			assertEquals(multiStore.getDocumentStore(TEST_FILE_NAMESPACE).countItems(null) + 2, multiStore.getAllItems(null, null).count());
+			
+			try {
+				multiStore.serialize(new ByteArrayOutputStream());
+				fail("Many documents can only be serialized as N-Quads");
+			} catch (SpdxRdfException ex) {
+				// expected
+			}
+			multiStore.setOutputFormat(OutputFormat.N_QUADS);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			multiStore.serialize(out);
+			Dataset serialized = DatasetFactory.create();
+			RDFDataMgr.read(serialized, new ByteArrayInputStream(out.toByteArray()), Lang.NQUADS);
+			assertTrue(serialized.containsNamedModel(DOCUMENT_URI1));
+			assertTrue(serialized.containsNamedModel(TEST_FILE_NAMESPACE));
+
+			// the serialized store reads back with each document in its own named graph
+			try (MultiDocumentRdfStore copy = new MultiDocumentRdfStore()) {
+				copy.setOutputFormat(OutputFormat.N_QUADS);
+				doc = copy.deSerialize(new ByteArrayInputStream(out.toByteArray()), false);
+				assertTrue(Arrays.asList(TEST_FILE_NAMESPACE, DOCUMENT_URI1).contains(doc.getDocumentUri()));
+				assertEquals(multiStore.getDocumentUris(), copy.getDocumentUris());
+				for (String documentUri:multiStore.getDocumentUris()) {
+					assertEquals(multiStore.getDocumentStore(documentUri).countItems(null),
+							copy.getDocumentStore(documentUri).countItems(null));
+				}
+				assertEquals("file name", copy.getValue(DOCUMENT_URI1 + "#" + ID_2, SpdxConstantsCompatV2.PROP_NAME).get());
+				assertEquals(ID_2, copy.getCaseSensitiveId(DOCUMENT_URI1, ID_2.toUpperCase()).get());
+				try {
+					copy.deSerialize(new ByteArrayInputStream(out.toByteArray()), false);
+					fail("Should not overwrite without the overwrite flag");
+				} catch (SpdxRdfException ex) {
+					// expected
+				}
+				copy.deSerialize(new ByteArrayInputStream(out.toByteArray()), true);
+				assertEquals(multiStore.getDocumentUris(), copy.getDocumentUris());
+			}
+			// a single document is serialized in the output format
+			ByteArrayOutputStream documentOut = new ByteArrayOutputStream();
+			multiStore.serialize(documentOut, multiStore.getDocumentStore(DOCUMENT_URI1).getSpdxDocument(DOCUMENT_URI1));
+			Dataset serializedDocument = DatasetFactory.create();
+			RDFDataMgr.read(serializedDocument, new ByteArrayInputStream(documentOut.toByteArray()), Lang.NQUADS);
+			assertTrue(serializedDocument.containsNamedModel(DOCUMENT_URI1));
+			assertFalse(serializedDocument.containsNamedModel(TEST_FILE_NAMESPACE));
+			multiStore.setOutputFormat(OutputFormat.XML);
+			
+			multiStore.removeDocument(DOCUMENT_URI1);
+			assertEquals(Arrays.asList(TEST_FILE_NAMESPACE), multiStore.getDocumentUris());
+			assertFalse(multiStore.exists(DOCUMENT_URI1 + "#" + ID_2));
+		}
+	}
+	
+	public void testPersistentMultiDocumentStore() throws Exception {
+		Path directory = Files.createTempDirectory("spdxTdb");
+		try {
+			try (MultiDocumentRdfStore multiStore = new MultiDocumentRdfStore(directory)) {
+				assertTrue(multiStore.isPersistent());
+				try (InputStream stream = new FileInputStream(TEST_FILE_NAME)) {
+					multiStore.deSerialize(stream, false);
+				}
+				RdfStore documentStore = multiStore.getDocumentStore(DOCUMENT_URI1);
+				assertTrue(documentStore.isPersistent());
+				SpdxModelFactoryCompatV2.createModelObjectV2(documentStore, DOCUMENT_URI1, SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.CLASS_SPDX_DOCUMENT, null);
+				SpdxModelFactoryCompatV2.createModelObjectV2(documentStore, DOCUMENT_URI1, ID_2, SpdxConstantsCompatV2.CLASS_SPDX_FILE, null);
+				IModelStoreLock lock = multiStore.enterCriticalSection(false);
+				try {
+					multiStore.setValue(DOCUMENT_URI1 + "#" + ID_2, SpdxConstantsCompatV2.PROP_NAME, "file name");
+					multiStore.setValue(TEST_FILE_NAMESPACE + "#" + SpdxConstantsCompatV2.SPDX_DOCUMENT_ID, SpdxConstantsCompatV2.PROP_NAME, "Changed name");
+				} finally {
+					multiStore.leaveCriticalSection(lock);
+				}
+			}
+			try (MultiDocumentRdfStore multiStore = new MultiDocumentRdfStore(directory)) {
+				assertEquals(Arrays.asList(TEST_FILE_NAMESPACE, DOCUMENT_URI1), multiStore.getDocumentUris());
+				assertEquals("file name", multiStore.getValue(DOCUMENT_URI1 + "#" + ID_2, SpdxConstantsCompatV2.PROP_NAME).get());
+				SpdxDocument doc = new SpdxDocument(multiStore.getDocumentStore(TEST_FILE_NAMESPACE), TEST_FILE_NAMESPACE, null, false);
+				assertEquals("Changed name", doc.getName().get());
+				assertTrue(doc.verify().isEmpty());
+				RdfStore documentStore = multiStore.getDocumentStore(DOCUMENT_URI1);
+				// generated IDs continue after the existing IDs in the document
+				assertFalse(documentStore.exists(DOCUMENT_URI1 + "#" + documentStore.getNextId(IdType.SpdxId)));
+				try {
+					documentStore.setDocumentUri(TEST_FILE_NAMESPACE, true);
+					fail("The document URI of a document in a multi-document store can not be changed");
+				} catch (SpdxRdfException ex) {
+					// expected
+				}
+			}
+		} finally {
+			deleteDirectory(directory);
+		}
+	}
+	
+	private static void deleteDirectory(Path directory) throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path:paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+	}
 }
@@ -5,7 +5,12 @@
  */
 package org.spdx.spdxRdfStore;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -13,6 +18,7 @@ import org.apache.jena.ontology.OntModel;
 import org.apache.jena.rdf.model.Model;
 import org.apache.jena.rdf.model.ModelFactory;
 import org.spdx.library.model.v2.SpdxConstantsCompatV2;
+import org.spdx.spdxRdfStore.SpdxOwlOntologyMetadata.PropertyRestrictions;
 
 import junit.framework.TestCase;
 
@@ -52,6 +58,28 @@ public class SpdxOwlOntologyTest extends TestCase {
 				SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_LICENSE_DECLARED.getName()));
 	}
 	
+	public void testIsListErrors() throws SpdxRdfException {
+		try {
+			SpdxOwlOntology.getSpdxOwlOntology().isList(SpdxConstantsCompatV2.SPDX_NAMESPACE + "NotAClass",
+					SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_FILE_TYPE.getName());
+			fail("Expected exception for a missing class");
+		} catch (SpdxRdfException ex) {
+			// expected
+		}
+		try {
+			SpdxOwlOntology.getSpdxOwlOntology().isList(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_FILE,
+					SpdxConstantsCompatV2.SPDX_NAMESPACE + "notAProperty");
+			fail("Expected exception for a missing property");
+		} catch (SpdxRdfException ex) {
+			// expected
+		}
+		// Generic SPDX elements use the restrictions from SpdxElement
+		assertEquals(SpdxOwlOntology.getSpdxOwlOntology().isList(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.CLASS_SPDX_ELEMENT,
+				SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_ANNOTATION.getName()),
+				SpdxOwlOntology.getSpdxOwlOntology().isList(SpdxConstantsCompatV2.SPDX_NAMESPACE + "GenericSpdxElement",
+						SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_ANNOTATION.getName()));
+	}
+	
 	public void testClassesInOntology() {
 		for (String className:SpdxConstantsCompatV2.ALL_SPDX_CLASSES) {
 			if (!SpdxConstantsCompatV2.CLASS_NONE_LICENSE.equals(className) && 
@@ -95,6 +123,29 @@ public class SpdxOwlOntologyTest extends TestCase {
 	assertEquals(Optional.of(Integer.class), dataClass);
 	}
 	 
+	public void testMetadataWriteRead() throws IOException {
+		SpdxOwlOntologyMetadata compiled = SpdxOwlOntologyMetadata.compile(SpdxOwlOntology.loadOntologyModel());
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		compiled.write(bos);
+		SpdxOwlOntologyMetadata read = SpdxOwlOntologyMetadata.read(new ByteArrayInputStream(bos.toByteArray()));
+		assertEquals(compiled.getOntPropertyUris(), read.getOntPropertyUris());
+		assertEquals(compiled.getPropertyClasses(), read.getPropertyClasses());
+		assertEquals(compiled.getRestrictionTable().keySet(), read.getRestrictionTable().keySet());
+		for (Entry<String, Map<String, PropertyRestrictions>> classEntry:compiled.getRestrictionTable().entrySet()) {
+			Map<String, PropertyRestrictions> readRestrictions = read.getRestrictionTable().get(classEntry.getKey());
+			assertEquals(classEntry.getValue().keySet(), readRestrictions.keySet());
+			for (Entry<String, PropertyRestrictions> propertyEntry:classEntry.getValue().entrySet()) {
+				PropertyRestrictions expected = propertyEntry.getValue();
+				PropertyRestrictions result = readRestrictions.get(propertyEntry.getKey());
+				assertEquals(expected.getMinCardinality(), result.getMinCardinality());
+				assertEquals(expected.getMaxCardinality(), result.getMaxCardinality());
+				assertEquals(expected.getExactCardinality(), result.getExactCardinality());
+				assertEquals(expected.getClassUriRestrictions(), result.getClassUriRestrictions());
+				assertEquals(expected.getDataUriRestrictions(), result.getDataUriRestrictions());
+			}
+		}
+	}
+	
 	public void testCheckGetOwlUriFromRenamed() {
 		assertEquals(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_SPDX_VERSION.getName(), 
 				SpdxOwlOntology.checkGetOwlUriFromRenamed(SpdxConstantsCompatV2.SPDX_NAMESPACE + SpdxConstantsCompatV2.PROP_SPDX_SPEC_VERSION.getName()));